@@ -3,9 +3,15 @@ package org.awaioi.randomtp;
 import org.awaioi.randomtp.commands.RTPCommand;
 import org.awaioi.randomtp.config.ConfigManager;
 import org.awaioi.randomtp.data.PlayerDataManager;
-import org.awaioi.randomtp.economy.EconomyManager;
 import org.awaioi.randomtp.economy.EconomySystemManager;
+import org.awaioi.randomtp.economy.EscrowManager;
+import org.awaioi.randomtp.economy.PricingEngine;
+import org.awaioi.randomtp.economy.RefundQueue;
+import org.awaioi.randomtp.effects.ParticleDispatcher;
 import org.awaioi.randomtp.listeners.PlayerListener;
+import org.awaioi.randomtp.logging.LogManager;
+import org.awaioi.randomtp.scheduler.CountdownScheduler;
+import org.awaioi.randomtp.scheduler.MaintenanceScheduler;
 import org.awaioi.randomtp.teleport.TeleportManager;
 import org.bukkit.plugin.java.JavaPlugin;
 
@@ -17,9 +23,15 @@ public class RandomTP extends JavaPlugin {
     
     private static RandomTP instance;
     private ConfigManager configManager;
+    private MaintenanceScheduler maintenanceScheduler;
+    private CountdownScheduler countdownScheduler;
+    private ParticleDispatcher particleDispatcher;
+    private LogManager logManager;
     private PlayerDataManager playerDataManager;
-    private EconomyManager economyManager;
     private EconomySystemManager economySystemManager;
+    private EscrowManager escrowManager;
+    private RefundQueue refundQueue;
+    private PricingEngine pricingEngine;
     private TeleportManager teleportManager;
     private RTPCommand rtpCommand;
     
@@ -37,18 +49,42 @@ public class RandomTP extends JavaPlugin {
             return;
         }
         
-        // 初始化经济管理器
-        economyManager = new EconomyManager(this);
-        economyManager.initialize();
+        // 初始化维护调度器（所有后台维护任务共用）
+        maintenanceScheduler = new MaintenanceScheduler(getLogger(), 
+            configManager.getMaintenanceThreads(), 
+            configManager.getMaintenanceJitterPercent(), 
+            configManager.getMaintenanceMaxJitterSeconds());
+        
+        // 初始化日志管理器
+        logManager = new LogManager(this);
         
         // 初始化经济系统管理器
         economySystemManager = new EconomySystemManager(this);
         economySystemManager.initialize();
         
+        // 初始化动态定价引擎
+        pricingEngine = new PricingEngine(this);
+        pricingEngine.start();
+        
+        // 初始化延迟退款队列（需在费用预留重放之前，用于去重）
+        refundQueue = new RefundQueue(this);
+        refundQueue.initialize();
+        
+        // 初始化费用预留管理器（重放上次未完成的预留）
+        escrowManager = new EscrowManager(this);
+        escrowManager.initialize();
+        
         // 初始化玩家数据管理器
         playerDataManager = new PlayerDataManager(this);
         playerDataManager.loadPlayerData();
         
+        // 初始化共享倒计时调度器（所有玩家的传送倒计时共用一个 tick 任务）
+        countdownScheduler = new CountdownScheduler(this);
+        
+        // 初始化粒子效果分发器（全局粒子预算和视距剔除）
+        particleDispatcher = new ParticleDispatcher(this);
+        particleDispatcher.start();
+        
         // 初始化传送管理器
         teleportManager = new TeleportManager(this);
         
@@ -80,11 +116,41 @@ public class RandomTP extends JavaPlugin {
             teleportManager.cancelAllTeleports();
         }
         
+        // 停止粒子预算任务
+        if (particleDispatcher != null) {
+            particleDispatcher.shutdown();
+        }
+        
+        // 停止动态定价探测
+        if (pricingEngine != null) {
+            pricingEngine.shutdown();
+        }
+        
+        // 释放未确认的费用预留（需在经济系统关闭前完成退款）
+        if (escrowManager != null) {
+            escrowManager.shutdown();
+        }
+        
+        // 停止退款重试，未完成的退款保留在日志中
+        if (refundQueue != null) {
+            refundQueue.shutdown();
+        }
+        
         // 关闭经济系统管理器
         if (economySystemManager != null) {
             economySystemManager.shutdown();
         }
         
+        // 等待正在执行的保存、压缩等维护任务完成
+        if (maintenanceScheduler != null) {
+            maintenanceScheduler.shutdown(configManager.getMaintenanceShutdownTimeout());
+        }
+        
+        // 最后关闭日志管理器，确保前面的关闭过程都已记录
+        if (logManager != null) {
+            logManager.shutdown();
+        }
+        
         getLogger().info("随机传送插件已禁用");
     }
     
@@ -102,6 +168,20 @@ public class RandomTP extends JavaPlugin {
         return configManager;
     }
     
+    /**
+     * 获取维护调度器
+     */
+    public MaintenanceScheduler getMaintenanceScheduler() {
+        return maintenanceScheduler;
+    }
+    
+    /**
+     * 获取日志管理器
+     */
+    public LogManager getLogManager() {
+        return logManager;
+    }
+    
     /**
      * 获取玩家数据管理器
      */
@@ -110,10 +190,17 @@ public class RandomTP extends JavaPlugin {
     }
     
     /**
-     * 获取经济管理器
+     * 获取共享倒计时调度器
      */
-    public EconomyManager getEconomyManager() {
-        return economyManager;
+    public CountdownScheduler getCountdownScheduler() {
+        return countdownScheduler;
+    }
+    
+    /**
+     * 获取粒子效果分发器
+     */
+    public ParticleDispatcher getParticleDispatcher() {
+        return particleDispatcher;
     }
     
     /**
@@ -123,6 +210,27 @@ public class RandomTP extends JavaPlugin {
         return economySystemManager;
     }
     
+    /**
+     * 获取费用预留管理器
+     */
+    public EscrowManager getEscrowManager() {
+        return escrowManager;
+    }
+    
+    /**
+     * 获取延迟退款队列
+     */
+    public RefundQueue getRefundQueue() {
+        return refundQueue;
+    }
+    
+    /**
+     * 获取动态定价引擎
+     */
+    public PricingEngine getPricingEngine() {
+        return pricingEngine;
+    }
+    
     /**
      * 获取传送管理器
      */
@@ -1,13 +1,33 @@
 package org.awaioi.randomtp.commands;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.awaioi.randomtp.RandomTP;
 import org.awaioi.randomtp.config.ConfigManager;
+import org.awaioi.randomtp.economy.CostTable;
 import org.awaioi.randomtp.economy.EconomySystemManager;
+import org.awaioi.randomtp.economy.LatencyHistogram;
+import org.awaioi.randomtp.economy.RefundQueue;
+import org.awaioi.randomtp.listeners.MovementGuard;
+import org.awaioi.randomtp.logging.LogCategory;
+import org.awaioi.randomtp.logging.LogManager;
+import org.awaioi.randomtp.logging.LogRateLimiter;
+import org.awaioi.randomtp.logging.LogSink;
+import org.awaioi.randomtp.logging.TransactionLedger;
+import org.awaioi.randomtp.scheduler.MaintenanceScheduler;
 import org.awaioi.randomtp.teleport.TeleportManager;
 import org.bukkit.ChatColor;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.PluginCommand;
@@ -20,6 +40,10 @@ import org.bukkit.entity.Player;
  */
 public class RTPCommand implements TabExecutor {
     
+    private static final int LEDGER_RESULT_LIMIT = 20;
+    private static final DateTimeFormatter LEDGER_TIME_FORMAT = 
+        DateTimeFormatter.ofPattern("MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    
     private final RandomTP plugin;
     private final ConfigManager configManager;
     private final TeleportManager teleportManager;
@@ -91,6 +115,12 @@ public class RTPCommand implements TabExecutor {
                 return handleSetCostCommand(sender, args);
             case "economystatus":
                 return handleEconomyStatusCommand(sender);
+            case "ledger":
+                return handleLedgerCommand(sender, args);
+            case "metrics":
+                return handleMetricsCommand(sender);
+            case "refunds":
+                return handleRefundsCommand(sender, args);
             default:
                 sender.sendMessage(configManager.getMessage("prefix") + 
                     ChatColor.RED + "未知命令。使用 /rtp help 查看可用命令。");
@@ -149,14 +179,17 @@ public class RTPCommand implements TabExecutor {
         if (economySystemManager.isEnabled()) {
             sender.sendMessage(ChatColor.GOLD + "=== 传送费用 ===");
             sender.sendMessage(ChatColor.YELLOW + "普通玩家: " + ChatColor.WHITE + 
-                economySystemManager.formatMoney(economySystemManager.getTeleportCost(playerIfExists(sender))));
+                economySystemManager.formatCost(economySystemManager.getTeleportCharge(playerIfExists(sender))));
             sender.sendMessage(ChatColor.YELLOW + "VIP: " + ChatColor.WHITE + 
-                economySystemManager.formatMoney(economySystemManager.getTeleportCost(playerIfExists(sender))));
+                economySystemManager.formatCost(economySystemManager.getTeleportCharge(playerIfExists(sender))));
         }
         
         // 显示经济系统调试命令
         if (sender.hasPermission("rtp.admin")) {
             sender.sendMessage(ChatColor.GOLD + "/rtp economystatus " + ChatColor.WHITE + "- 查看经济系统状态");
+            sender.sendMessage(ChatColor.GOLD + "/rtp ledger <玩家> [7d|24h|yyyy-MM-dd] " + ChatColor.WHITE + "- 查询玩家交易记录");
+            sender.sendMessage(ChatColor.GOLD + "/rtp metrics " + ChatColor.WHITE + "- 查看后台任务和日志统计");
+            sender.sendMessage(ChatColor.GOLD + "/rtp refunds [玩家] " + ChatColor.WHITE + "- 查看待退还的传送费用");
         }
         
         return true;
@@ -171,12 +204,20 @@ public class RTPCommand implements TabExecutor {
         sender.sendMessage(configManager.getMessage("prefix") + 
             ChatColor.stripColor(configManager.getMessage("info-header")));
         sender.sendMessage(configManager.getFormattedMessage("info-cost", 
-            "cost", economySystemManager.formatMoney(economySystemManager.getTeleportCost(player))));
+            "cost", economySystemManager.formatCost(economySystemManager.getTeleportCharge(player))));
         sender.sendMessage(configManager.getFormattedMessage("info-cooldown", 
             "cooldown", String.valueOf(configManager.getPlayerCooldown(getPlayerPermission(player)))));
         sender.sendMessage(configManager.getFormattedMessage("info-range", 
             "range", String.valueOf(configManager.getTeleportRange())));
         
+        // 如果是玩家，显示余额（优先使用缓存，未命中时异步查询）
+        if (player != null && economySystemManager.isEnabled()) {
+            economySystemManager.getPlayerMoneyAsync(player).thenAccept(balance -> 
+                plugin.getServer().getScheduler().runTask(plugin, () -> 
+                    sender.sendMessage(ChatColor.YELLOW + "当前余额: " + ChatColor.WHITE + 
+                        economySystemManager.formatMoney(balance))));
+        }
+        
         // 如果是玩家，显示冷却信息
         if (player != null) {
             long remainingCooldown = plugin.getPlayerDataManager().getRemainingCooldown(player.getUniqueId());
@@ -203,6 +244,14 @@ public class RTPCommand implements TabExecutor {
         try {
             configManager.reloadConfig();
             plugin.getPlayerDataManager().loadPlayerData();
+            if (plugin.getPricingEngine() != null) {
+                plugin.getPricingEngine().reload();
+            }
+            if (plugin.getParticleDispatcher() != null) {
+                plugin.getParticleDispatcher().reload();
+            }
+            plugin.getTeleportManager().getTeleportEffects().reload();
+            plugin.getTeleportManager().getProtectionManager().reload();
             sender.sendMessage(configManager.getMessage("prefix") + 
                 configManager.getMessage("reload-success"));
         } catch (Exception e) {
@@ -318,8 +367,14 @@ public class RTPCommand implements TabExecutor {
             return true;
         }
         
-        configManager.getConfig().set(configPath, cost);
+        // 带货币的费用只修改金额，保留货币设置
+        if (configManager.getConfig().isConfigurationSection(configPath)) {
+            configManager.getConfig().set(configPath + ".amount", cost);
+        } else {
+            configManager.getConfig().set(configPath, cost);
+        }
         configManager.saveConfig();
+        configManager.compileCostTable();
         
         sender.sendMessage(configManager.getFormattedMessage("cost-set", 
             "cost", economySystemManager.formatMoney(cost)));
@@ -343,6 +398,9 @@ public class RTPCommand implements TabExecutor {
                 subCommands.add("bypass");
                 subCommands.add("setcost");
                 subCommands.add("economystatus");
+                subCommands.add("ledger");
+                subCommands.add("metrics");
+                subCommands.add("refunds");
             }
             
             String prefix = args[0].toLowerCase();
@@ -354,7 +412,8 @@ public class RTPCommand implements TabExecutor {
         } else if (args.length == 2) {
             String subCommand = args[0].toLowerCase();
             
-            if ((subCommand.equals("admin") || subCommand.equals("bypass")) && 
+            if ((subCommand.equals("admin") || subCommand.equals("bypass") || subCommand.equals("ledger") || 
+                 subCommand.equals("refunds")) && 
                 sender.hasPermission("rtp.admin")) {
                 // 玩家名补全
                 String prefix = args[1].toLowerCase();
@@ -382,6 +441,16 @@ public class RTPCommand implements TabExecutor {
                 completions.add("100");
                 completions.add("200");
             }
+        } else if (args.length == 3 && args[0].equalsIgnoreCase("ledger") && 
+                   sender.hasPermission("rtp.admin")) {
+            // 时间范围补全
+            String prefix = args[2].toLowerCase();
+            String[] ranges = {"24h", "7d", "30d"};
+            for (String range : ranges) {
+                if (range.startsWith(prefix)) {
+                    completions.add(range);
+                }
+            }
         }
         
         return completions;
@@ -433,12 +502,16 @@ public class RTPCommand implements TabExecutor {
         
         // 费用设置
         sender.sendMessage(ChatColor.GOLD + "=== 当前费用设置 ===");
+        CostTable costTable = configManager.getCostTable();
         sender.sendMessage(ChatColor.YELLOW + "默认费用: " + ChatColor.WHITE + 
-            economySystemManager.formatMoney(configManager.getConfig().getDouble("economy.cost.default", 100.0)));
+            economySystemManager.formatCost(costTable.get(CostTable.Tier.DEFAULT)));
         sender.sendMessage(ChatColor.YELLOW + "VIP费用: " + ChatColor.WHITE + 
-            economySystemManager.formatMoney(configManager.getConfig().getDouble("economy.cost.vip", 50.0)));
+            economySystemManager.formatCost(costTable.get(CostTable.Tier.VIP)));
         sender.sendMessage(ChatColor.YELLOW + "VIP+费用: " + ChatColor.WHITE + 
-            economySystemManager.formatMoney(configManager.getConfig().getDouble("economy.cost.vipplus", 10.0)));
+            economySystemManager.formatCost(costTable.get(CostTable.Tier.VIPPLUS)));
+        if (costTable.getWorldCount() > 0) {
+            sender.sendMessage(ChatColor.YELLOW + "按世界设置费用: " + ChatColor.WHITE + costTable.getWorldCount() + " 个世界");
+        }
         
         // 退款设置
         sender.sendMessage(ChatColor.GOLD + "=== 退款设置 ===");
@@ -464,12 +537,312 @@ public class RTPCommand implements TabExecutor {
             (economySystemManager.hasFeature("TRANSACTION_LOGGING") ? 
                 ChatColor.GREEN + "支持" : ChatColor.RED + "不支持"));
         
+        // 动态定价
+        if (plugin.getPricingEngine() != null) {
+            sender.sendMessage(ChatColor.YELLOW + "动态定价: " + ChatColor.WHITE + 
+                plugin.getPricingEngine().getSummary());
+        }
+        
+        // 余额缓存
+        sender.sendMessage(ChatColor.YELLOW + "余额缓存: " + ChatColor.WHITE + 
+            economySystemManager.getBalanceCacheSummary());
+        
+        // 费用预留
+        if (plugin.getEscrowManager() != null) {
+            sender.sendMessage(ChatColor.YELLOW + "费用预留: " + ChatColor.WHITE + 
+                plugin.getEscrowManager().getSummary());
+        }
+        
+        // 延迟退款
+        if (plugin.getRefundQueue() != null) {
+            sender.sendMessage(ChatColor.YELLOW + "退款队列: " + ChatColor.WHITE + 
+                plugin.getRefundQueue().getSummary());
+        }
+        
+        // 熔断器状态
+        sender.sendMessage(ChatColor.GOLD + "=== 熔断器 ===");
+        for (Map.Entry<String, String> entry : economySystemManager.getBreakerSummaries().entrySet()) {
+            sender.sendMessage(ChatColor.YELLOW + entry.getKey() + ": " + ChatColor.WHITE + entry.getValue());
+        }
+        
+        // 后端调用延迟
+        sender.sendMessage(ChatColor.GOLD + "=== 调用延迟 ===");
+        sendLatencyHistograms(sender);
+        
         sender.sendMessage(ChatColor.GRAY + "=== 调试信息 ===");
         sender.sendMessage(ChatColor.GRAY + "经济系统管理器已初始化并正常运行");
         
         return true;
     }
     
+    /**
+     * 处理交易记录查询命令
+     * 账本查询需要读取磁盘，在异步线程执行后回到主线程发送结果
+     */
+    private boolean handleLedgerCommand(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("rtp.admin")) {
+            sender.sendMessage(configManager.getMessage("prefix") + 
+                configManager.getMessage("no-permission"));
+            return true;
+        }
+        
+        if (args.length < 2) {
+            sender.sendMessage(configManager.getMessage("prefix") + 
+                ChatColor.RED + "用法: /rtp ledger <玩家> [7d|24h|yyyy-MM-dd]");
+            return true;
+        }
+        
+        long since = parseSince(args.length >= 3 ? args[2] : "7d");
+        if (since < 0) {
+            sender.sendMessage(configManager.getMessage("prefix") + 
+                ChatColor.RED + "无效的时间范围: " + args[2] + "（示例: 24h, 7d, 2024-01-31）");
+            return true;
+        }
+        
+        String targetName = args[1];
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<String> lines = new ArrayList<>();
+            
+            UUID targetUUID = resolvePlayerUUID(targetName);
+            if (targetUUID == null) {
+                lines.add(configManager.getMessage("prefix") + ChatColor.RED + "找不到玩家: " + targetName);
+            } else {
+                try {
+                    TransactionLedger.LedgerQueryResult result = 
+                        plugin.getLogManager().queryLedger(targetUUID, since, LEDGER_RESULT_LIMIT);
+                    formatLedgerResult(targetName, result, lines);
+                } catch (IOException e) {
+                    lines.add(configManager.getMessage("prefix") + ChatColor.RED + "查询交易记录失败: " + e.getMessage());
+                }
+            }
+            
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                for (String line : lines) {
+                    sender.sendMessage(line);
+                }
+            });
+        });
+        
+        return true;
+    }
+    
+    /**
+     * 处理运行指标命令
+     */
+    private boolean handleMetricsCommand(CommandSender sender) {
+        if (!sender.hasPermission("rtp.admin")) {
+            sender.sendMessage(configManager.getMessage("prefix") + 
+                configManager.getMessage("no-permission"));
+            return true;
+        }
+        
+        // 维护任务
+        MaintenanceScheduler scheduler = plugin.getMaintenanceScheduler();
+        sender.sendMessage(ChatColor.GOLD + "=== 维护任务 ===");
+        sender.sendMessage(ChatColor.YELLOW + "线程数: " + ChatColor.WHITE + scheduler.getThreadCount() + 
+            ChatColor.YELLOW + "  排队任务: " + ChatColor.WHITE + scheduler.getQueuedTaskCount() + 
+            ChatColor.YELLOW + "  阻塞通道排队: " + ChatColor.WHITE + scheduler.getBlockingQueuedTaskCount());
+        for (MaintenanceScheduler.JobStats job : scheduler.getJobStats().values()) {
+            sender.sendMessage(ChatColor.YELLOW + job.getName() + ": " + ChatColor.WHITE + 
+                String.format("%d 次, 平均 %.2f ms, 最长 %.2f ms", job.getRuns(), job.getAverageMillis(), job.getMaxMillis()) + 
+                (job.getFailures() > 0 ? ChatColor.RED + " 失败 " + job.getFailures() : ""));
+        }
+        
+        // 日志输出
+        LogManager logManager = plugin.getLogManager();
+        sender.sendMessage(ChatColor.GOLD + "=== 日志 ===");
+        Map<LogCategory, LogRateLimiter.LimiterStats> limiterStats = logManager.getRateLimitStats();
+        for (LogSink.SinkStats stats : logManager.getLogStats().values()) {
+            StringBuilder line = new StringBuilder()
+                .append(ChatColor.YELLOW).append(stats.getCategory()).append(": ")
+                .append(ChatColor.WHITE).append(stats.getRecords()).append(" 条, ")
+                .append(stats.getBytes() / 1024).append(" KB, 滚动 ").append(stats.getRolls()).append(" 次");
+            LogRateLimiter.LimiterStats limited = limiterStats.get(stats.getCategory());
+            if (limited != null && (limited.getSampled() > 0 || limited.getSuppressed() > 0)) {
+                line.append(ChatColor.GRAY).append(" (采样 ").append(limited.getSampled())
+                    .append(", 抑制 ").append(limited.getSuppressed()).append(")");
+            }
+            sender.sendMessage(line.toString());
+        }
+        sender.sendMessage(ChatColor.YELLOW + "归档压缩: " + ChatColor.WHITE + 
+            logManager.getLogDirectoryInfo().getFormattedCompression());
+        
+        // 传送请求
+        sender.sendMessage(ChatColor.GOLD + "=== 传送请求 ===");
+        sender.sendMessage(ChatColor.YELLOW + "各状态: " + ChatColor.WHITE + 
+            plugin.getTeleportManager().getRequestRegistry().getSummary());
+        sender.sendMessage(ChatColor.YELLOW + "位置搜索: " + ChatColor.WHITE + 
+            plugin.getTeleportManager().getLocationSearch().getSummary());
+        
+        // 传送效果
+        sender.sendMessage(ChatColor.GOLD + "=== 传送效果 ===");
+        sender.sendMessage(ChatColor.YELLOW + "粒子预算: " + ChatColor.WHITE + 
+            plugin.getParticleDispatcher().getSummary());
+        sender.sendMessage(ChatColor.YELLOW + "进行中的倒计时: " + ChatColor.WHITE + 
+            plugin.getCountdownScheduler().getActiveCount());
+        sender.sendMessage(ChatColor.YELLOW + "倒计时显示: " + ChatColor.WHITE + 
+            plugin.getTeleportManager().getTeleportEffects().getCountdownDisplay().getSummary());
+        sender.sendMessage(ChatColor.YELLOW + "传送后保护: " + ChatColor.WHITE + 
+            plugin.getTeleportManager().getProtectionManager().getSummary());
+        MovementGuard movementGuard = plugin.getTeleportManager().getMovementGuard();
+        sender.sendMessage(ChatColor.YELLOW + "移动检测: " + ChatColor.WHITE + 
+            (movementGuard.isRegistered() ? "已注册" : "未注册") + ", 等待中 " + movementGuard.getWatchedCount());
+        
+        // 经济后端
+        sender.sendMessage(ChatColor.GOLD + "=== 经济调用延迟 ===");
+        sendLatencyHistograms(sender);
+        
+        return true;
+    }
+    
+    /**
+     * 处理退款队列命令：显示待退总额和待退款明细，可按玩家筛选
+     */
+    private boolean handleRefundsCommand(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("rtp.admin")) {
+            sender.sendMessage(configManager.getMessage("prefix") + 
+                configManager.getMessage("no-permission"));
+            return true;
+        }
+        
+        RefundQueue refundQueue = plugin.getRefundQueue();
+        if (refundQueue == null) {
+            sender.sendMessage(configManager.getMessage("prefix") + ChatColor.RED + "退款队列未启用。");
+            return true;
+        }
+        
+        String filter = args.length >= 2 ? args[1] : null;
+        sender.sendMessage(ChatColor.GOLD + "=== 退款队列 ===");
+        sender.sendMessage(ChatColor.YELLOW + "统计: " + ChatColor.WHITE + refundQueue.getSummary());
+        for (Map.Entry<String, Double> total : refundQueue.getOutstandingTotals().entrySet()) {
+            String currency = total.getKey().isEmpty() ? null : total.getKey();
+            sender.sendMessage(ChatColor.YELLOW + "待退总额" + (currency != null ? " [" + currency + "]" : "") + ": " + 
+                ChatColor.WHITE + economySystemManager.formatMoney(total.getValue(), currency));
+        }
+        
+        List<RefundQueue.Refund> pending = refundQueue.getPendingRefunds();
+        int shown = 0;
+        for (RefundQueue.Refund refund : pending) {
+            if (filter != null && !refund.getPlayerName().equalsIgnoreCase(filter)) {
+                continue;
+            }
+            if (shown++ >= LEDGER_RESULT_LIMIT) {
+                break;
+            }
+            sender.sendMessage(ChatColor.GRAY + LEDGER_TIME_FORMAT.format(Instant.ofEpochMilli(refund.getQueuedAt())) + " " + 
+                ChatColor.YELLOW + refund.getPlayerName() + " " + 
+                ChatColor.WHITE + economySystemManager.formatMoney(refund.getAmount(), refund.getCurrency()) + 
+                ChatColor.GRAY + (refund.isAwaitingJoin() ? " - 等待上线" : " - 已重试 " + refund.getAttempts() + " 次"));
+        }
+        if (shown == 0) {
+            sender.sendMessage(ChatColor.GRAY + (filter != null ? "该玩家没有待退还的费用" : "没有待退还的费用"));
+        } else if (shown > LEDGER_RESULT_LIMIT) {
+            sender.sendMessage(ChatColor.GRAY + "（仅显示最早的 " + LEDGER_RESULT_LIMIT + " 条）");
+        }
+        
+        return true;
+    }
+    
+    /**
+     * 发送各经济适配器的调用延迟分布
+     */
+    private void sendLatencyHistograms(CommandSender sender) {
+        Map<String, LatencyHistogram> histograms = economySystemManager.getLatencyHistograms();
+        if (histograms.isEmpty()) {
+            sender.sendMessage(ChatColor.GRAY + "暂无经济调用记录");
+            return;
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            sender.sendMessage(ChatColor.YELLOW + entry.getKey() + ": " + ChatColor.WHITE + 
+                entry.getValue().getSummary());
+        }
+    }
+    
+    /**
+     * 格式化账本查询结果
+     */
+    private void formatLedgerResult(String targetName, TransactionLedger.LedgerQueryResult result, List<String> lines) {
+        lines.add(ChatColor.GOLD + "=== " + targetName + " 的交易记录 ===");
+        
+        if (result.getRecords().isEmpty()) {
+            lines.add(ChatColor.GRAY + "指定时间范围内没有交易记录");
+        }
+        for (TransactionLedger.LedgerRecord record : result.getRecords()) {
+            lines.add(ChatColor.GRAY + LEDGER_TIME_FORMAT.format(Instant.ofEpochMilli(record.getTimestamp())) + " " + 
+                ChatColor.YELLOW + record.getAction() + " " + 
+                ChatColor.WHITE + economySystemManager.formatMoney(record.getAmount(), record.getCurrency()) + 
+                ChatColor.GRAY + " - " + record.getDescription());
+        }
+        
+        if (result.getMatched() > result.getRecords().size()) {
+            lines.add(ChatColor.GRAY + "（仅显示最近 " + result.getRecords().size() + " 条）");
+        }
+        StringBuilder netPaid = new StringBuilder();
+        for (Map.Entry<String, Double> entry : result.getNetPaid().entrySet()) {
+            if (netPaid.length() > 0) {
+                netPaid.append(", ");
+            }
+            netPaid.append(economySystemManager.formatMoney(entry.getValue(), entry.getKey().isEmpty() ? null : entry.getKey()));
+        }
+        if (netPaid.length() == 0) {
+            netPaid.append(economySystemManager.formatMoney(0));
+        }
+        lines.add(ChatColor.YELLOW + "共 " + result.getMatched() + " 条，净支付（扣款减退款） " + 
+            ChatColor.WHITE + netPaid);
+        lines.add(ChatColor.GRAY + String.format("扫描 %d 个分段 / %d 条索引，耗时 %.2f ms", 
+            result.getSegmentsScanned(), result.getIndexRecordsScanned(), result.getElapsedMillis()));
+    }
+    
+    /**
+     * 解析查询起始时间，支持 24h、7d、30m 形式的相对时间和 yyyy-MM-dd 日期，无效时返回 -1
+     */
+    private long parseSince(String value) {
+        String input = value.trim().toLowerCase();
+        if (input.length() >= 2) {
+            char unit = input.charAt(input.length() - 1);
+            String number = input.substring(0, input.length() - 1);
+            if (number.matches("\\d+")) {
+                long amount = Long.parseLong(number);
+                switch (unit) {
+                    case 'd':
+                        return System.currentTimeMillis() - TimeUnit.DAYS.toMillis(amount);
+                    case 'h':
+                        return System.currentTimeMillis() - TimeUnit.HOURS.toMillis(amount);
+                    case 'm':
+                        return System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(amount);
+                    default:
+                        break;
+                }
+            }
+        }
+        
+        try {
+            return LocalDate.parse(input).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * 根据玩家名或UUID解析玩家UUID，找不到时返回null
+     */
+    @SuppressWarnings("deprecation")
+    private UUID resolvePlayerUUID(String name) {
+        Player online = plugin.getServer().getPlayerExact(name);
+        if (online != null) {
+            return online.getUniqueId();
+        }
+        
+        try {
+            return UUID.fromString(name);
+        } catch (IllegalArgumentException e) {
+            // 不是UUID，按玩家名查找
+        }
+        
+        OfflinePlayer offline = plugin.getServer().getOfflinePlayer(name);
+        return offline != null && offline.hasPlayedBefore() ? offline.getUniqueId() : null;
+    }
+    
     /**
      * 如果发送者是玩家则返回Player对象，否则返回null
      */
@@ -4,9 +4,17 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 import org.awaioi.randomtp.RandomTP;
+import org.awaioi.randomtp.economy.CostTable;
+import org.awaioi.randomtp.economy.CostTable.TeleportCost;
+import org.awaioi.randomtp.economy.PricingEngine;
+import org.awaioi.randomtp.effects.EffectProfiles;
 import org.bukkit.ChatColor;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
@@ -19,6 +27,8 @@ public class ConfigManager {
     private final RandomTP plugin;
     private File configFile;
     private FileConfiguration config;
+    private volatile CostTable costTable;
+    private volatile EffectProfiles effectProfiles;
     
     public ConfigManager(RandomTP plugin) {
         this.plugin = plugin;
@@ -38,6 +48,8 @@ public class ConfigManager {
         
         // 设置默认值
         setDefaults();
+        compileCostTable();
+        compileEffectProfiles();
         
         // 保存配置
         saveConfig();
@@ -53,6 +65,12 @@ public class ConfigManager {
         config.addDefault("teleport.range", 1000);
         config.addDefault("teleport.delay", 3);
         config.addDefault("teleport.cooldown", 300);
+        config.addDefault("teleport.move-tolerance", 0.0);
+        config.addDefault("teleport.protection.enabled", true);
+        config.addDefault("teleport.protection.damage-reduction", 1.0);
+        config.addDefault("teleport.protection.duration.default", 5);
+        config.addDefault("teleport.protection.duration.vip", 5);
+        config.addDefault("teleport.protection.duration.vipplus", 5);
         
         // 经济设置
         config.addDefault("economy.enabled", true);
@@ -66,6 +84,45 @@ public class ConfigManager {
         config.addDefault("economy.system-detection.auto", true);
         config.addDefault("economy.fallback-to-vault", true);
         config.addDefault("economy.debug-mode", false);
+        config.addDefault("economy.async.threads", 2);
+        config.addDefault("economy.escrow.timeout", 120);
+        config.addDefault("economy.escrow.settle-interval", 1);
+        config.addDefault("economy.escrow.batch-size", 50);
+        config.addDefault("economy.refund-queue.retry-interval", 15);
+        config.addDefault("economy.refund-queue.backoff-base", 30);
+        config.addDefault("economy.refund-queue.backoff-max", 1800);
+        config.addDefault("economy.refund-queue.batch-size", 50);
+        config.addDefault("economy.refund-queue.defer-offline", true);
+        config.addDefault("economy.balance-cache.ttl", 30);
+        config.addDefault("economy.balance-cache.max-size", 1000);
+        config.addDefault("economy.balance-cache.event-invalidation", true);
+        config.addDefault("economy.circuit-breaker.timeout-ms", 2000);
+        config.addDefault("economy.circuit-breaker.window-size", 20);
+        config.addDefault("economy.circuit-breaker.minimum-calls", 5);
+        config.addDefault("economy.circuit-breaker.failure-rate", 50);
+        config.addDefault("economy.circuit-breaker.open-seconds", 30);
+        config.addDefault("economy.circuit-breaker.policy.balance-check", "fail-open");
+        config.addDefault("economy.circuit-breaker.policy.withdraw", "fail-closed");
+        config.addDefault("economy.pricing.enabled", false);
+        config.addDefault("economy.pricing.quote-seconds", 30);
+        config.addDefault("economy.pricing.max-multiplier", 3.0);
+        config.addDefault("economy.pricing.max-cost", 0.0);
+        config.addDefault("economy.pricing.request-rate.enabled", true);
+        config.addDefault("economy.pricing.request-rate.window-seconds", 60);
+        config.addDefault("economy.pricing.request-rate.start", 30);
+        config.addDefault("economy.pricing.request-rate.full", 120);
+        config.addDefault("economy.pricing.request-rate.max", 2.0);
+        config.addDefault("economy.pricing.request-rate.curve", "linear");
+        config.addDefault("economy.pricing.queue-depth.enabled", true);
+        config.addDefault("economy.pricing.queue-depth.start", 10);
+        config.addDefault("economy.pricing.queue-depth.full", 40);
+        config.addDefault("economy.pricing.queue-depth.max", 2.0);
+        config.addDefault("economy.pricing.queue-depth.curve", "linear");
+        config.addDefault("economy.pricing.mspt.enabled", true);
+        config.addDefault("economy.pricing.mspt.start", 55);
+        config.addDefault("economy.pricing.mspt.full", 100);
+        config.addDefault("economy.pricing.mspt.max", 3.0);
+        config.addDefault("economy.pricing.mspt.curve", "quadratic");
         
         // 安全传送设置
         config.addDefault("safety.min-y", 64);
@@ -75,6 +132,23 @@ public class ConfigManager {
         config.addDefault("safety.find-safe-location", true);
         config.addDefault("safety.max-tries", 10);
         
+        // 传送效果设置
+        config.addDefault("effects.particles.budget-per-tick", 2000);
+        config.addDefault("effects.particles.view-distance", 48);
+        config.addDefault("effects.particles.density.full-tps", 19.0);
+        config.addDefault("effects.particles.density.min-tps", 12.0);
+        config.addDefault("effects.particles.density.min-density", 0.2);
+        config.addDefault("effects.countdown-display.mode", "chat");
+        config.addDefault("effects.countdown-display.text", "&b传送倒计时: &f%seconds% 秒");
+        config.addDefault("effects.countdown-display.boss-bar.color", "BLUE");
+        config.addDefault("effects.countdown-display.boss-bar.style", "SOLID");
+        
+        // 维护调度器设置
+        config.addDefault("maintenance.threads", 2);
+        config.addDefault("maintenance.jitter-percent", 10);
+        config.addDefault("maintenance.max-jitter-seconds", 300);
+        config.addDefault("maintenance.shutdown-timeout", 30);
+        
         // 消息设置
         config.addDefault("messages.prefix", "&8[&6RTP&8] &r");
         config.addDefault("messages.teleporting", "&a正在准备随机传送...");
@@ -133,11 +207,28 @@ public class ConfigManager {
         }
         
         setDefaults();
+        compileCostTable();
+        compileEffectProfiles();
         saveConfig();
         
         return true;
     }
     
+    /**
+     * 重新编译费用表（加载配置或修改费用后调用）
+     */
+    public void compileCostTable() {
+        costTable = CostTable.compile(config.getConfigurationSection("economy.cost"));
+    }
+    
+    /**
+     * 重新编译传送效果配置（加载配置时调用）
+     */
+    public void compileEffectProfiles() {
+        effectProfiles = EffectProfiles.compile(config.getConfigurationSection("effects"),
+            getTeleportDelay(), getMessage("prefix"), plugin.getLogger());
+    }
+    
     /**
      * 获取配置对象
      */
@@ -177,6 +268,10 @@ public class ConfigManager {
         return config.getBoolean("economy.refund.on-move");
     }
     
+    public double getMoveTolerance() {
+        return config.getDouble("teleport.move-tolerance", 0.0);
+    }
+    
     public boolean shouldRefundOnDeath() {
         return config.getBoolean("economy.refund.on-death");
     }
@@ -197,19 +292,86 @@ public class ConfigManager {
         return config.getBoolean("economy.debug-mode");
     }
     
+    public int getEconomyThreads() {
+        return config.getInt("economy.async.threads", 2);
+    }
+    
+    public int getEscrowTimeout() {
+        return config.getInt("economy.escrow.timeout", 120);
+    }
+    
+    public int getEscrowSettleInterval() {
+        return config.getInt("economy.escrow.settle-interval", 1);
+    }
+    
+    public int getEscrowBatchSize() {
+        return config.getInt("economy.escrow.batch-size", 50);
+    }
+    
+    public int getBalanceCacheTtl() {
+        return config.getInt("economy.balance-cache.ttl", 30);
+    }
+    
+    public int getBalanceCacheMaxSize() {
+        return config.getInt("economy.balance-cache.max-size", 1000);
+    }
+    
+    public boolean isBalanceCacheEventInvalidation() {
+        return config.getBoolean("economy.balance-cache.event-invalidation", true);
+    }
+    
     public double getTeleportCost(String permission) {
-        String costKey = "economy.cost." + getPermissionSuffix(permission);
-        return config.getDouble(costKey, config.getDouble("economy.cost.default"));
+        return costTable.get(CostTable.Tier.fromKey(permission)).getAmount();
     }
     
+    /**
+     * 获取玩家的传送费用金额（已应用动态定价）
+     */
     public double getTeleportCost(org.bukkit.entity.Player player) {
-        // 获取玩家当前权限 - 检查玩家是否有特定权限
-        if (player.hasPermission("rtp.vipplus")) {
-            return getTeleportCost("vipplus");
-        } else if (player.hasPermission("rtp.vip")) {
-            return getTeleportCost("vip");
+        return getTeleportCharge(player).getAmount();
+    }
+    
+    /**
+     * 获取玩家的传送费用：按等级和所在世界查表，再经动态定价报价，货币保持不变
+     */
+    public TeleportCost getTeleportCharge(org.bukkit.entity.Player player) {
+        TeleportCost baseCost = getBaseTeleportCost(player);
+        PricingEngine pricingEngine = plugin.getPricingEngine();
+        return pricingEngine != null 
+            ? baseCost.withAmount(pricingEngine.quote(player.getUniqueId(), baseCost.getAmount())) 
+            : baseCost;
+    }
+    
+    /**
+     * 获取玩家等级和所在世界对应的基础传送费用
+     */
+    public TeleportCost getBaseTeleportCost(org.bukkit.entity.Player player) {
+        return costTable.resolve(player);
+    }
+    
+    public CostTable getCostTable() {
+        return costTable;
+    }
+    
+    public EffectProfiles getEffectProfiles() {
+        return effectProfiles;
+    }
+    
+    /**
+     * 获取额外货币的提供者：货币名称（小写） -> 注册该货币 Vault 经济服务的插件名
+     */
+    public Map<String, String> getCurrencyProviders() {
+        Map<String, String> providers = new HashMap<>();
+        ConfigurationSection section = config.getConfigurationSection("economy.currencies");
+        if (section != null) {
+            for (String currency : section.getKeys(false)) {
+                String provider = section.getString(currency + ".provider");
+                if (provider != null && !provider.isEmpty()) {
+                    providers.put(currency.toLowerCase(Locale.ROOT), provider);
+                }
+            }
         }
-        return config.getDouble("economy.cost.default");
+        return providers;
     }
     
     private String getPermissionSuffix(String permission) {
@@ -242,6 +404,22 @@ public class ConfigManager {
         return config.getInt("safety.max-tries");
     }
     
+    public int getMaintenanceThreads() {
+        return config.getInt("maintenance.threads", 2);
+    }
+    
+    public int getMaintenanceJitterPercent() {
+        return config.getInt("maintenance.jitter-percent", 10);
+    }
+    
+    public int getMaintenanceMaxJitterSeconds() {
+        return config.getInt("maintenance.max-jitter-seconds", 300);
+    }
+    
+    public int getMaintenanceShutdownTimeout() {
+        return config.getInt("maintenance.shutdown-timeout", 30);
+    }
+    
     public String getMessage(String key) {
         String message = config.getString("messages." + key, "&c消息未找到: " + key);
         return ChatColor.translateAlternateColorCodes('&', message);
@@ -3,6 +3,7 @@ package org.awaioi.randomtp.data;
 import org.awaioi.randomtp.RandomTP;
 import org.awaioi.randomtp.logging.LogManager;
 import org.awaioi.randomtp.logging.LogManager.PlayerActivityLogEntry;
+import org.awaioi.randomtp.scheduler.MaintenanceScheduler;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
@@ -10,8 +11,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
@@ -37,7 +37,8 @@ public class OptimizedPlayerDataManager {
     
     // 缓存和性能优化
     private final ConcurrentHashMap<UUID, Long> lastAccessTime;
-    private final ScheduledExecutorService maintenanceScheduler;
+    private final MaintenanceScheduler maintenanceScheduler;
+    private final List<ScheduledFuture<?>> maintenanceTasks;
     
     // 统计信息
     private final PlayerDataStatistics statistics;
@@ -48,7 +49,8 @@ public class OptimizedPlayerDataManager {
         this.playerDataMap = new ConcurrentHashMap<>();
         this.playerStatsMap = new ConcurrentHashMap<>();
         this.lastAccessTime = new ConcurrentHashMap<>();
-        this.maintenanceScheduler = Executors.newScheduledThreadPool(2);
+        this.maintenanceScheduler = plugin.getMaintenanceScheduler();
+        this.maintenanceTasks = new ArrayList<>();
         this.optimizationConfig = new DataOptimizationConfig();
         this.statistics = new PlayerDataStatistics();
         
@@ -335,22 +337,22 @@ public class OptimizedPlayerDataManager {
      */
     private void startMaintenanceTasks() {
         // 定期保存数据
-        maintenanceScheduler.scheduleAtFixedRate(this::saveActivePlayerData, 
+        maintenanceTasks.add(maintenanceScheduler.scheduleAtFixedRate("playerdata-save", this::saveActivePlayerData, 
             optimizationConfig.getAutoSaveIntervalMinutes(), 
             optimizationConfig.getAutoSaveIntervalMinutes(), 
-            TimeUnit.MINUTES);
+            TimeUnit.MINUTES));
         
         // 定期清理过期数据
-        maintenanceScheduler.scheduleAtFixedRate(this::cleanupExpiredData,
-            1, 1, TimeUnit.HOURS);
+        maintenanceTasks.add(maintenanceScheduler.scheduleAtFixedRate("playerdata-cleanup", this::cleanupExpiredData,
+            1, 1, TimeUnit.HOURS));
         
         // 定期优化文件
-        maintenanceScheduler.scheduleAtFixedRate(this::optimizeDataFiles,
-            1, 6, TimeUnit.HOURS);
+        maintenanceTasks.add(maintenanceScheduler.scheduleAtFixedRate("playerdata-optimize", this::optimizeDataFiles,
+            1, 6, TimeUnit.HOURS));
         
         // 每日深度清理
-        maintenanceScheduler.scheduleAtFixedRate(this::dailyDeepCleanup,
-            1, 24, TimeUnit.HOURS);
+        maintenanceTasks.add(maintenanceScheduler.scheduleAtFixedRate("playerdata-deep-cleanup", this::dailyDeepCleanup,
+            1, 24, TimeUnit.HOURS));
     }
     
     /**
@@ -606,18 +608,14 @@ public class OptimizedPlayerDataManager {
      * 关闭管理器
      */
     public void shutdown() {
+        // 停止后续维护任务（调度器由插件统一关闭）
+        for (ScheduledFuture<?> task : maintenanceTasks) {
+            task.cancel(false);
+        }
+        maintenanceTasks.clear();
+        
         // 保存所有数据
         saveActivePlayerData();
-        
-        // 关闭调度器
-        maintenanceScheduler.shutdown();
-        try {
-            if (!maintenanceScheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                maintenanceScheduler.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            maintenanceScheduler.shutdownNow();
-        }
     }
     
     // 内部类定义
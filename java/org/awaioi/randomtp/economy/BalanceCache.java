@@ -0,0 +1,121 @@
+package org.awaioi.randomtp.economy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 玩家余额缓存
+ * 每个条目带有过期时间，超过容量时按最近最少访问淘汰；
+ * 余额只用于预检查和显示，真正扣款时仍由经济插件校验
+ */
+public class BalanceCache {
+    
+    private final long ttlNanos;
+    private final int maxSize;
+    private final LinkedHashMap<UUID, CachedBalance> entries;
+    
+    // 统计信息
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    
+    public BalanceCache(long ttlSeconds, int maxSize) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, ttlSeconds));
+        this.maxSize = Math.max(1, maxSize);
+        this.entries = new LinkedHashMap<UUID, CachedBalance>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CachedBalance> eldest) {
+                if (size() > BalanceCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * 获取未过期的余额，不存在或已过期时返回 null
+     */
+    public synchronized Double get(UUID playerId) {
+        CachedBalance entry = entries.get(playerId);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (System.nanoTime() - entry.loadedAt > ttlNanos) {
+            entries.remove(playerId);
+            expirations.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.balance;
+    }
+    
+    public synchronized void put(UUID playerId, double balance) {
+        entries.put(playerId, new CachedBalance(balance, System.nanoTime()));
+    }
+    
+    /**
+     * 使单个玩家的余额失效（本插件扣款/退款、经济事件、玩家退出）
+     */
+    public synchronized void invalidate(UUID playerId) {
+        if (entries.remove(playerId) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+    
+    public synchronized void clear() {
+        entries.clear();
+    }
+    
+    /**
+     * 清理所有已过期条目
+     * @return 清理的条目数
+     */
+    public synchronized int purgeExpired() {
+        long now = System.nanoTime();
+        int removed = 0;
+        Iterator<CachedBalance> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().loadedAt > ttlNanos) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        expirations.addAndGet(removed);
+        return removed;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    /**
+     * 格式化统计摘要
+     */
+    public String getSummary() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return String.format("%d/%d 条, 命中率 %.1f%%, 过期 %d, 淘汰 %d, 失效 %d",
+            size(), maxSize, total == 0 ? 0.0 : hitCount * 100.0 / total,
+            expirations.get(), evictions.get(), invalidations.get());
+    }
+    
+    private static class CachedBalance {
+        private final double balance;
+        private final long loadedAt;
+        
+        CachedBalance(double balance, long loadedAt) {
+            this.balance = balance;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
\ No newline at end of file
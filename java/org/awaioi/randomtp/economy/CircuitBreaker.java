@@ -0,0 +1,187 @@
+package org.awaioi.randomtp.economy;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 熔断器
+ * 关闭状态下按最近 N 次调用的失败率判断，超过阈值后断开；
+ * 断开一段时间后进入半开状态，只放行一次探测调用，成功则恢复，失败则重新断开。
+ * 状态变化会通知监听器（用于切换经济适配器）
+ */
+public class CircuitBreaker {
+    
+    private final String name;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openMillis;
+    
+    // 滑动窗口（受 this 锁保护）
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+    
+    private final List<StateListener> listeners = new CopyOnWriteArrayList<>();
+    
+    // 统计信息
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong tripCount = new AtomicLong();
+    
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold, long openMillis) {
+        this.name = name;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = Math.max(1, Math.min(100, failureRateThreshold));
+        this.openMillis = Math.max(0, openMillis);
+    }
+    
+    /**
+     * 申请一次调用许可；返回 false 表示熔断中，调用方应直接使用降级结果
+     */
+    public boolean tryAcquire() {
+        synchronized (this) {
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case HALF_OPEN:
+                    if (probeInFlight) {
+                        rejectedCount.incrementAndGet();
+                        return false;
+                    }
+                    probeInFlight = true;
+                    return true;
+                default:
+                    if (System.currentTimeMillis() - openedAt < openMillis) {
+                        rejectedCount.incrementAndGet();
+                        return false;
+                    }
+                    state = State.HALF_OPEN;
+                    probeInFlight = true;
+                    break;
+            }
+        }
+        fire(State.OPEN, State.HALF_OPEN);
+        return true;
+    }
+    
+    public void onSuccess() {
+        record(false);
+    }
+    
+    public void onFailure() {
+        record(true);
+    }
+    
+    private void record(boolean failed) {
+        State from;
+        State to;
+        synchronized (this) {
+            from = state;
+            if (state == State.HALF_OPEN) {
+                probeInFlight = false;
+                if (failed) {
+                    open();
+                } else {
+                    state = State.CLOSED;
+                    resetWindow();
+                }
+            } else if (state == State.CLOSED) {
+                if (windowCount == window.length) {
+                    if (window[windowIndex]) {
+                        windowFailures--;
+                    }
+                } else {
+                    windowCount++;
+                }
+                window[windowIndex] = failed;
+                windowIndex = (windowIndex + 1) % window.length;
+                if (failed) {
+                    windowFailures++;
+                }
+                
+                if (windowCount >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCount) {
+                    open();
+                }
+            }
+            // OPEN：熔断前发出的调用迟到的结果，忽略
+            to = state;
+        }
+        
+        if (from != to) {
+            fire(from, to);
+        }
+    }
+    
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        tripCount.incrementAndGet();
+        resetWindow();
+    }
+    
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+    
+    private void fire(State from, State to) {
+        for (StateListener listener : listeners) {
+            listener.onStateChange(this, from, to);
+        }
+    }
+    
+    public void addListener(StateListener listener) {
+        listeners.add(listener);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public synchronized State getState() {
+        return state;
+    }
+    
+    public long getOpenMillis() {
+        return openMillis;
+    }
+    
+    /**
+     * 格式化状态摘要
+     */
+    public String getSummary() {
+        State current;
+        int calls;
+        int failures;
+        synchronized (this) {
+            current = state;
+            calls = windowCount;
+            failures = windowFailures;
+        }
+        return String.format("%s, 窗口失败 %d/%d, 熔断 %d 次, 拒绝 %d 次",
+            current, failures, calls, tripCount.get(), rejectedCount.get());
+    }
+    
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED,     // 正常
+        OPEN,       // 熔断中，直接降级
+        HALF_OPEN   // 探测中
+    }
+    
+    /**
+     * 状态变化监听器
+     */
+    public interface StateListener {
+        void onStateChange(CircuitBreaker breaker, State from, State to);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+package org.awaioi.randomtp.economy;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+/**
+ * 传送费用表
+ * 每次加载配置时从 economy.cost 编译一次：按等级的默认费用，以及按世界覆盖的费用，
+ * 每项费用可以指定货币。扣费时只做权限判断和一次世界名查找，不再拼接配置路径
+ */
+public class CostTable {
+    
+    private final TeleportCost[] defaults;
+    private final Map<String, TeleportCost[]> worlds;
+    
+    private CostTable(TeleportCost[] defaults, Map<String, TeleportCost[]> worlds) {
+        this.defaults = defaults;
+        this.worlds = worlds;
+    }
+    
+    /**
+     * 从 economy.cost 配置节编译费用表
+     * 等级值可以是数字（使用 currency 指定的默认货币），也可以是包含 amount 和 currency 的配置节
+     */
+    public static CostTable compile(ConfigurationSection section) {
+        TeleportCost[] defaults = new TeleportCost[Tier.values().length];
+        Map<String, TeleportCost[]> worlds = new HashMap<>();
+        if (section == null) {
+            for (Tier tier : Tier.values()) {
+                defaults[tier.ordinal()] = TeleportCost.FREE;
+            }
+            return new CostTable(defaults, worlds);
+        }
+        
+        String defaultCurrency = normalizeCurrency(section.getString("currency"));
+        for (Tier tier : Tier.values()) {
+            TeleportCost cost = parse(section, tier.getKey(), defaultCurrency);
+            defaults[tier.ordinal()] = cost != null ? cost : TeleportCost.FREE;
+        }
+        // 未配置的等级沿用普通玩家费用
+        for (Tier tier : Tier.values()) {
+            if (!section.contains(tier.getKey())) {
+                defaults[tier.ordinal()] = defaults[Tier.DEFAULT.ordinal()];
+            }
+        }
+        
+        ConfigurationSection worldSection = section.getConfigurationSection("worlds");
+        if (worldSection != null) {
+            for (String world : worldSection.getKeys(false)) {
+                ConfigurationSection costs = worldSection.getConfigurationSection(world);
+                if (costs == null) {
+                    continue;
+                }
+                String worldCurrency = costs.contains("currency") ? normalizeCurrency(costs.getString("currency")) : defaultCurrency;
+                TeleportCost[] tiers = new TeleportCost[Tier.values().length];
+                for (Tier tier : Tier.values()) {
+                    TeleportCost cost = parse(costs, tier.getKey(), worldCurrency);
+                    tiers[tier.ordinal()] = cost != null ? cost : defaults[tier.ordinal()];
+                }
+                worlds.put(world, tiers);
+            }
+        }
+        
+        return new CostTable(defaults, Collections.unmodifiableMap(worlds));
+    }
+    
+    private static TeleportCost parse(ConfigurationSection section, String key, String currency) {
+        if (section.isConfigurationSection(key)) {
+            ConfigurationSection entry = section.getConfigurationSection(key);
+            String entryCurrency = entry.contains("currency") ? normalizeCurrency(entry.getString("currency")) : currency;
+            return new TeleportCost(Math.max(0, entry.getDouble("amount", 0)), entryCurrency);
+        }
+        if (section.contains(key)) {
+            return new TeleportCost(Math.max(0, section.getDouble(key, 0)), currency);
+        }
+        return null;
+    }
+    
+    private static String normalizeCurrency(String currency) {
+        return currency == null || currency.trim().isEmpty() ? null : currency.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * 按玩家等级和所在世界查找费用
+     */
+    public TeleportCost resolve(Player player) {
+        Tier tier = Tier.of(player);
+        TeleportCost[] tiers = worlds.get(player.getWorld().getName());
+        return (tiers != null ? tiers : defaults)[tier.ordinal()];
+    }
+    
+    /**
+     * 获取等级的默认费用（不考虑世界）
+     */
+    public TeleportCost get(Tier tier) {
+        return defaults[tier.ordinal()];
+    }
+    
+    /**
+     * 获取配置了单独费用的世界数量
+     */
+    public int getWorldCount() {
+        return worlds.size();
+    }
+    
+    /**
+     * 费用等级，按权限从高到低匹配
+     */
+    public enum Tier {
+        VIPPLUS("vipplus", "rtp.vipplus"),
+        VIP("vip", "rtp.vip"),
+        DEFAULT("default", null);
+        
+        private final String key;
+        private final String permission;
+        
+        Tier(String key, String permission) {
+            this.key = key;
+            this.permission = permission;
+        }
+        
+        public static Tier of(Player player) {
+            for (Tier tier : values()) {
+                if (tier.permission == null || player.hasPermission(tier.permission)) {
+                    return tier;
+                }
+            }
+            return DEFAULT;
+        }
+        
+        /**
+         * 按配置键或权限名查找等级，未知时返回 DEFAULT
+         */
+        public static Tier fromKey(String key) {
+            if (key != null) {
+                if (key.contains("vipplus")) return VIPPLUS;
+                if (key.contains("vip")) return VIP;
+            }
+            return DEFAULT;
+        }
+        
+        public String getKey() {
+            return key;
+        }
+    }
+    
+    /**
+     * 一项传送费用：金额和货币（null 表示经济插件的默认货币）
+     */
+    public static final class TeleportCost {
+        public static final TeleportCost FREE = new TeleportCost(0, null);
+        
+        private final double amount;
+        private final String currency;
+        
+        public TeleportCost(double amount, String currency) {
+            this.amount = amount;
+            this.currency = currency;
+        }
+        
+        /**
+         * 同一货币的另一个金额（动态定价后）
+         */
+        public TeleportCost withAmount(double newAmount) {
+            return newAmount == amount ? this : new TeleportCost(newAmount, currency);
+        }
+        
+        public double getAmount() { return amount; }
+        public String getCurrency() { return currency; }
+        public boolean isFree() { return amount <= 0; }
+    }
+}
\ No newline at end of file
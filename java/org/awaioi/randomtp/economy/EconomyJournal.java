@@ -0,0 +1,178 @@
+package org.awaioi.randomtp.economy;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 经济操作日志（预写日志）
+ * 每条记录一行，字段以制表符分隔，行首为 CRC32 校验值；
+ * 崩溃时写了一半的尾部记录在读取时因校验失败被丢弃。
+ * sync() 会强制落盘，调用方在真正动用玩家资金前后调用，保证重启后可以重放
+ */
+public class EconomyJournal implements Closeable {
+    
+    private static final char SEPARATOR = '\t';
+    
+    private final File file;
+    private FileChannel channel;
+    private int recordCount;
+    private boolean dirty;
+    
+    public EconomyJournal(File file) throws IOException {
+        this.file = file;
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        this.channel = open(file);
+    }
+    
+    /**
+     * 追加一条记录（写入操作系统缓存，调用 sync() 后才保证落盘）
+     */
+    public synchronized void append(String... fields) throws IOException {
+        if (channel == null) {
+            throw new IOException("经济日志已关闭: " + file.getName());
+        }
+        
+        byte[] line = encode(fields);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        recordCount++;
+        dirty = true;
+    }
+    
+    /**
+     * 将已追加的记录强制写入磁盘
+     */
+    public synchronized void sync() throws IOException {
+        if (channel != null && dirty) {
+            channel.force(false);
+            dirty = false;
+        }
+    }
+    
+    /**
+     * 读取全部有效记录，跳过校验失败的行
+     */
+    public synchronized List<String[]> readAll() throws IOException {
+        List<String[]> records = new ArrayList<>();
+        if (!file.exists()) {
+            return records;
+        }
+        
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] record = decode(line);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+    
+    /**
+     * 用给定记录替换日志内容（压缩），先写临时文件再原子替换
+     */
+    public synchronized void rewrite(List<String[]> records) throws IOException {
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (String[] record : records) {
+                ByteBuffer buffer = ByteBuffer.wrap(encode(record));
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+            out.force(true);
+        }
+        
+        if (channel != null) {
+            channel.close();
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open(file);
+        recordCount = records.size();
+        dirty = false;
+    }
+    
+    /**
+     * 获取自上次打开或压缩以来的记录数
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            sync();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+    
+    private static FileChannel open(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    
+    private static byte[] encode(String[] fields) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                body.append(SEPARATOR);
+            }
+            // 字段内的分隔符和换行会破坏行结构，替换为空格
+            body.append(fields[i] == null ? "" : fields[i].replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
+        }
+        
+        byte[] bodyBytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes, 0, bodyBytes.length);
+        String line = String.format("%08x", crc.getValue()) + SEPARATOR + body + '\n';
+        return line.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static String[] decode(String line) {
+        int split = line.indexOf(SEPARATOR);
+        if (split != 8) {
+            return null;
+        }
+        
+        String body = line.substring(split + 1);
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes, 0, bodyBytes.length);
+        try {
+            if (Long.parseLong(line.substring(0, split), 16) != crc.getValue()) {
+                return null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return body.split(String.valueOf(SEPARATOR), -1);
+    }
+}
\ No newline at end of file
@@ -1,40 +1,118 @@
 package org.awaioi.randomtp.economy;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import org.awaioi.randomtp.RandomTP;
 import org.awaioi.randomtp.config.ConfigManager;
+import org.awaioi.randomtp.economy.CostTable.TeleportCost;
 import org.awaioi.randomtp.economy.adapter.EconomyAdapter;
+import org.awaioi.randomtp.economy.adapter.EconomyAdapter.BatchEntry;
+import org.awaioi.randomtp.economy.adapter.EconomyAdapter.TransactionResult;
 import org.awaioi.randomtp.economy.adapter.EssentialsXEconomyAdapter;
+import org.awaioi.randomtp.economy.adapter.GuardedEconomyAdapter;
 import org.awaioi.randomtp.economy.adapter.VaultEconomyAdapter;
 import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.event.server.ServiceRegisterEvent;
+import org.bukkit.event.server.ServiceUnregisterEvent;
 
 /**
  * 经济系统管理器
- * 自动识别和适配多种经济插件
+ * 自动识别和适配多种经济插件：首次使用时检测，之后只在经济服务或经济插件
+ * 注册/注销时重新检测，检测结果整体替换，不再定期轮询
  */
 public class EconomySystemManager {
     
+    // 余额变动事件（经济插件未安装时忽略），触发时使对应玩家的余额缓存失效
+    private static final String[] BALANCE_EVENT_CLASSES = {
+        "net.ess3.api.events.UserBalanceUpdateEvent"
+    };
+    
+    // 经济服务接口，以及启用/停用时需要重新检测的经济插件
+    private static final String ECONOMY_SERVICE = "net.milkbowl.vault.economy.Economy";
+    private static final String[] PROVIDER_PLUGINS = { "Vault", "Essentials", "EssentialsX" };
+    
     private final RandomTP plugin;
-    private EconomyAdapter activeAdapter;
-    private final Map<String, EconomyAdapter> availableAdapters;
-    private final Map<UUID, Double> playerMoneyCache;
+    private volatile EconomyAdapter activeAdapter;
+    private volatile Map<String, EconomyAdapter> availableAdapters;
+    private final BalanceCache balanceCache;
+    private final Listener balanceEventListener = new Listener() { };
+    private final Set<String> hookedBalanceEvents = ConcurrentHashMap.newKeySet();
+    private final Listener providerListener = new ProviderListener();
+    private volatile boolean discoveryPending;
     private boolean enabled;
-    private boolean initialized;
-    private BukkitRunnable detectionTask;
+    private volatile boolean initialized;
+    private ScheduledFuture<?> cachePurgeTask;
+    
+    // 经济操作专用线程池（避免数据库往返阻塞主线程）
+    private final ExecutorService economyExecutor;
+    private final int economyThreads;
+    
+    // 适配器调用线程池：每次后端调用在此执行并限制等待时间，卡住的线程数有上限
+    private final ThreadPoolExecutor callExecutor;
+    private final GuardedEconomyAdapter.GuardConfig guardConfig;
+    
+    // 各适配器的调用延迟
+    private final Map<String, LatencyHistogram> latencyHistograms;
     
     public EconomySystemManager(RandomTP plugin) {
         this.plugin = plugin;
-        this.availableAdapters = new ConcurrentHashMap<>();
-        this.playerMoneyCache = new ConcurrentHashMap<>();
+        this.availableAdapters = Collections.emptyMap();
+        this.balanceCache = new BalanceCache(plugin.getConfigManager().getBalanceCacheTtl(), 
+            plugin.getConfigManager().getBalanceCacheMaxSize());
+        this.latencyHistograms = new ConcurrentHashMap<>();
         this.enabled = false;
         this.initialized = false;
         this.activeAdapter = null;
+        
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.economyThreads = Math.max(1, plugin.getConfigManager().getEconomyThreads());
+        this.economyExecutor = Executors.newFixedThreadPool(economyThreads, runnable -> {
+            Thread thread = new Thread(runnable, "RandomTP-Economy-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        AtomicInteger callThreadIndex = new AtomicInteger();
+        this.callExecutor = new ThreadPoolExecutor(0, economyThreads * 4, 30, TimeUnit.SECONDS, 
+            new SynchronousQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "RandomTP-EconomyCall-" + callThreadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        
+        this.guardConfig = new GuardedEconomyAdapter.GuardConfig();
+        ConfigurationSection breakerSection = plugin.getConfigManager().getConfig().getConfigurationSection("economy.circuit-breaker");
+        if (breakerSection != null) {
+            guardConfig.loadFromConfig(breakerSection);
+        }
     }
     
     /**
@@ -55,42 +133,126 @@ public class EconomySystemManager {
             return;
         }
         
-        // 注册适配器
-        registerAdapters();
+        // 经济插件可能晚于本插件加载，检测推迟到首次使用；服务或插件变化时标记重新检测
+        enabled = true;
+        discoveryPending = true;
+        Bukkit.getPluginManager().registerEvents(providerListener, plugin);
         
-        // 检测经济插件
-        detectEconomyPlugins();
+        // 余额缓存：定期清理过期条目
+        cachePurgeTask = plugin.getMaintenanceScheduler().scheduleAtFixedRate("economy-cache-purge", 
+            balanceCache::purgeExpired, 60, 60, TimeUnit.SECONDS);
+        
+        initialized = true;
+        plugin.getLogger().info("经济系统管理器已初始化，将在首次使用时检测经济插件");
+    }
+    
+    /**
+     * 获取当前适配器，需要时先重新检测经济插件
+     */
+    private EconomyAdapter currentAdapter() {
+        if (discoveryPending) {
+            discover();
+        }
+        return activeAdapter;
+    }
+    
+    /**
+     * 检测经济插件并整体替换适配器
+     * 适配器在构造时绑定经济服务，因此每次检测都创建新实例，再一次性替换引用
+     */
+    private synchronized void discover() {
+        if (!discoveryPending || !enabled) {
+            return;
+        }
+        discoveryPending = false;
         
-        // 选择最佳适配器
+        availableAdapters = createAdapters();
+        detectEconomyPlugins();
         selectBestAdapter();
         
-        // 启动定期检测任务
-        startDetectionTask();
+        if (plugin.getConfigManager().isBalanceCacheEventInvalidation()) {
+            // 检测可能发生在经济线程，事件注册放回主线程
+            if (Bukkit.isPrimaryThread()) {
+                registerBalanceEventHooks();
+            } else {
+                Bukkit.getScheduler().runTask(plugin, this::registerBalanceEventHooks);
+            }
+        }
         
-        initialized = true;
+        // 换了经济插件后旧余额不再可信
+        balanceCache.clear();
         
-        if (activeAdapter != null) {
-            enabled = true;
-            plugin.getLogger().info("经济系统初始化成功 - 使用: " + activeAdapter.getName());
-        } else {
-            enabled = false;
-            plugin.getLogger().warning("未检测到可用的经济插件，经济功能将被禁用");
+        if (activeAdapter == null) {
+            plugin.getLogger().warning("未检测到可用的经济插件，等待经济插件加载");
         }
     }
     
     /**
-     * 注册所有适配器
+     * 标记需要重新检测（由服务/插件事件触发，下次使用时执行）
      */
-    private void registerAdapters() {
-        // 注册Vault适配器
-        VaultEconomyAdapter vaultAdapter = new VaultEconomyAdapter();
-        availableAdapters.put("vault", vaultAdapter);
+    private void requestDiscovery(String cause) {
+        if (!enabled || discoveryPending) {
+            return;
+        }
+        discoveryPending = true;
+        plugin.getLogger().info("经济服务发生变化（" + cause + "），将重新检测经济插件");
+    }
+    
+    /**
+     * 创建所有适配器
+     */
+    private Map<String, EconomyAdapter> createAdapters() {
+        Map<String, EconomyAdapter> adapters = new HashMap<>();
+        
+        // 注册Vault适配器（额外货币路由到配置的 Vault 经济服务）
+        adapters.put("vault", guard(new VaultEconomyAdapter(plugin.getConfigManager().getCurrencyProviders())));
         
         // 注册EssentialsX适配器
-        EssentialsXEconomyAdapter essentialsAdapter = new EssentialsXEconomyAdapter();
-        availableAdapters.put("essentialsx", essentialsAdapter);
+        adapters.put("essentialsx", guard(new EssentialsXEconomyAdapter()));
         
-        plugin.getLogger().info("已注册 " + availableAdapters.size() + " 个经济系统适配器");
+        return Collections.unmodifiableMap(adapters);
+    }
+    
+    /**
+     * 为适配器加上超时和熔断保护，熔断器状态变化驱动适配器切换
+     */
+    private GuardedEconomyAdapter guard(EconomyAdapter adapter) {
+        GuardedEconomyAdapter guarded = new GuardedEconomyAdapter(adapter, callExecutor, guardConfig);
+        guarded.getBreaker().addListener((breaker, from, to) -> onBreakerStateChange(guarded, from, to));
+        return guarded;
+    }
+    
+    private void onBreakerStateChange(GuardedEconomyAdapter adapter, CircuitBreaker.State from, CircuitBreaker.State to) {
+        if (to == CircuitBreaker.State.OPEN) {
+            plugin.getLogger().warning("经济系统 " + adapter.getName() + " 连续调用失败，已熔断 " 
+                + guardConfig.getOpenSeconds() + " 秒: " + adapter.getLastError());
+            selectBestAdapter();
+            scheduleProbe(adapter);
+        } else if (to == CircuitBreaker.State.CLOSED && from == CircuitBreaker.State.HALF_OPEN) {
+            plugin.getLogger().info("经济系统 " + adapter.getName() + " 已恢复");
+            adapter.clearError();
+            selectBestAdapter();
+        }
+    }
+    
+    /**
+     * 熔断时间结束后主动探测一次，没有玩家请求时也能恢复
+     */
+    private void scheduleProbe(GuardedEconomyAdapter adapter) {
+        if (!initialized) {
+            return;
+        }
+        plugin.getMaintenanceScheduler().schedule("economy-breaker-probe", () -> {
+            if (adapter.getBreaker().getState() != CircuitBreaker.State.OPEN) {
+                return;
+            }
+            Player samplePlayer = null;
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                samplePlayer = player;
+                break;
+            }
+            adapter.probe(samplePlayer);
+        }, adapter.getBreaker().getOpenMillis() + 100, TimeUnit.MILLISECONDS);
     }
     
     /**
@@ -112,58 +274,77 @@ public class EconomySystemManager {
     /**
      * 选择最佳适配器
      */
-    private void selectBestAdapter() {
+    private synchronized void selectBestAdapter() {
         EconomyAdapter bestAdapter = null;
         int highestPriority = -1;
         
         for (EconomyAdapter adapter : availableAdapters.values()) {
+            if (isBreakerOpen(adapter)) {
+                continue;
+            }
             if (adapter.isAvailable() && adapter.getPriority() > highestPriority) {
                 bestAdapter = adapter;
                 highestPriority = adapter.getPriority();
             }
         }
         
-        if (bestAdapter != null) {
+        if (bestAdapter == null) {
+            // 全部熔断时保留当前适配器，由降级策略决定是否放行；经济插件已卸载时清空
+            EconomyAdapter current = activeAdapter;
+            if (current != null && (!availableAdapters.containsValue(current) || !current.isAvailable())) {
+                activeAdapter = null;
+                plugin.getLogger().warning("所有经济系统适配器都不可用");
+            }
+            return;
+        }
+        
+        if (bestAdapter != activeAdapter) {
             activeAdapter = bestAdapter;
             plugin.getLogger().info("选择经济系统适配器: " + bestAdapter.getName());
         }
     }
     
+    private boolean isBreakerOpen(EconomyAdapter adapter) {
+        return adapter instanceof GuardedEconomyAdapter 
+            && ((GuardedEconomyAdapter) adapter).getBreaker().getState() == CircuitBreaker.State.OPEN;
+    }
+    
     /**
-     * 启动定期检测任务
+     * 注册余额变动事件监听（通过反射，不依赖经济插件的 API）
      */
-    private void startDetectionTask() {
-        if (detectionTask != null) {
-            detectionTask.cancel();
-        }
-        
-        detectionTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                checkAdapterStatus();
+    private void registerBalanceEventHooks() {
+        for (String className : BALANCE_EVENT_CLASSES) {
+            if (hookedBalanceEvents.contains(className)) {
+                continue;
             }
-        };
-        
-        // 每30秒检测一次适配器状态
-        detectionTask.runTaskTimerAsynchronously(plugin, 600L, 600L);
+            try {
+                Class<?> eventClass = Class.forName(className);
+                if (!Event.class.isAssignableFrom(eventClass)) {
+                    continue;
+                }
+                Method getPlayer = eventClass.getMethod("getPlayer");
+                Bukkit.getPluginManager().registerEvent(eventClass.asSubclass(Event.class), balanceEventListener, 
+                    EventPriority.MONITOR, (listener, event) -> {
+                        if (eventClass.isInstance(event)) {
+                            invalidateFromEvent(getPlayer, event);
+                        }
+                    }, plugin);
+                hookedBalanceEvents.add(className);
+                plugin.getLogger().info("已监听余额变动事件: " + eventClass.getSimpleName());
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                // 对应的经济插件未安装
+            }
+        }
     }
     
-    /**
-     * 检查适配器状态
-     */
-    private void checkAdapterStatus() {
-        if (activeAdapter != null && !activeAdapter.isAvailable()) {
-            plugin.getLogger().warning("当前经济系统适配器 " + activeAdapter.getName() + " 不可用，尝试重新检测...");
-            
-            // 重新检测所有适配器
-            detectEconomyPlugins();
-            selectBestAdapter();
-            
-            if (activeAdapter != null) {
-                plugin.getLogger().info("切换到新的经济系统适配器: " + activeAdapter.getName());
-            } else {
-                plugin.getLogger().warning("所有经济系统适配器都不可用");
+    private void invalidateFromEvent(Method getPlayer, Event event) {
+        try {
+            Object player = getPlayer.invoke(event);
+            if (player instanceof OfflinePlayer) {
+                balanceCache.invalidate(((OfflinePlayer) player).getUniqueId());
             }
+        } catch (ReflectiveOperationException e) {
+            // 事件结构不符合预期时放弃，缓存仍会按 TTL 过期
         }
     }
     
@@ -171,16 +352,32 @@ public class EconomySystemManager {
      * 关闭经济系统管理器
      */
     public void shutdown() {
-        if (detectionTask != null) {
-            detectionTask.cancel();
-            detectionTask = null;
+        initialized = false;
+        HandlerList.unregisterAll(providerListener);
+        
+        if (cachePurgeTask != null) {
+            cachePurgeTask.cancel(false);
+            cachePurgeTask = null;
         }
         
         if (activeAdapter != null) {
             activeAdapter.clearError();
         }
         
-        playerMoneyCache.clear();
+        // 等待进行中的扣款/退款完成，避免交易只完成一半
+        economyExecutor.shutdown();
+        try {
+            if (!economyExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("仍有经济操作未完成，强制停止");
+                economyExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            economyExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        callExecutor.shutdownNow();
+        
+        balanceCache.clear();
         
         plugin.getLogger().info("经济系统管理器已关闭");
     }
@@ -189,43 +386,240 @@ public class EconomySystemManager {
      * 获取玩家传送费用
      */
     public double getTeleportCost(Player player) {
-        if (!enabled || activeAdapter == null) {
-            return 0.0;
+        return getTeleportCharge(player).getAmount();
+    }
+    
+    /**
+     * 获取玩家传送费用（金额和货币）；player 为 null（控制台）时返回普通玩家的基础费用
+     */
+    public TeleportCost getTeleportCharge(Player player) {
+        if (!enabled || currentAdapter() == null) {
+            return TeleportCost.FREE;
+        }
+        
+        if (player == null) {
+            return plugin.getConfigManager().getCostTable().get(CostTable.Tier.DEFAULT);
         }
         
         // 检查免费权限
         if (player.hasPermission("rtp.free")) {
-            return 0.0;
+            return TeleportCost.FREE;
         }
         
-        String permission = getPlayerPermission(player);
-        return plugin.getConfigManager().getTeleportCost(permission);
+        // 与实际扣费使用同一份报价
+        return plugin.getConfigManager().getTeleportCharge(player);
     }
     
     /**
      * 检查玩家是否有足够的钱
+     * 只作预检查：优先使用缓存余额，真正扣款时由经济插件再次校验
      */
     public boolean hasEnoughMoney(Player player, double amount) {
-        if (!enabled || activeAdapter == null) {
+        if (!enabled || currentAdapter() == null) {
             return true;
         }
         
-        return activeAdapter.hasEnoughMoney(player, amount);
+        Double cached = balanceCache.get(player.getUniqueId());
+        if (cached != null) {
+            return cached >= amount;
+        }
+        
+        // 未缓存时交给适配器判断，后端故障时按 balance-check 策略降级
+        EconomyAdapter adapter = activeAdapter;
+        return timed(adapter, () -> adapter.hasEnoughMoney(player, amount));
+    }
+    
+    /**
+     * 获取缓存中的余额，不访问经济插件；未缓存或已过期时返回 null
+     */
+    public Double getCachedBalance(UUID playerId) {
+        if (!enabled || currentAdapter() == null) {
+            return null;
+        }
+        return balanceCache.get(playerId);
+    }
+    
+    /**
+     * 异步检查余额并扣款（一次后端往返），在经济线程池中执行
+     * 返回的 Future 在经济线程中完成，需要操作 Bukkit API 时应切回主线程
+     */
+    public CompletableFuture<TransactionResult> withdrawAsync(Player player, double amount) {
+        if (!enabled || currentAdapter() == null) {
+            return CompletableFuture.completedFuture(TransactionResult.SUCCESS);
+        }
+        
+        return CompletableFuture.supplyAsync(() -> tryWithdraw(player, amount), economyExecutor);
+    }
+    
+    /**
+     * 检查余额并扣款（一次后端往返），在调用线程中执行
+     */
+    public TransactionResult tryWithdraw(Player player, double amount) {
+        return tryWithdraw(player, amount, null);
+    }
+    
+    /**
+     * 从指定货币账户检查余额并扣款；currency 为 null 表示默认货币
+     */
+    public TransactionResult tryWithdraw(Player player, double amount, String currency) {
+        if (!enabled || currentAdapter() == null) {
+            return TransactionResult.SUCCESS;
+        }
+        
+        EconomyAdapter adapter = adapterFor(currency);
+        if (adapter == null) {
+            plugin.getLogger().warning("没有经济插件提供货币 " + currency + "，无法扣款");
+            return TransactionResult.FAILED;
+        }
+        TransactionResult result = timed(adapter, () -> adapter.tryWithdraw(player, amount, currency));
+        if (result == TransactionResult.SUCCESS) {
+            balanceCache.invalidate(player.getUniqueId());
+        }
+        return result;
+    }
+    
+    /**
+     * 查找提供指定货币的适配器：优先当前适配器，其次其他可用适配器；没有时返回 null
+     */
+    private EconomyAdapter adapterFor(String currency) {
+        EconomyAdapter adapter = currentAdapter();
+        if (currency == null || adapter == null || adapter.hasCurrency(currency)) {
+            return adapter;
+        }
+        for (EconomyAdapter candidate : availableAdapters.values()) {
+            if (candidate.isAvailable() && !isBreakerOpen(candidate) && candidate.hasCurrency(currency)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 是否有经济插件提供指定货币
+     */
+    public boolean hasCurrency(String currency) {
+        return adapterFor(currency) != null;
+    }
+    
+    /**
+     * 批量扣款，结果与 entries 顺序一一对应
+     */
+    public CompletableFuture<List<TransactionResult>> withdrawBatchAsync(List<BatchEntry> entries) {
+        return runBatch(entries, true);
+    }
+    
+    /**
+     * 批量存款（退款），结果与 entries 顺序一一对应
+     */
+    public CompletableFuture<List<TransactionResult>> depositBatchAsync(List<BatchEntry> entries) {
+        return runBatch(entries, false);
+    }
+    
+    /**
+     * 执行批量操作：后端支持 BULK_OPERATIONS 时整批一次调用；
+     * 否则把逐条调用分成若干段，分发到经济线程池的各个线程上并发执行
+     */
+    private CompletableFuture<List<TransactionResult>> runBatch(List<BatchEntry> entries, boolean withdraw) {
+        if (entries.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        if (!enabled || currentAdapter() == null) {
+            // 与单笔操作一致：无经济系统时扣款视为成功、存款视为失败
+            TransactionResult result = withdraw ? TransactionResult.SUCCESS : TransactionResult.FAILED;
+            return CompletableFuture.completedFuture(Collections.nCopies(entries.size(), result));
+        }
+        
+        EconomyAdapter adapter = activeAdapter;
+        if (adapter.supportsFeature(EconomyAdapter.Feature.BULK_OPERATIONS) && supportsAllCurrencies(adapter, entries)) {
+            return submit(() -> {
+                List<TransactionResult> results = timed(adapter, () -> 
+                    withdraw ? adapter.withdrawBatch(entries) : adapter.depositBatch(entries));
+                invalidateSucceeded(entries, results);
+                return results;
+            });
+        }
+        
+        int lanes = Math.min(economyThreads, entries.size());
+        int laneSize = (entries.size() + lanes - 1) / lanes;
+        List<CompletableFuture<List<TransactionResult>>> parts = new ArrayList<>(lanes);
+        for (int start = 0; start < entries.size(); start += laneSize) {
+            List<BatchEntry> lane = entries.subList(start, Math.min(entries.size(), start + laneSize));
+            parts.add(submit(() -> {
+                List<TransactionResult> results = new ArrayList<>(lane.size());
+                for (BatchEntry entry : lane) {
+                    // 每条按货币路由到对应的适配器
+                    EconomyAdapter target = adapterFor(entry.getCurrency());
+                    if (target == null) {
+                        results.add(TransactionResult.FAILED);
+                        continue;
+                    }
+                    results.add(timed(target, () -> withdraw 
+                        ? target.tryWithdraw(entry.getPlayer(), entry.getAmount(), entry.getCurrency()) 
+                        : target.tryDeposit(entry.getPlayer(), entry.getAmount(), entry.getCurrency())));
+                }
+                invalidateSucceeded(lane, results);
+                return results;
+            }));
+        }
+        
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<TransactionResult> results = new ArrayList<>(entries.size());
+            for (CompletableFuture<List<TransactionResult>> part : parts) {
+                results.addAll(part.join());
+            }
+            return results;
+        });
+    }
+    
+    private boolean supportsAllCurrencies(EconomyAdapter adapter, List<BatchEntry> entries) {
+        for (BatchEntry entry : entries) {
+            if (!adapter.hasCurrency(entry.getCurrency())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void invalidateSucceeded(List<BatchEntry> entries, List<TransactionResult> results) {
+        for (int i = 0; i < entries.size() && i < results.size(); i++) {
+            if (results.get(i) == TransactionResult.SUCCESS) {
+                balanceCache.invalidate(entries.get(i).getPlayer().getUniqueId());
+            }
+        }
+    }
+    
+    /**
+     * 在经济线程池中执行任务
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, economyExecutor);
+    }
+    
+    /**
+     * 异步给玩家添加金钱（退款），在经济线程池中执行
+     */
+    public CompletableFuture<Boolean> depositAsync(Player player, double amount) {
+        if (!enabled || currentAdapter() == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        return CompletableFuture.supplyAsync(() -> depositMoney(player, amount), economyExecutor);
     }
     
     /**
      * 扣除玩家金钱
      */
     public boolean withdrawMoney(Player player, double amount) {
-        if (!enabled || activeAdapter == null) {
+        if (!enabled || currentAdapter() == null) {
             return true;
         }
         
-        boolean success = activeAdapter.withdrawMoney(player, amount);
+        EconomyAdapter adapter = activeAdapter;
+        boolean success = timed(adapter, () -> adapter.withdrawMoney(player, amount));
         
         if (success) {
             // 清除缓存
-            playerMoneyCache.remove(player.getUniqueId());
+            balanceCache.invalidate(player.getUniqueId());
         }
         
         return success;
@@ -235,15 +629,44 @@ public class EconomySystemManager {
      * 给玩家添加金钱（退款）
      */
     public boolean depositMoney(Player player, double amount) {
-        if (!enabled || activeAdapter == null) {
+        if (!enabled || currentAdapter() == null) {
             return false;
         }
         
-        boolean success = activeAdapter.depositMoney(player, amount);
+        EconomyAdapter adapter = activeAdapter;
+        boolean success = timed(adapter, () -> adapter.depositMoney(player, amount));
         
         if (success) {
             // 清除缓存
-            playerMoneyCache.remove(player.getUniqueId());
+            balanceCache.invalidate(player.getUniqueId());
+        }
+        
+        return success;
+    }
+    
+    /**
+     * 给离线玩家添加金钱（结算退款、崩溃恢复）
+     */
+    public boolean depositMoney(OfflinePlayer player, double amount) {
+        return depositMoney(player, amount, null);
+    }
+    
+    /**
+     * 向指定货币账户存款；currency 为 null 表示默认货币
+     */
+    public boolean depositMoney(OfflinePlayer player, double amount, String currency) {
+        if (!enabled || currentAdapter() == null) {
+            return false;
+        }
+        
+        EconomyAdapter adapter = adapterFor(currency);
+        if (adapter == null) {
+            return false;
+        }
+        boolean success = timed(adapter, () -> adapter.depositMoney(player, amount, currency));
+        
+        if (success) {
+            balanceCache.invalidate(player.getUniqueId());
         }
         
         return success;
@@ -253,95 +676,163 @@ public class EconomySystemManager {
      * 获取玩家当前金钱
      */
     public double getPlayerMoney(Player player) {
-        if (!enabled || activeAdapter == null) {
+        if (!enabled || currentAdapter() == null) {
             return 0.0;
         }
         
         UUID playerId = player.getUniqueId();
         
         // 优先从缓存获取
-        Double cachedMoney = playerMoneyCache.get(playerId);
+        Double cachedMoney = balanceCache.get(playerId);
         if (cachedMoney != null) {
             return cachedMoney;
         }
         
         // 从适配器获取
-        double money = activeAdapter.getPlayerMoney(player);
+        EconomyAdapter adapter = activeAdapter;
+        double money = timed(adapter, () -> adapter.getPlayerMoney(player));
+        if (Double.isNaN(money)) {
+            // 后端不可用，不缓存
+            return 0.0;
+        }
         
         // 缓存结果
-        playerMoneyCache.put(playerId, money);
+        balanceCache.put(playerId, money);
         
         return money;
     }
     
+    /**
+     * 异步获取玩家金钱（缓存未命中时在经济线程中查询）
+     */
+    public CompletableFuture<Double> getPlayerMoneyAsync(Player player) {
+        Double cached = getCachedBalance(player.getUniqueId());
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return submit(() -> getPlayerMoney(player));
+    }
+    
+    /**
+     * 执行一次适配器调用并记录延迟；抛出异常、返回 FAILED/SKIPPED/UNKNOWN 或 NaN 计为失败
+     */
+    private <T> T timed(EconomyAdapter adapter, Supplier<T> call) {
+        LatencyHistogram histogram = latencyHistograms.computeIfAbsent(adapter.getName(), name -> new LatencyHistogram());
+        long start = System.nanoTime();
+        T result = null;
+        try {
+            result = call.get();
+            return result;
+        } finally {
+            boolean failed = result == null || result == TransactionResult.FAILED 
+                || result == TransactionResult.SKIPPED || result == TransactionResult.UNKNOWN 
+                || (result instanceof Double && ((Double) result).isNaN());
+            histogram.record(System.nanoTime() - start, failed);
+        }
+    }
+    
+    /**
+     * 获取各适配器的调用延迟直方图（按适配器名称排序）
+     */
+    public Map<String, LatencyHistogram> getLatencyHistograms() {
+        return new TreeMap<>(latencyHistograms);
+    }
+    
+    /**
+     * 获取各适配器的熔断器状态摘要（按适配器名称排序）
+     */
+    public Map<String, String> getBreakerSummaries() {
+        Map<String, String> summaries = new TreeMap<>();
+        for (EconomyAdapter adapter : availableAdapters.values()) {
+            if (adapter instanceof GuardedEconomyAdapter) {
+                summaries.put(adapter.getName(), ((GuardedEconomyAdapter) adapter).getBreaker().getSummary());
+            }
+        }
+        return summaries;
+    }
+    
     /**
      * 格式化金额显示
      */
     public String formatMoney(double amount) {
-        if (!enabled || activeAdapter == null) {
+        EconomyAdapter adapter = enabled ? currentAdapter() : null;
+        if (adapter == null) {
             return String.valueOf(amount);
         }
         
-        return activeAdapter.formatMoney(amount);
+        return adapter.formatMoney(amount);
     }
     
     /**
-     * 获取货币名称（复数）
+     * 按指定货币格式化金额；currency 为 null 表示默认货币
      */
-    public String getCurrencyName() {
-        if (!enabled || activeAdapter == null) {
-            return "硬币";
+    public String formatMoney(double amount, String currency) {
+        if (currency == null) {
+            return formatMoney(amount);
+        }
+        EconomyAdapter adapter = enabled ? adapterFor(currency) : null;
+        if (adapter == null) {
+            return amount + " " + currency;
         }
         
-        return activeAdapter.getCurrencyName();
+        return adapter.formatMoney(amount, currency);
     }
     
     /**
-     * 获取货币名称（单数）
+     * 格式化一项传送费用
      */
-    public String getCurrencyNameSingular() {
-        if (!enabled || activeAdapter == null) {
+    public String formatCost(TeleportCost cost) {
+        return formatMoney(cost.getAmount(), cost.getCurrency());
+    }
+    
+    /**
+     * 获取货币名称（复数）
+     */
+    public String getCurrencyName() {
+        EconomyAdapter adapter = enabled ? currentAdapter() : null;
+        if (adapter == null) {
             return "硬币";
         }
         
-        return activeAdapter.getCurrencyNameSingular();
+        return adapter.getCurrencyName();
     }
     
     /**
-     * 获取玩家权限等级
+     * 获取货币名称（单数）
      */
-    private String getPlayerPermission(Player player) {
-        if (player.hasPermission("rtp.vipplus")) {
-            return "rtp.vipplus";
-        } else if (player.hasPermission("rtp.vip")) {
-            return "rtp.vip";
-        } else {
-            return "rtp.use";
+    public String getCurrencyNameSingular() {
+        EconomyAdapter adapter = enabled ? currentAdapter() : null;
+        if (adapter == null) {
+            return "硬币";
         }
+        
+        return adapter.getCurrencyNameSingular();
     }
     
     /**
      * 检查经济系统是否启用
      */
     public boolean isEnabled() {
-        return enabled && activeAdapter != null && activeAdapter.isAvailable();
+        EconomyAdapter adapter = enabled ? currentAdapter() : null;
+        return adapter != null && adapter.isAvailable();
     }
     
     /**
      * 获取当前适配器信息
      */
     public EconomyAdapter getActiveAdapter() {
-        return activeAdapter;
+        return enabled ? currentAdapter() : null;
     }
     
     /**
      * 获取当前适配器名称
      */
     public String getCurrentAdapterName() {
-        if (activeAdapter == null) {
+        EconomyAdapter adapter = getActiveAdapter();
+        if (adapter == null) {
             return "无";
         }
-        return activeAdapter.getName() + " v" + activeAdapter.getVersion();
+        return adapter.getName() + " v" + adapter.getVersion();
     }
     
     /**
@@ -356,13 +847,14 @@ public class EconomySystemManager {
      * 检查是否支持特定功能
      */
     public boolean hasFeature(String featureName) {
-        if (activeAdapter == null) {
+        EconomyAdapter adapter = getActiveAdapter();
+        if (adapter == null) {
             return false;
         }
         
         try {
             EconomyAdapter.Feature feature = EconomyAdapter.Feature.valueOf(featureName.toUpperCase());
-            return activeAdapter.supportsFeature(feature);
+            return adapter.supportsFeature(feature);
         } catch (IllegalArgumentException e) {
             return false;
         }
@@ -379,6 +871,7 @@ public class EconomySystemManager {
      * 手动切换适配器
      */
     public boolean switchAdapter(String adapterName) {
+        currentAdapter();
         EconomyAdapter adapter = availableAdapters.get(adapterName.toLowerCase());
         
         if (adapter != null && adapter.isAvailable()) {
@@ -386,7 +879,7 @@ public class EconomySystemManager {
             plugin.getLogger().info("手动切换到适配器: " + adapter.getName());
             
             // 清除缓存
-            playerMoneyCache.clear();
+            balanceCache.clear();
             
             return true;
         }
@@ -401,7 +894,8 @@ public class EconomySystemManager {
         StringBuilder info = new StringBuilder();
         info.append("经济系统状态:\n");
         info.append("  启用状态: ").append(enabled ? "已启用" : "已禁用").append("\n");
-        info.append("  当前适配器: ").append(activeAdapter != null ? activeAdapter.getName() : "无").append("\n");
+        EconomyAdapter current = getActiveAdapter();
+        info.append("  当前适配器: ").append(current != null ? current.getName() : "无").append("\n");
         info.append("  可用适配器数量: ").append(availableAdapters.size()).append("\n");
         
         if (!availableAdapters.isEmpty()) {
@@ -423,13 +917,68 @@ public class EconomySystemManager {
      * 清除玩家金钱缓存
      */
     public void clearPlayerCache(UUID playerId) {
-        playerMoneyCache.remove(playerId);
+        balanceCache.invalidate(playerId);
+    }
+    
+    /**
+     * 获取余额缓存统计摘要
+     */
+    public String getBalanceCacheSummary() {
+        return balanceCache.getSummary();
     }
     
     /**
      * 清除所有缓存
      */
     public void clearAllCache() {
-        playerMoneyCache.clear();
+        balanceCache.clear();
+    }
+    
+    /**
+     * 监听经济服务和经济插件的变化，只做标记，实际检测在下次使用时进行
+     */
+    private class ProviderListener implements Listener {
+        
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onServiceRegister(ServiceRegisterEvent event) {
+            if (isEconomyService(event.getProvider().getService())) {
+                requestDiscovery("注册经济服务 " + event.getProvider().getPlugin().getName());
+            }
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onServiceUnregister(ServiceUnregisterEvent event) {
+            if (isEconomyService(event.getProvider().getService())) {
+                requestDiscovery("注销经济服务 " + event.getProvider().getPlugin().getName());
+            }
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onPluginEnable(PluginEnableEvent event) {
+            if (isProviderPlugin(event.getPlugin().getName())) {
+                requestDiscovery("启用 " + event.getPlugin().getName());
+            }
+        }
+        
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onPluginDisable(PluginDisableEvent event) {
+            if (isProviderPlugin(event.getPlugin().getName())) {
+                requestDiscovery("停用 " + event.getPlugin().getName());
+            }
+        }
+        
+        // 按名称比较，Vault 未安装时不加载 Economy 类
+        private boolean isEconomyService(Class<?> service) {
+            return service != null && ECONOMY_SERVICE.equals(service.getName());
+        }
+        
+        private boolean isProviderPlugin(String name) {
+            for (String providerPlugin : PROVIDER_PLUGINS) {
+                if (providerPlugin.equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,654 @@
+package org.awaioi.randomtp.economy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.awaioi.randomtp.RandomTP;
+import org.awaioi.randomtp.economy.adapter.EconomyAdapter.BatchEntry;
+import org.awaioi.randomtp.economy.adapter.EconomyAdapter.TransactionResult;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+
+/**
+ * 传送费用预留（托管）管理器
+ * 发起传送时先把费用从玩家账户转入托管（预留），传送成功后才确认扣费；
+ * 搜索失败、取消、退出或超时时自动释放并退还。
+ * 每一步都先写入本地经济日志，服务器崩溃后重启时未确认的预留会被重放释放。
+ * 多次退还失败或玩家已离线（defer-offline）的退款转交 RefundQueue 延迟退还。
+ * 扣款或退还超时、结果未知的预留不会被视为失败而重试，保留在日志中等待人工核对。
+ * 确认和释放由维护线程批量异步结算，不占用主线程
+ */
+public class EscrowManager {
+    
+    // 日志记录类型
+    private static final String RECORD_RESERVE = "RESERVE";
+    private static final String RECORD_HELD = "HELD";
+    private static final String RECORD_ABORT = "ABORT";
+    private static final String RECORD_COMMIT = "COMMIT";
+    private static final String RECORD_RELEASE = "RELEASE";
+    private static final String RECORD_RELEASED = "RELEASED";
+    private static final String RECORD_UNKNOWN = "UNKNOWN";
+    
+    private static final String JOURNAL_FILE = "escrow.journal";
+    private static final int COMPACT_THRESHOLD = 1000;
+    private static final int MAX_RELEASE_ATTEMPTS = 5;
+    
+    private final RandomTP plugin;
+    private final EconomySystemManager economySystemManager;
+    private final RefundQueue refundQueue;
+    private final Map<String, Reservation> reservations;
+    private final Map<String, Reservation> unresolved;
+    private final Queue<Reservation> settlementQueue;
+    private final AtomicLong idSequence;
+    private final Object settleLock = new Object();
+    private final Object journalLock = new Object();
+    private EconomyJournal journal;
+    private ScheduledFuture<?> settleTask;
+    private volatile boolean closed;
+    
+    private long timeoutMillis;
+    private int batchSize;
+    
+    // 统计信息
+    private final AtomicLong reservedCount = new AtomicLong();
+    private final AtomicLong committedCount = new AtomicLong();
+    private final AtomicLong releasedCount = new AtomicLong();
+    private final AtomicLong strandedCount = new AtomicLong();
+    private final AtomicLong deferredCount = new AtomicLong();
+    
+    public EscrowManager(RandomTP plugin) {
+        this.plugin = plugin;
+        this.economySystemManager = plugin.getEconomySystemManager();
+        this.refundQueue = plugin.getRefundQueue();
+        this.reservations = new ConcurrentHashMap<>();
+        this.unresolved = new ConcurrentHashMap<>();
+        this.settlementQueue = new ConcurrentLinkedQueue<>();
+        this.idSequence = new AtomicLong();
+    }
+    
+    /**
+     * 初始化：打开经济日志，重放上次未完成的预留，启动结算任务
+     */
+    public void initialize() {
+        timeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(plugin.getConfigManager().getEscrowTimeout(),
+            plugin.getConfigManager().getTeleportDelay() + 30));
+        batchSize = Math.max(1, plugin.getConfigManager().getEscrowBatchSize());
+        
+        try {
+            journal = new EconomyJournal(new File(new File(plugin.getDataFolder(), "escrow"), JOURNAL_FILE));
+            replay();
+        } catch (IOException e) {
+            plugin.getLogger().severe("无法打开费用预留日志，崩溃恢复将不可用: " + e.getMessage());
+        }
+        
+        long interval = Math.max(1, plugin.getConfigManager().getEscrowSettleInterval());
+        settleTask = plugin.getMaintenanceScheduler().scheduleBlockingAtFixedRate("escrow-settle",
+            this::settle, interval, interval, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * 预留传送费用：先写日志再扣款，返回的 Future 在经济线程中完成
+     * 预留成功时状态为 HELD；失败时状态为 ABORTED，可通过 getWithdrawResult() 获取原因；
+     * 扣款超时无法确定结果时保持 PENDING，扣款结果为 UNKNOWN
+     * @param currency 货币名称，null 表示默认货币
+     */
+    public CompletableFuture<Reservation> reserve(Player player, double amount, String currency, String reason) {
+        Reservation reservation = new Reservation(nextId(), player.getUniqueId(), player.getName(),
+            amount, currency, reason, System.currentTimeMillis());
+        
+        return economySystemManager.submit(() -> {
+            // 写前日志：即使扣款后立即崩溃，重启时也能发现这笔预留
+            synchronized (journalLock) {
+                if (closed || !writeJournal(true, reservation.toReserveRecord())) {
+                    reservation.abort(TransactionResult.FAILED);
+                    return reservation;
+                }
+                reservations.put(reservation.id, reservation);
+            }
+            
+            TransactionResult result = economySystemManager.tryWithdraw(player, amount, currency);
+            if (result == TransactionResult.SUCCESS && closed) {
+                // 扣款期间插件开始关闭，直接退还
+                economySystemManager.depositMoney(player, amount, currency);
+                reservations.remove(reservation.id);
+                reservation.abort(TransactionResult.FAILED);
+            } else if (result == TransactionResult.SUCCESS) {
+                synchronized (journalLock) {
+                    reservation.state.set(State.HELD);
+                    reservation.withdrawResult = result;
+                    reservedCount.incrementAndGet();
+                    writeJournal(true, RECORD_HELD, reservation.id);
+                }
+            } else if (result == TransactionResult.UNKNOWN) {
+                // 扣款可能稍后完成：不记录 ABORT，保留预留等待核对
+                reservation.withdrawResult = result;
+                markUnresolved(reservation, "扣除");
+            } else {
+                synchronized (journalLock) {
+                    reservations.remove(reservation.id);
+                    reservation.abort(result);
+                    writeJournal(false, RECORD_ABORT, reservation.id);
+                }
+            }
+            return reservation;
+        });
+    }
+    
+    /**
+     * 确认扣费（传送成功后调用）
+     * @return 预留已被超时释放时返回 false
+     */
+    public boolean commit(Reservation reservation) {
+        // 状态转换和日志记录在日志锁内完成，压缩日志时不会丢失这条确认
+        synchronized (journalLock) {
+            if (!reservation.state.compareAndSet(State.HELD, State.COMMITTING)) {
+                return false;
+            }
+            // 立即记录确认，结算前崩溃也不会在重启时被误退款
+            writeJournal(false, RECORD_COMMIT, reservation.id);
+        }
+        settlementQueue.add(reservation);
+        return true;
+    }
+    
+    /**
+     * 释放预留并退还费用
+     * @return 预留已确认或已释放时返回 false
+     */
+    public boolean release(Reservation reservation, String reason) {
+        return release(reservation, reason, false);
+    }
+    
+    /**
+     * 释放预留并退还费用
+     * @param playerLeft 玩家已离开服务器，按 defer-offline 配置等其下次进入时再退还
+     * @return 预留已确认或已释放时返回 false
+     */
+    public boolean release(Reservation reservation, String reason, boolean playerLeft) {
+        synchronized (journalLock) {
+            if (!reservation.state.compareAndSet(State.HELD, State.RELEASING)) {
+                return false;
+            }
+            reservation.releaseReason = reason;
+            reservation.playerLeft = playerLeft;
+            writeJournal(false, RECORD_RELEASE, reservation.id, reason);
+        }
+        settlementQueue.add(reservation);
+        return true;
+    }
+    
+    /**
+     * 结算任务：释放超时预留，批量处理确认和退款
+     */
+    private void settle() {
+        synchronized (settleLock) {
+            long now = System.currentTimeMillis();
+            for (Reservation reservation : reservations.values()) {
+                if (reservation.getState() == State.HELD && now - reservation.createdAt > timeoutMillis
+                        && release(reservation, "预留超时")) {
+                    plugin.getLogger().warning("玩家 " + reservation.playerName + " 的传送费用预留已超时，自动退还");
+                }
+            }
+            
+            List<Reservation> releases = new ArrayList<>();
+            Reservation reservation;
+            int processed = 0;
+            while (processed < batchSize && (reservation = settlementQueue.poll()) != null) {
+                processed++;
+                if (reservation.getState() == State.COMMITTING) {
+                    settleCommit(reservation);
+                } else {
+                    releases.add(reservation);
+                }
+            }
+            settlementQueue.addAll(settleReleases(releases));
+            
+            if (processed > 0) {
+                syncJournal();
+            }
+            compactIfNeeded();
+        }
+    }
+    
+    private void settleCommit(Reservation reservation) {
+        reservation.state.set(State.COMMITTED);
+        reservations.remove(reservation.id);
+        committedCount.incrementAndGet();
+        plugin.getLogManager().logTransaction(reservation.playerName, reservation.playerId,
+            "WITHDRAW", reservation.amount, reservation.describe(reservation.reason));
+    }
+    
+    /**
+     * 以一次批量存款退还一组预留
+     * @return 需要在下一轮重试的预留
+     */
+    private List<Reservation> settleReleases(List<Reservation> releases) {
+        List<Reservation> retry = new ArrayList<>();
+        if (releases.isEmpty()) {
+            return retry;
+        }
+        
+        if (refundQueue != null && refundQueue.isDeferOffline()) {
+            // 已离线玩家的退款等其下次进入服务器再退还
+            releases.removeIf(reservation -> reservation.playerLeft && handOff(reservation, true));
+            if (releases.isEmpty()) {
+                return retry;
+            }
+        }
+        
+        List<BatchEntry> entries = new ArrayList<>(releases.size());
+        for (Reservation reservation : releases) {
+            entries.add(new BatchEntry(Bukkit.getOfflinePlayer(reservation.playerId), reservation.amount, reservation.currency));
+        }
+        
+        List<TransactionResult> results = null;
+        try {
+            results = economySystemManager.depositBatchAsync(entries).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            plugin.getLogger().warning("批量退还传送费用失败: " + e.getCause());
+        }
+        
+        for (int i = 0; i < releases.size(); i++) {
+            Reservation reservation = releases.get(i);
+            TransactionResult result = results != null && i < results.size() ? results.get(i) : null;
+            if (result == TransactionResult.SUCCESS) {
+                completeRelease(reservation);
+            } else if (result == TransactionResult.UNKNOWN) {
+                // 退款可能稍后到账，重试会重复退还
+                markUnresolved(reservation, "退还");
+            } else if (!recordReleaseFailure(reservation)) {
+                retry.add(reservation);
+            }
+        }
+        return retry;
+    }
+    
+    private void completeRelease(Reservation reservation) {
+        writeJournal(false, RECORD_RELEASED, reservation.id);
+        reservation.state.set(State.RELEASED);
+        reservations.remove(reservation.id);
+        releasedCount.incrementAndGet();
+        plugin.getLogManager().logTransaction(reservation.playerName, reservation.playerId,
+            "REFUND", reservation.amount, reservation.describe(reservation.releaseReason));
+        notifyPlayer(reservation.playerId, ChatColor.GREEN + "已退还传送费用: " +
+            economySystemManager.formatMoney(reservation.amount, reservation.currency));
+    }
+    
+    /**
+     * 扣款或退还结果未知：移出进行中的预留，日志中记为结果未知，重启后按未完成的预留提示人工核对
+     */
+    private void markUnresolved(Reservation reservation, String operation) {
+        synchronized (journalLock) {
+            reservations.remove(reservation.id);
+            reservation.state.set(State.PENDING);
+            unresolved.put(reservation.id, reservation);
+            writeJournal(true, RECORD_UNKNOWN, reservation.id);
+        }
+        plugin.getLogger().warning("无法确定玩家 " + reservation.playerName + " 的传送费用是否已" + operation + 
+            "（金额: " + reservation.describeAmount() + "，预留 " + reservation.id + "），请人工核对");
+        plugin.getLogManager().logSystem("WARNING", "费用" + operation + "结果未知，需人工核对: " + reservation.id +
+            " " + reservation.playerName + " " + reservation.describeAmount(), null);
+    }
+    
+    /**
+     * 记录一次退款失败；返回 false 表示需要下一轮重试
+     */
+    private boolean recordReleaseFailure(Reservation reservation) {
+        if (reservation.releaseAttempts.incrementAndGet() < MAX_RELEASE_ATTEMPTS) {
+            return false;
+        }
+        
+        // 多次退款失败：转交退款队列按退避时间继续重试
+        if (handOff(reservation, false)) {
+            notifyPlayer(reservation.playerId, ChatColor.YELLOW + "传送费用暂时无法退还，已加入退款队列，将自动重试: " +
+                economySystemManager.formatMoney(reservation.amount, reservation.currency));
+            return true;
+        }
+        
+        // 退款队列不可用：保留在日志中，下次启动时重放
+        strandedCount.incrementAndGet();
+        plugin.getLogger().warning("玩家 " + reservation.playerName + " 的传送费用退还失败 " +
+            MAX_RELEASE_ATTEMPTS + " 次，将在下次启动时重试。金额: " + reservation.describeAmount());
+        notifyPlayer(reservation.playerId, ChatColor.YELLOW + "退款失败，请联系管理员。费用: " +
+            economySystemManager.formatMoney(reservation.amount, reservation.currency));
+        return true;
+    }
+    
+    /**
+     * 把预留转交延迟退款队列，退款日志落盘后在预留日志中记为已释放
+     * 两步之间崩溃时，重放会因退款队列中已有同一编号而跳过该预留
+     */
+    private boolean handOff(Reservation reservation, boolean awaitJoin) {
+        if (refundQueue == null || !refundQueue.enqueue(reservation.id, reservation.playerId, reservation.playerName,
+                reservation.amount, reservation.currency, reservation.releaseReason, awaitJoin)) {
+            return false;
+        }
+        writeJournal(false, RECORD_RELEASED, reservation.id);
+        reservation.state.set(State.RELEASED);
+        reservations.remove(reservation.id);
+        deferredCount.incrementAndGet();
+        return true;
+    }
+    
+    /**
+     * 重放经济日志：未确认的预留一律释放退还，扣款结果未知的预留记录警告
+     */
+    private void replay() throws IOException {
+        Map<String, Reservation> recovered = new LinkedHashMap<>();
+        for (String[] record : journal.readAll()) {
+            if (record.length < 2) {
+                continue;
+            }
+            String id = record[1];
+            switch (record[0]) {
+                case RECORD_RESERVE:
+                    if (record.length >= 7) {
+                        try {
+                            // 第 8 个字段为货币，旧版本日志没有该字段
+                            String currency = record.length >= 8 && !record[7].isEmpty() ? record[7] : null;
+                            recovered.put(id, new Reservation(id, UUID.fromString(record[2]), record[3],
+                                Double.parseDouble(record[4]), currency, record[6], Long.parseLong(record[5])));
+                        } catch (IllegalArgumentException e) {
+                            plugin.getLogger().warning("跳过损坏的预留记录: " + id);
+                        }
+                    }
+                    break;
+                case RECORD_HELD:
+                    Reservation held = recovered.get(id);
+                    if (held != null) {
+                        held.state.set(State.HELD);
+                    }
+                    break;
+                case RECORD_RELEASE:
+                    Reservation releasing = recovered.get(id);
+                    if (releasing != null) {
+                        releasing.state.set(State.RELEASING);
+                    }
+                    break;
+                case RECORD_UNKNOWN:
+                    Reservation unknown = recovered.get(id);
+                    if (unknown != null) {
+                        unknown.state.set(State.PENDING);
+                    }
+                    break;
+                default:
+                    // COMMIT / RELEASED / ABORT：已完结
+                    recovered.remove(id);
+                    break;
+            }
+        }
+        
+        List<String[]> live = new ArrayList<>();
+        int restored = 0;
+        for (Reservation reservation : recovered.values()) {
+            if (refundQueue != null && refundQueue.contains(reservation.id)) {
+                continue; // 已转交退款队列
+            }
+            if (reservation.getState() == State.PENDING) {
+                // 写入预留后、记录扣款结果前崩溃，或扣款、退还超时结果未知：交由管理员核对
+                plugin.getLogger().warning("无法确定玩家 " + reservation.playerName + " 的传送费用扣除或退还是否完成（金额: " +
+                    reservation.describeAmount() + "，预留 " + reservation.id + "），请人工核对");
+                plugin.getLogManager().logSystem("WARNING", "未完成的费用预留需人工核对: " + reservation.id +
+                    " " + reservation.playerName + " " + reservation.describeAmount(), null);
+                continue;
+            }
+            
+            reservation.state.set(State.RELEASING);
+            reservation.releaseReason = "服务器重启释放预留";
+            reservations.put(reservation.id, reservation);
+            settlementQueue.add(reservation);
+            live.addAll(reservation.toRecords());
+            restored++;
+        }
+        
+        journal.rewrite(live);
+        if (restored > 0) {
+            plugin.getLogger().info("从费用预留日志恢复了 " + restored + " 笔未确认的预留，将自动退还");
+        }
+    }
+    
+    /**
+     * 日志过长时只保留仍在进行中的预留
+     */
+    private void compactIfNeeded() {
+        if (journal == null || journal.getRecordCount() < COMPACT_THRESHOLD) {
+            return;
+        }
+        
+        // 持有日志锁，避免压缩期间有新的预留写入
+        synchronized (journalLock) {
+            List<String[]> live = new ArrayList<>();
+            for (Reservation reservation : reservations.values()) {
+                live.addAll(reservation.toRecords());
+            }
+            for (Reservation reservation : unresolved.values()) {
+                live.addAll(reservation.toRecords());
+            }
+            try {
+                journal.rewrite(live);
+            } catch (IOException e) {
+                plugin.getLogger().warning("压缩费用预留日志失败: " + e.getMessage());
+            }
+        }
+    }
+    
+    private boolean writeJournal(boolean sync, String... fields) {
+        if (journal == null) {
+            return true; // 日志不可用时降级为无崩溃恢复
+        }
+        try {
+            journal.append(fields);
+            if (sync) {
+                journal.sync();
+            }
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().warning("写入费用预留日志失败: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    private void syncJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            plugin.getLogger().warning("写入费用预留日志失败: " + e.getMessage());
+        }
+    }
+    
+    private void notifyPlayer(UUID playerId, String message) {
+        if (!plugin.isEnabled()) {
+            return;
+        }
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            Player player = Bukkit.getPlayer(playerId);
+            if (player != null && player.isOnline()) {
+                player.sendMessage(message);
+            }
+        });
+    }
+    
+    private String nextId() {
+        return Long.toString(System.currentTimeMillis(), 36) + "-" + idSequence.incrementAndGet();
+    }
+    
+    /**
+     * 获取进行中的预留数量
+     */
+    public int getActiveCount() {
+        return reservations.size();
+    }
+    
+    /**
+     * 获取结果未知、等待人工核对的预留数量
+     */
+    public int getUnresolvedCount() {
+        return unresolved.size();
+    }
+    
+    /**
+     * 获取统计摘要
+     */
+    public String getSummary() {
+        return String.format("进行中 %d, 预留 %d, 确认 %d, 退还 %d, 转入退款队列 %d, 退还失败 %d, 待核对 %d",
+            reservations.size(), reservedCount.get(), committedCount.get(), releasedCount.get(),
+            deferredCount.get(), strandedCount.get(), unresolved.size());
+    }
+    
+    /**
+     * 关闭：释放所有未确认的预留并尽量在关闭前完成结算，未完成的留给下次启动重放
+     */
+    public void shutdown() {
+        closed = true;
+        if (settleTask != null) {
+            settleTask.cancel(false);
+            settleTask = null;
+        }
+        
+        for (Reservation reservation : reservations.values()) {
+            release(reservation, "服务器关闭释放预留");
+        }
+        
+        synchronized (settleLock) {
+            // 所有待退款合并为一次批量操作
+            List<Reservation> releases = new ArrayList<>();
+            Reservation reservation;
+            while ((reservation = settlementQueue.poll()) != null) {
+                if (reservation.getState() == State.COMMITTING) {
+                    settleCommit(reservation);
+                } else {
+                    releases.add(reservation);
+                }
+            }
+            for (Reservation failed : settleReleases(releases)) {
+                if (!handOff(failed, false)) {
+                    plugin.getLogger().warning("关闭时未能退还 " + failed.playerName + " 的传送费用，将在下次启动时重试");
+                }
+            }
+        }
+        
+        synchronized (journalLock) {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    plugin.getLogger().warning("关闭费用预留日志失败: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * 预留状态
+     */
+    public enum State {
+        PENDING,      // 已写日志，扣款进行中（或扣款、退还结果未知，等待核对）
+        HELD,         // 已扣款，等待传送结果
+        COMMITTING,   // 传送成功，等待结算
+        COMMITTED,    // 已确认扣费
+        RELEASING,    // 等待退还
+        RELEASED,     // 已退还
+        ABORTED       // 扣款失败，未动用资金
+    }
+    
+    /**
+     * 一笔费用预留
+     */
+    public static class Reservation {
+        private final String id;
+        private final UUID playerId;
+        private final String playerName;
+        private final double amount;
+        private final String currency;
+        private final String reason;
+        private final long createdAt;
+        private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+        private final AtomicInteger releaseAttempts = new AtomicInteger();
+        private volatile TransactionResult withdrawResult;
+        private volatile String releaseReason;
+        private volatile boolean playerLeft;
+        
+        Reservation(String id, UUID playerId, String playerName, double amount, String currency, 
+                    String reason, long createdAt) {
+            this.id = id;
+            this.playerId = playerId;
+            this.playerName = playerName;
+            this.amount = amount;
+            this.currency = currency;
+            this.reason = reason;
+            this.createdAt = createdAt;
+        }
+        
+        String[] toReserveRecord() {
+            return new String[] {RECORD_RESERVE, id, playerId.toString(), playerName,
+                String.valueOf(amount), String.valueOf(createdAt), reason, currency == null ? "" : currency};
+        }
+        
+        /**
+         * 金额及货币（默认货币时只有金额）
+         */
+        String describeAmount() {
+            return currency == null ? String.valueOf(amount) : amount + " " + currency;
+        }
+        
+        /**
+         * 交易日志的说明：非默认货币时附加货币名称
+         */
+        String describe(String text) {
+            return currency == null ? text : text + " [" + currency + "]";
+        }
+        
+        void abort(TransactionResult result) {
+            withdrawResult = result;
+            state.set(State.ABORTED);
+        }
+        
+        /**
+         * 重建该预留当前状态所需的日志记录
+         */
+        List<String[]> toRecords() {
+            List<String[]> records = new ArrayList<>();
+            State current = state.get();
+            if (current == State.COMMITTING || current == State.COMMITTED) {
+                return records; // 已记录确认，无需保留
+            }
+            records.add(toReserveRecord());
+            if (current != State.PENDING) {
+                records.add(new String[] {RECORD_HELD, id});
+            }
+            if (current == State.RELEASING) {
+                records.add(new String[] {RECORD_RELEASE, id, releaseReason});
+            }
+            return records;
+        }
+        
+        public String getId() { return id; }
+        public UUID getPlayerId() { return playerId; }
+        public double getAmount() { return amount; }
+        public String getCurrency() { return currency; }
+        public State getState() { return state.get(); }
+        public boolean isHeld() { return state.get() == State.HELD; }
+        public TransactionResult getWithdrawResult() { return withdrawResult; }
+    }
+}
\ No newline at end of file
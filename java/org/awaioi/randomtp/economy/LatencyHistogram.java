@@ -0,0 +1,84 @@
+package org.awaioi.randomtp.economy;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 延迟直方图
+ * 按 2 的幂划分微秒级桶（<1µs, 1-2µs, 2-4µs ... ），记录时只做一次无锁自增，
+ * 百分位按桶上界估算，足以区分“微秒级缓存”和“数十毫秒的数据库往返”
+ */
+public class LatencyHistogram {
+    
+    private static final int BUCKET_COUNT = 32;
+    
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    
+    /**
+     * 记录一次调用耗时
+     */
+    public void record(long nanos, boolean failed) {
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = micros == 0 ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        if (failed) {
+            failures.incrementAndGet();
+        }
+        
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // 重试直到更新成功或已有更大的值
+        }
+    }
+    
+    public long getCount() {
+        return count.get();
+    }
+    
+    public long getFailures() {
+        return failures.get();
+    }
+    
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+    
+    public double getAverageMillis() {
+        long total = count.get();
+        return total == 0 ? 0.0 : totalNanos.get() / (double) total / 1_000_000.0;
+    }
+    
+    /**
+     * 估算百分位延迟（毫秒），取所在桶的上界
+     */
+    public double getPercentileMillis(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0.0;
+        }
+        
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= threshold) {
+                return (1L << i) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+    
+    /**
+     * 格式化摘要，例如 "n=120 p50=0.51ms p99=16.38ms max=20.12ms"
+     */
+    public String getSummary() {
+        return String.format("n=%d p50=%.2fms p99=%.2fms max=%.2fms 失败=%d",
+            getCount(), getPercentileMillis(50), getPercentileMillis(99), getMaxMillis(), getFailures());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,270 @@
+package org.awaioi.randomtp.economy;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.awaioi.randomtp.RandomTP;
+import org.awaioi.randomtp.teleport.TeleportManager;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * 动态定价引擎
+ * 传送费用 = 等级基础费用 × 需求倍率。需求由最近的请求频率、进行中的传送数量和服务器 tick 耗时决定，
+ * 各项按配置的曲线换算成倍率后取最大值，再受总倍率和费用上限限制。
+ * 报价在有效期内对同一玩家保持不变，保证显示给玩家的费用就是实际扣除的费用
+ */
+public class PricingEngine {
+    
+    // 请求时间戳最多保留的条数，防止请求风暴时无限增长
+    private static final int MAX_TRACKED_REQUESTS = 10000;
+    private static final long PROBE_INTERVAL_TICKS = 20L;
+    
+    private final RandomTP plugin;
+    private final Map<UUID, Quote> quotes = new ConcurrentHashMap<>();
+    private final ArrayDeque<Long> requestTimes = new ArrayDeque<>();
+    private volatile PricingConfig config;
+    private volatile double msPerTick = 50.0;
+    private long lastProbeNanos;
+    private BukkitTask probeTask;
+    
+    public PricingEngine(RandomTP plugin) {
+        this.plugin = plugin;
+        reload();
+    }
+    
+    /**
+     * 启动 tick 耗时探测（主线程，每秒一次）
+     */
+    public void start() {
+        lastProbeNanos = System.nanoTime();
+        probeTask = Bukkit.getScheduler().runTaskTimer(plugin, this::probe, PROBE_INTERVAL_TICKS, PROBE_INTERVAL_TICKS);
+    }
+    
+    public void shutdown() {
+        if (probeTask != null) {
+            probeTask.cancel();
+            probeTask = null;
+        }
+        quotes.clear();
+    }
+    
+    /**
+     * 重新读取定价配置，已发出的报价在有效期内仍然有效
+     */
+    public void reload() {
+        PricingConfig newConfig = new PricingConfig();
+        ConfigurationSection section = plugin.getConfigManager().getConfig().getConfigurationSection("economy.pricing");
+        if (section != null) {
+            newConfig.loadFromConfig(section);
+        }
+        config = newConfig;
+    }
+    
+    /**
+     * 获取玩家的报价：有效期内返回同一价格，基础费用变化（权限变更、重载）时重新报价
+     */
+    public double quote(UUID playerId, double baseCost) {
+        PricingConfig current = config;
+        if (!current.isEnabled() || baseCost <= 0) {
+            return baseCost;
+        }
+        
+        long now = System.currentTimeMillis();
+        Quote existing = quotes.get(playerId);
+        if (existing != null && existing.expiresAt > now && existing.baseCost == baseCost) {
+            return existing.cost;
+        }
+        
+        double cost = baseCost * getMultiplier();
+        if (current.getMaxCost() > 0) {
+            cost = Math.min(cost, Math.max(baseCost, current.getMaxCost()));
+        }
+        cost = Math.round(cost * 100.0) / 100.0;
+        
+        quotes.put(playerId, new Quote(baseCost, cost, now + TimeUnit.SECONDS.toMillis(current.getQuoteSeconds())));
+        return cost;
+    }
+    
+    /**
+     * 记录一次传送请求
+     */
+    public void recordRequest() {
+        long now = System.currentTimeMillis();
+        synchronized (requestTimes) {
+            requestTimes.addLast(now);
+            if (requestTimes.size() > MAX_TRACKED_REQUESTS) {
+                requestTimes.pollFirst();
+            }
+        }
+    }
+    
+    /**
+     * 当前需求倍率（各项取最大值，受总倍率上限限制）
+     */
+    public double getMultiplier() {
+        PricingConfig current = config;
+        double multiplier = Math.max(current.getRequestRate().multiplier(getRequestRate()),
+            Math.max(current.getQueueDepth().multiplier(getQueueDepth()),
+                current.getMspt().multiplier(msPerTick)));
+        return Math.min(multiplier, current.getMaxMultiplier());
+    }
+    
+    /**
+     * 统计窗口内的请求数
+     */
+    public int getRequestRate() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(config.getRequestWindowSeconds());
+        synchronized (requestTimes) {
+            while (!requestTimes.isEmpty() && requestTimes.peekFirst() < cutoff) {
+                requestTimes.pollFirst();
+            }
+            return requestTimes.size();
+        }
+    }
+    
+    /**
+     * 进行中的传送数量（倒计时、搜索和费用预留）
+     */
+    public int getQueueDepth() {
+        TeleportManager teleportManager = plugin.getTeleportManager();
+        return teleportManager != null ? teleportManager.getActiveTeleportCount() : 0;
+    }
+    
+    public double getMsPerTick() {
+        return msPerTick;
+    }
+    
+    /**
+     * 测量最近一个探测周期的平均 tick 耗时，并清理过期报价
+     */
+    private void probe() {
+        long now = System.nanoTime();
+        double measured = (now - lastProbeNanos) / 1_000_000.0 / PROBE_INTERVAL_TICKS;
+        lastProbeNanos = now;
+        // 指数平滑，避免单次卡顿导致价格跳动
+        msPerTick = msPerTick * 0.7 + measured * 0.3;
+        
+        long nowMillis = System.currentTimeMillis();
+        quotes.values().removeIf(quote -> quote.expiresAt <= nowMillis);
+    }
+    
+    /**
+     * 格式化状态摘要
+     */
+    public String getSummary() {
+        if (!config.isEnabled()) {
+            return "未启用";
+        }
+        return String.format("倍率 x%.2f (请求 %d/%ds, 进行中 %d, tick %.1fms), 报价 %d 条",
+            getMultiplier(), getRequestRate(), config.getRequestWindowSeconds(), getQueueDepth(), msPerTick, quotes.size());
+    }
+    
+    private static class Quote {
+        private final double baseCost;
+        private final double cost;
+        private final long expiresAt;
+        
+        Quote(double baseCost, double cost, long expiresAt) {
+            this.baseCost = baseCost;
+            this.cost = cost;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    /**
+     * 需求曲线：指标低于 start 时倍率为 1，达到 full 时为 max，中间按曲线形状过渡
+     */
+    public static class DemandCurve {
+        private boolean enabled;
+        private double start;
+        private double full;
+        private double max;
+        private String shape = "linear";
+        
+        DemandCurve(boolean enabled, double start, double full, double max) {
+            this.enabled = enabled;
+            this.start = start;
+            this.full = full;
+            this.max = max;
+        }
+        
+        public void loadFromConfig(ConfigurationSection config) {
+            enabled = config.getBoolean("enabled", enabled);
+            start = config.getDouble("start", start);
+            full = Math.max(start + 1e-9, config.getDouble("full", full));
+            max = Math.max(1.0, config.getDouble("max", max));
+            shape = config.getString("curve", shape).toLowerCase();
+        }
+        
+        public double multiplier(double value) {
+            if (!enabled || value <= start) {
+                return 1.0;
+            }
+            double t = Math.min(1.0, (value - start) / (full - start));
+            switch (shape) {
+                case "quadratic":
+                    t = t * t;
+                    break;
+                case "step":
+                    t = t >= 1.0 ? 1.0 : 0.0;
+                    break;
+                default:
+                    break;
+            }
+            return 1.0 + (max - 1.0) * t;
+        }
+        
+        // Getters
+        public boolean isEnabled() { return enabled; }
+        public double getStart() { return start; }
+        public double getFull() { return full; }
+        public double getMax() { return max; }
+        public String getShape() { return shape; }
+    }
+    
+    /**
+     * 定价配置
+     */
+    public static class PricingConfig {
+        private boolean enabled = false;
+        private int quoteSeconds = 30;
+        private double maxMultiplier = 3.0;
+        private double maxCost = 0;
+        private int requestWindowSeconds = 60;
+        private final DemandCurve requestRate = new DemandCurve(true, 30, 120, 2.0);
+        private final DemandCurve queueDepth = new DemandCurve(true, 10, 40, 2.0);
+        private final DemandCurve mspt = new DemandCurve(true, 55, 100, 3.0);
+        
+        public void loadFromConfig(ConfigurationSection config) {
+            enabled = config.getBoolean("enabled", enabled);
+            quoteSeconds = Math.max(1, config.getInt("quote-seconds", quoteSeconds));
+            maxMultiplier = Math.max(1.0, config.getDouble("max-multiplier", maxMultiplier));
+            maxCost = config.getDouble("max-cost", maxCost);
+            if (config.isConfigurationSection("request-rate")) {
+                requestWindowSeconds = Math.max(1, config.getInt("request-rate.window-seconds", requestWindowSeconds));
+                requestRate.loadFromConfig(config.getConfigurationSection("request-rate"));
+            }
+            if (config.isConfigurationSection("queue-depth")) {
+                queueDepth.loadFromConfig(config.getConfigurationSection("queue-depth"));
+            }
+            if (config.isConfigurationSection("mspt")) {
+                mspt.loadFromConfig(config.getConfigurationSection("mspt"));
+            }
+        }
+        
+        // Getters
+        public boolean isEnabled() { return enabled; }
+        public int getQuoteSeconds() { return quoteSeconds; }
+        public double getMaxMultiplier() { return maxMultiplier; }
+        public double getMaxCost() { return maxCost; }
+        public int getRequestWindowSeconds() { return requestWindowSeconds; }
+        public DemandCurve getRequestRate() { return requestRate; }
+        public DemandCurve getQueueDepth() { return queueDepth; }
+        public DemandCurve getMspt() { return mspt; }
+    }
+}
\ No newline at end of file
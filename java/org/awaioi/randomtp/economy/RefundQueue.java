@@ -0,0 +1,441 @@
+package org.awaioi.randomtp.economy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.awaioi.randomtp.RandomTP;
+import org.awaioi.randomtp.economy.adapter.EconomyAdapter.BatchEntry;
+import org.awaioi.randomtp.economy.adapter.EconomyAdapter.TransactionResult;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+/**
+ * 延迟退款队列
+ * 退还失败的费用，以及离线玩家的退款（defer-offline），先写入本地退款日志，
+ * 再由维护线程按指数退避重试；玩家下次进入服务器时立即重试该玩家的全部退款，
+ * 等待上线的退款超过 backoff-max 仍未退还时也会尝试直接退还到离线账户。
+ * 退款不再在事件处理中同步执行，失败时也不会丢失；存款超时、结果未知的退款不再重试，
+ * 记入日志等待人工核对，避免重复退还
+ */
+public class RefundQueue {
+    
+    // 日志记录类型
+    private static final String RECORD_QUEUED = "QUEUED";
+    private static final String RECORD_DONE = "DONE";
+    private static final String RECORD_UNKNOWN = "UNKNOWN";
+    
+    private static final String JOURNAL_FILE = "refunds.journal";
+    private static final int COMPACT_THRESHOLD = 500;
+    
+    private final RandomTP plugin;
+    private final EconomySystemManager economySystemManager;
+    private final Map<String, Refund> refunds;
+    private final Object retryLock = new Object();
+    private final Object journalLock = new Object();
+    private EconomyJournal journal;
+    private ScheduledFuture<?> retryTask;
+    private RefundConfig config;
+    
+    // 统计信息
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong refundedCount = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong unresolvedCount = new AtomicLong();
+    
+    public RefundQueue(RandomTP plugin) {
+        this.plugin = plugin;
+        this.economySystemManager = plugin.getEconomySystemManager();
+        this.refunds = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * 初始化：读取退款日志中未完成的退款，启动重试任务
+     */
+    public void initialize() {
+        config = new RefundConfig();
+        if (plugin.getConfigManager().getConfig().isConfigurationSection("economy.refund-queue")) {
+            config.loadFromConfig(plugin.getConfigManager().getConfig().getConfigurationSection("economy.refund-queue"));
+        }
+        
+        try {
+            journal = new EconomyJournal(new File(new File(plugin.getDataFolder(), "escrow"), JOURNAL_FILE));
+            replay();
+        } catch (IOException e) {
+            plugin.getLogger().severe("无法打开退款日志，延迟退款将不可用: " + e.getMessage());
+        }
+        
+        retryTask = plugin.getMaintenanceScheduler().scheduleBlockingAtFixedRate("refund-retry",
+            this::retryDue, config.getRetryInterval(), config.getRetryInterval(), TimeUnit.SECONDS);
+    }
+    
+    /**
+     * 加入退款队列，日志落盘后才返回 true；返回 false 时调用方需自行保留这笔退款
+     * @param id 退款编号（沿用预留编号，重放时用于去重）
+     * @param awaitJoin 是否等玩家下次进入服务器再退还
+     */
+    public boolean enqueue(String id, UUID playerId, String playerName, double amount, String currency,
+                           String reason, boolean awaitJoin) {
+        Refund refund = new Refund(id, playerId, playerName, amount, currency, reason, System.currentTimeMillis());
+        refund.awaitingJoin = awaitJoin;
+        refund.nextAttemptAt = refund.queuedAt + (awaitJoin ? config.getBackoffMaxMillis() : config.backoff(0));
+        
+        // 持有日志锁，避免压缩期间写入的记录丢失
+        synchronized (journalLock) {
+            if (refunds.containsKey(id)) {
+                return true;
+            }
+            if (journal == null) {
+                return false;
+            }
+            try {
+                journal.append(refund.toRecord());
+                journal.sync();
+            } catch (IOException e) {
+                plugin.getLogger().warning("写入退款日志失败: " + e.getMessage());
+                return false;
+            }
+            refunds.put(id, refund);
+        }
+        queuedCount.incrementAndGet();
+        return true;
+    }
+    
+    /**
+     * 是否已在队列中（费用预留重放时去重）
+     */
+    public boolean contains(String id) {
+        return refunds.containsKey(id);
+    }
+    
+    /**
+     * 离线玩家的退款是否等到其下次进入服务器再退还
+     */
+    public boolean isDeferOffline() {
+        return config.isDeferOffline();
+    }
+    
+    /**
+     * 玩家进入服务器：该玩家的退款立即重试，不再等待退避时间
+     */
+    public void onPlayerJoin(UUID playerId) {
+        boolean found = false;
+        for (Refund refund : refunds.values()) {
+            if (refund.playerId.equals(playerId)) {
+                refund.awaitingJoin = false;
+                refund.nextAttemptAt = 0;
+                found = true;
+            }
+        }
+        if (found) {
+            plugin.getMaintenanceScheduler().executeBlocking("refund-retry", this::retryDue);
+        }
+    }
+    
+    /**
+     * 重试到期的退款：合并为一次批量存款，失败的按指数退避推迟下次重试
+     */
+    private void retryDue() {
+        synchronized (retryLock) {
+            if (journal == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            List<Refund> due = new ArrayList<>();
+            for (Refund refund : refunds.values()) {
+                if (refund.nextAttemptAt <= now) {
+                    due.add(refund);
+                    if (due.size() >= config.getBatchSize()) {
+                        break;
+                    }
+                }
+            }
+            if (due.isEmpty()) {
+                return;
+            }
+            
+            List<BatchEntry> entries = new ArrayList<>(due.size());
+            for (Refund refund : due) {
+                entries.add(new BatchEntry(Bukkit.getOfflinePlayer(refund.playerId), refund.amount, refund.currency));
+            }
+            
+            List<TransactionResult> results = null;
+            try {
+                results = economySystemManager.depositBatchAsync(entries).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                plugin.getLogger().warning("批量重试退款失败: " + e.getCause());
+            }
+            
+            for (int i = 0; i < due.size(); i++) {
+                Refund refund = due.get(i);
+                TransactionResult result = results != null && i < results.size() ? results.get(i) : null;
+                if (result == TransactionResult.SUCCESS) {
+                    complete(refund);
+                } else if (result == TransactionResult.UNKNOWN) {
+                    markUnresolved(refund);
+                } else {
+                    refund.attempts++;
+                    refund.nextAttemptAt = now + config.backoff(refund.attempts);
+                    failedAttempts.incrementAndGet();
+                }
+            }
+            
+            synchronized (journalLock) {
+                try {
+                    journal.sync();
+                } catch (IOException e) {
+                    plugin.getLogger().warning("写入退款日志失败: " + e.getMessage());
+                }
+                if (journal.getRecordCount() >= COMPACT_THRESHOLD) {
+                    rewriteJournal();
+                }
+            }
+        }
+    }
+    
+    private void complete(Refund refund) {
+        synchronized (journalLock) {
+            try {
+                journal.append(RECORD_DONE, refund.id);
+            } catch (IOException e) {
+                plugin.getLogger().warning("写入退款日志失败: " + e.getMessage());
+            }
+            refunds.remove(refund.id);
+        }
+        refundedCount.incrementAndGet();
+        plugin.getLogManager().logTransaction(refund.playerName, refund.playerId,
+            "REFUND", refund.amount, refund.currency == null ? refund.reason : refund.reason + " [" + refund.currency + "]");
+        notifyPlayer(refund.playerId, ChatColor.GREEN + "已退还传送费用: " +
+            economySystemManager.formatMoney(refund.amount, refund.currency));
+    }
+    
+    /**
+     * 存款结果未知：移出队列不再重试，记录警告等待人工核对
+     */
+    private void markUnresolved(Refund refund) {
+        synchronized (journalLock) {
+            try {
+                journal.append(RECORD_UNKNOWN, refund.id);
+            } catch (IOException e) {
+                plugin.getLogger().warning("写入退款日志失败: " + e.getMessage());
+            }
+            refunds.remove(refund.id);
+        }
+        unresolvedCount.incrementAndGet();
+        plugin.getLogger().warning("无法确定玩家 " + refund.playerName + " 的退款是否到账（金额: " + 
+            economySystemManager.formatMoney(refund.amount, refund.currency) + "，退款 " + refund.id + "），请人工核对");
+        plugin.getLogManager().logSystem("WARNING", "退款结果未知，需人工核对: " + refund.id + " " + 
+            refund.playerName + " " + refund.amount + (refund.currency == null ? "" : " " + refund.currency), null);
+    }
+    
+    /**
+     * 重放退款日志，恢复未完成的退款（重启后立即可重试）
+     */
+    private void replay() throws IOException {
+        Map<String, Refund> recovered = new LinkedHashMap<>();
+        for (String[] record : journal.readAll()) {
+            if (record.length < 2) {
+                continue;
+            }
+            if (RECORD_QUEUED.equals(record[0]) && record.length >= 8) {
+                try {
+                    Refund refund = new Refund(record[1], UUID.fromString(record[2]), record[3],
+                        Double.parseDouble(record[4]), record[5].isEmpty() ? null : record[5], record[7],
+                        Long.parseLong(record[6]));
+                    refund.awaitingJoin = record.length >= 9 && Boolean.parseBoolean(record[8]);
+                    refund.nextAttemptAt = refund.awaitingJoin ? refund.queuedAt + config.getBackoffMaxMillis() : 0;
+                    recovered.put(refund.id, refund);
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().warning("跳过损坏的退款记录: " + record[1]);
+                }
+            } else if (RECORD_DONE.equals(record[0]) || RECORD_UNKNOWN.equals(record[0])) {
+                recovered.remove(record[1]);
+            }
+        }
+        
+        refunds.putAll(recovered);
+        rewriteJournal();
+        if (!recovered.isEmpty()) {
+            plugin.getLogger().info("退款队列中有 " + recovered.size() + " 笔待退还的传送费用");
+        }
+    }
+    
+    /**
+     * 用未完成的退款重写日志（压缩），调用方需持有日志锁或处于初始化阶段
+     */
+    private void rewriteJournal() {
+        List<String[]> live = new ArrayList<>();
+        for (Refund refund : refunds.values()) {
+            live.add(refund.toRecord());
+        }
+        try {
+            journal.rewrite(live);
+        } catch (IOException e) {
+            plugin.getLogger().warning("压缩退款日志失败: " + e.getMessage());
+        }
+    }
+    
+    private void notifyPlayer(UUID playerId, String message) {
+        if (!plugin.isEnabled()) {
+            return;
+        }
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            Player player = Bukkit.getPlayer(playerId);
+            if (player != null && player.isOnline()) {
+                player.sendMessage(message);
+            }
+        });
+    }
+    
+    /**
+     * 获取待退款数量
+     */
+    public int getPendingCount() {
+        return refunds.size();
+    }
+    
+    /**
+     * 按货币汇总待退金额（默认货币的键为空字符串）
+     */
+    public Map<String, Double> getOutstandingTotals() {
+        Map<String, Double> totals = new TreeMap<>();
+        for (Refund refund : refunds.values()) {
+            totals.merge(refund.currency == null ? "" : refund.currency, refund.amount, Double::sum);
+        }
+        return totals;
+    }
+    
+    /**
+     * 获取待退款列表（按加入队列的时间排序）
+     */
+    public List<Refund> getPendingRefunds() {
+        List<Refund> pending = new ArrayList<>(refunds.values());
+        pending.sort((a, b) -> Long.compare(a.queuedAt, b.queuedAt));
+        return pending;
+    }
+    
+    /**
+     * 获取统计摘要
+     */
+    public String getSummary() {
+        return String.format("待退还 %d, 累计入队 %d, 已退还 %d, 重试失败 %d, 结果未知 %d",
+            refunds.size(), queuedCount.get(), refundedCount.get(), failedAttempts.get(), unresolvedCount.get());
+    }
+    
+    /**
+     * 关闭：停止重试，未完成的退款保留在日志中，下次启动继续
+     */
+    public void shutdown() {
+        if (retryTask != null) {
+            retryTask.cancel(false);
+            retryTask = null;
+        }
+        
+        // 等待进行中的重试完成
+        synchronized (retryLock) {
+            synchronized (journalLock) {
+                if (journal != null) {
+                    try {
+                        journal.close();
+                    } catch (IOException e) {
+                        plugin.getLogger().warning("关闭退款日志失败: " + e.getMessage());
+                    }
+                    journal = null;
+                }
+            }
+        }
+    }
+    
+    /**
+     * 一笔待退款
+     */
+    public static class Refund {
+        private final String id;
+        private final UUID playerId;
+        private final String playerName;
+        private final double amount;
+        private final String currency;
+        private final String reason;
+        private final long queuedAt;
+        private volatile boolean awaitingJoin;
+        private volatile long nextAttemptAt;
+        private volatile int attempts;
+        
+        Refund(String id, UUID playerId, String playerName, double amount, String currency,
+               String reason, long queuedAt) {
+            this.id = id;
+            this.playerId = playerId;
+            this.playerName = playerName;
+            this.amount = amount;
+            this.currency = currency;
+            this.reason = reason;
+            this.queuedAt = queuedAt;
+        }
+        
+        String[] toRecord() {
+            return new String[] {RECORD_QUEUED, id, playerId.toString(), playerName, String.valueOf(amount),
+                currency == null ? "" : currency, String.valueOf(queuedAt), reason, String.valueOf(awaitingJoin)};
+        }
+        
+        public String getId() { return id; }
+        public UUID getPlayerId() { return playerId; }
+        public String getPlayerName() { return playerName; }
+        public double getAmount() { return amount; }
+        public String getCurrency() { return currency; }
+        public long getQueuedAt() { return queuedAt; }
+        public boolean isAwaitingJoin() { return awaitingJoin; }
+        public int getAttempts() { return attempts; }
+    }
+    
+    /**
+     * 退款队列配置
+     */
+    public static class RefundConfig {
+        private int retryInterval = 15;
+        private int backoffBase = 30;
+        private int backoffMax = 1800;
+        private int batchSize = 50;
+        private boolean deferOffline = true;
+        
+        public void loadFromConfig(ConfigurationSection config) {
+            retryInterval = Math.max(1, config.getInt("retry-interval", retryInterval));
+            backoffBase = Math.max(1, config.getInt("backoff-base", backoffBase));
+            backoffMax = Math.max(backoffBase, config.getInt("backoff-max", backoffMax));
+            batchSize = Math.max(1, config.getInt("batch-size", batchSize));
+            deferOffline = config.getBoolean("defer-offline", deferOffline);
+        }
+        
+        /**
+         * 第 attempts 次失败后的等待时间（毫秒）：backoff-base × 2^attempts，不超过 backoff-max
+         */
+        long backoff(int attempts) {
+            long seconds = (long) backoffBase << Math.min(attempts, 20);
+            return TimeUnit.SECONDS.toMillis(Math.min(seconds, backoffMax));
+        }
+        
+        long getBackoffMaxMillis() {
+            return TimeUnit.SECONDS.toMillis(backoffMax);
+        }
+        
+        // Getters
+        public int getRetryInterval() { return retryInterval; }
+        public int getBackoffBase() { return backoffBase; }
+        public int getBackoffMax() { return backoffMax; }
+        public int getBatchSize() { return batchSize; }
+        public boolean isDeferOffline() { return deferOffline; }
+    }
+}
\ No newline at end of file
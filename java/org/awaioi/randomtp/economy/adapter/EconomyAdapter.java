@@ -1,5 +1,9 @@
 package org.awaioi.randomtp.economy.adapter;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
@@ -39,16 +43,113 @@ public interface EconomyAdapter {
      */
     boolean withdrawMoney(Player player, double amount);
     
+    /**
+     * 检查余额并扣款
+     * 默认实现依次调用 hasEnoughMoney 和 withdrawMoney；能在一次调用中完成的适配器应覆盖此方法，
+     * 避免对远程经济后端产生两次往返
+     */
+    default TransactionResult tryWithdraw(Player player, double amount) {
+        if (!hasEnoughMoney(player, amount)) {
+            return TransactionResult.INSUFFICIENT_FUNDS;
+        }
+        return withdrawMoney(player, amount) ? TransactionResult.SUCCESS : TransactionResult.FAILED;
+    }
+    
+    /**
+     * 对可能已离线的玩家检查余额并扣款
+     * 默认实现只支持在线玩家；支持离线账户的适配器应覆盖此方法
+     */
+    default TransactionResult tryWithdraw(OfflinePlayer player, double amount) {
+        Player online = player.getPlayer();
+        return online != null ? tryWithdraw(online, amount) : TransactionResult.FAILED;
+    }
+    
+    /**
+     * 批量扣款，返回结果与 entries 顺序一一对应
+     * 默认逐条调用；后端原生支持批量操作的适配器应覆盖此方法并声明 BULK_OPERATIONS
+     */
+    default List<TransactionResult> withdrawBatch(List<BatchEntry> entries) {
+        List<TransactionResult> results = new ArrayList<>(entries.size());
+        for (BatchEntry entry : entries) {
+            results.add(tryWithdraw(entry.getPlayer(), entry.getAmount(), entry.getCurrency()));
+        }
+        return results;
+    }
+    
+    /**
+     * 批量存款，返回结果与 entries 顺序一一对应
+     * 默认逐条调用；后端原生支持批量操作的适配器应覆盖此方法并声明 BULK_OPERATIONS
+     */
+    default List<TransactionResult> depositBatch(List<BatchEntry> entries) {
+        List<TransactionResult> results = new ArrayList<>(entries.size());
+        for (BatchEntry entry : entries) {
+            results.add(tryDeposit(entry.getPlayer(), entry.getAmount(), entry.getCurrency()));
+        }
+        return results;
+    }
+    
     /**
      * 给玩家添加金钱
      */
     boolean depositMoney(Player player, double amount);
     
+    /**
+     * 给可能已离线的玩家添加金钱
+     * 默认实现只支持在线玩家；支持离线账户的适配器应覆盖此方法
+     */
+    default boolean depositMoney(OfflinePlayer player, double amount) {
+        Player online = player.getPlayer();
+        return online != null && depositMoney(online, amount);
+    }
+    
     /**
      * 获取玩家当前金钱
      */
     double getPlayerMoney(Player player);
     
+    /**
+     * 是否提供指定货币；currency 为 null 表示默认货币，所有适配器都支持
+     * 支持额外货币的适配器应覆盖此方法和以下带货币参数的方法，并声明 MULTI_CURRENCY
+     */
+    default boolean hasCurrency(String currency) {
+        return currency == null;
+    }
+    
+    /**
+     * 从指定货币账户检查余额并扣款
+     */
+    default TransactionResult tryWithdraw(OfflinePlayer player, double amount, String currency) {
+        return currency == null ? tryWithdraw(player, amount) : TransactionResult.FAILED;
+    }
+    
+    /**
+     * 向指定货币账户存款
+     */
+    default boolean depositMoney(OfflinePlayer player, double amount, String currency) {
+        return currency == null && depositMoney(player, amount);
+    }
+    
+    /**
+     * 向指定货币账户存款并返回结果；与 depositMoney 不同，可以返回 UNKNOWN 表示无法确定是否已存入
+     */
+    default TransactionResult tryDeposit(OfflinePlayer player, double amount, String currency) {
+        return depositMoney(player, amount, currency) ? TransactionResult.SUCCESS : TransactionResult.FAILED;
+    }
+    
+    /**
+     * 获取玩家指定货币的余额，不支持该货币时返回 NaN
+     */
+    default double getPlayerMoney(Player player, String currency) {
+        return currency == null ? getPlayerMoney(player) : Double.NaN;
+    }
+    
+    /**
+     * 按指定货币格式化金额
+     */
+    default String formatMoney(double amount, String currency) {
+        return currency == null ? formatMoney(amount) : formatMoney(amount) + " " + currency;
+    }
+    
     /**
      * 格式化金额显示
      */
@@ -84,6 +185,40 @@ public interface EconomyAdapter {
      */
     void clearError();
     
+    /**
+     * 批量操作中的一条记录
+     */
+    final class BatchEntry {
+        private final OfflinePlayer player;
+        private final double amount;
+        private final String currency;
+        
+        public BatchEntry(OfflinePlayer player, double amount) {
+            this(player, amount, null);
+        }
+        
+        public BatchEntry(OfflinePlayer player, double amount, String currency) {
+            this.player = player;
+            this.amount = amount;
+            this.currency = currency;
+        }
+        
+        public OfflinePlayer getPlayer() { return player; }
+        public double getAmount() { return amount; }
+        public String getCurrency() { return currency; }
+    }
+    
+    /**
+     * 扣款结果
+     */
+    enum TransactionResult {
+        SUCCESS,                // 扣款成功
+        INSUFFICIENT_FUNDS,     // 余额不足
+        FAILED,                 // 经济后端错误
+        SKIPPED,                // 经济后端不可用，按 fail-open 策略放行，未扣款
+        UNKNOWN                 // 调用超时或被中断，无法确定是否已执行，不能重试，需要核对
+    }
+    
     /**
      * 经济系统功能枚举
      */
@@ -1,34 +1,48 @@
 package org.awaioi.randomtp.economy.adapter;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.util.UUID;
+
 import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
 /**
  * EssentialsX经济系统适配器
- * 直接适配EssentialsX的经济API，提供更好的性能
- * 如果EssentialsX不可用，则自动降级为不可用状态
+ * 直接调用EssentialsX的经济API（com.earth2me.essentials.api.Economy），不经过Vault。
+ * API 在构造时通过反射解析一次并缓存为 MethodHandle，新版本按 UUID 访问账户，旧版本按玩家名；
+ * 金额以 BigDecimal 传递。涉及资金的调用不吞掉后端异常，由 GuardedEconomyAdapter 统一计入熔断
  */
 public class EssentialsXEconomyAdapter implements EconomyAdapter {
     
-    private Plugin essentialsPlugin;
-    private String lastError;
+    // EssentialsX 的插件名仍为 Essentials
+    private static final String PLUGIN_NAME = "Essentials";
+    private static final String ECONOMY_CLASS = "com.earth2me.essentials.api.Economy";
+    
+    private final Plugin essentialsPlugin;
+    private final EssentialsApi api;
+    private volatile String lastError;
     
     public EssentialsXEconomyAdapter() {
-        this.essentialsPlugin = null;
-        this.lastError = null;
+        Plugin plugin = Bukkit.getPluginManager().getPlugin(PLUGIN_NAME);
+        EssentialsApi resolved = null;
         
-        // 尝试获取EssentialsX插件
-        try {
-            Plugin plugin = Bukkit.getPluginManager().getPlugin("EssentialsX");
-            if (plugin != null && plugin.isEnabled()) {
-                this.essentialsPlugin = plugin;
-            } else {
-                this.lastError = "EssentialsX插件未找到或未启用";
+        if (plugin == null || !plugin.isEnabled()) {
+            this.lastError = "EssentialsX插件未找到或未启用";
+        } else {
+            try {
+                resolved = EssentialsApi.resolve(Class.forName(ECONOMY_CLASS, true, plugin.getClass().getClassLoader()));
+            } catch (ReflectiveOperationException | LinkageError e) {
+                this.lastError = "无法解析EssentialsX经济API: " + e;
             }
-        } catch (Exception e) {
-            this.lastError = "无法加载EssentialsX: " + e.getMessage();
         }
+        
+        this.essentialsPlugin = plugin;
+        this.api = resolved;
     }
     
     @Override
@@ -51,57 +65,76 @@ public class EssentialsXEconomyAdapter implements EconomyAdapter {
     
     @Override
     public boolean isAvailable() {
-        return essentialsPlugin != null && essentialsPlugin.isEnabled();
+        return api != null && essentialsPlugin.isEnabled();
     }
     
     @Override
     public boolean hasEnoughMoney(Player player, double amount) {
         if (!isAvailable()) {
-            return true;
+            return true; // 仅预检查，真正扣款时仍会校验
         }
         
-        try {
-            // 由于EssentialsX API可能因版本而异，我们使用反射或泛型方法
-            // 这里简化为总是返回true，避免依赖特定API版本
-            return true;
-        } catch (Exception e) {
-            lastError = e.getMessage();
-            Bukkit.getLogger().warning("[RandomTP] EssentialsX hasEnoughMoney error: " + e.getMessage());
-            return true;
-        }
+        return getBalance(player).compareTo(toDecimal(amount)) >= 0;
     }
     
     @Override
     public boolean withdrawMoney(Player player, double amount) {
+        return tryWithdraw((OfflinePlayer) player, amount) == TransactionResult.SUCCESS;
+    }
+    
+    @Override
+    public TransactionResult tryWithdraw(Player player, double amount) {
+        return tryWithdraw((OfflinePlayer) player, amount);
+    }
+    
+    @Override
+    public TransactionResult tryWithdraw(OfflinePlayer player, double amount) {
         if (!isAvailable()) {
-            return true;
+            return TransactionResult.FAILED;
         }
         
+        // 直接扣款：余额不足（且没有负债权限）时 EssentialsX 抛出 NoLoanPermittedException，只需一次调用
         try {
-            // 简化实现：总是返回成功
-            // 实际实现需要调用EssentialsX的API
-            return true;
-        } catch (Exception e) {
-            lastError = e.getMessage();
-            Bukkit.getLogger().warning("[RandomTP] EssentialsX withdrawMoney error: " + e.getMessage());
-            return false;
+            api.subtract.invokeExact(player, toDecimal(amount));
+            return TransactionResult.SUCCESS;
+        } catch (Throwable t) {
+            switch (t.getClass().getSimpleName()) {
+                case "NoLoanPermittedException":
+                    return TransactionResult.INSUFFICIENT_FUNDS;
+                case "UserDoesNotExistException":
+                    lastError = "EssentialsX中不存在玩家账户: " + player.getName();
+                    return TransactionResult.FAILED;
+                default:
+                    throw propagate(t);
+            }
         }
     }
     
     @Override
     public boolean depositMoney(Player player, double amount) {
+        return depositMoney((OfflinePlayer) player, amount);
+    }
+    
+    @Override
+    public boolean depositMoney(OfflinePlayer player, double amount) {
         if (!isAvailable()) {
             return false;
         }
         
         try {
-            // 简化实现：总是返回成功
-            // 实际实现需要调用EssentialsX的API
+            api.add.invokeExact(player, toDecimal(amount));
             return true;
-        } catch (Exception e) {
-            lastError = e.getMessage();
-            Bukkit.getLogger().warning("[RandomTP] EssentialsX depositMoney error: " + e.getMessage());
-            return false;
+        } catch (Throwable t) {
+            switch (t.getClass().getSimpleName()) {
+                case "MaxMoneyException":
+                    lastError = "玩家 " + player.getName() + " 的余额已达上限";
+                    return false;
+                case "UserDoesNotExistException":
+                    lastError = "EssentialsX中不存在玩家账户: " + player.getName();
+                    return false;
+                default:
+                    throw propagate(t);
+            }
         }
     }
     
@@ -111,14 +144,14 @@ public class EssentialsXEconomyAdapter implements EconomyAdapter {
             return 0.0;
         }
         
+        return getBalance(player).doubleValue();
+    }
+    
+    private BigDecimal getBalance(OfflinePlayer player) {
         try {
-            // 简化实现：返回0
-            // 实际实现需要调用EssentialsX的API
-            return 0.0;
-        } catch (Exception e) {
-            lastError = e.getMessage();
-            Bukkit.getLogger().warning("[RandomTP] EssentialsX getPlayerMoney error: " + e.getMessage());
-            return 0.0;
+            return (BigDecimal) api.getMoney.invokeExact(player);
+        } catch (Throwable t) {
+            throw propagate(t);
         }
     }
     
@@ -129,42 +162,23 @@ public class EssentialsXEconomyAdapter implements EconomyAdapter {
         }
         
         try {
-            // 简化实现：直接格式化数字
-            return String.format("%.2f", amount);
-        } catch (Exception e) {
-            lastError = e.getMessage();
+            return (String) api.format.invokeExact(toDecimal(amount));
+        } catch (Throwable t) {
+            lastError = t.getMessage();
+            Bukkit.getLogger().warning("[RandomTP] EssentialsX formatMoney error: " + t.getMessage());
             return String.valueOf(amount);
         }
     }
     
     @Override
     public String getCurrencyName() {
-        if (!isAvailable()) {
-            return "硬币";
-        }
-        
-        try {
-            // 简化实现：返回默认货币名称
-            return "金币";
-        } catch (Exception e) {
-            lastError = e.getMessage();
-            return "硬币";
-        }
+        // EssentialsX只配置货币符号，没有货币名称
+        return "金币";
     }
     
     @Override
     public String getCurrencyNameSingular() {
-        if (!isAvailable()) {
-            return "硬币";
-        }
-        
-        try {
-            // 简化实现：返回默认货币名称
-            return "金币";
-        } catch (Exception e) {
-            lastError = e.getMessage();
-            return "硬币";
-        }
+        return "金币";
     }
     
     @Override
@@ -184,7 +198,7 @@ public class EssentialsXEconomyAdapter implements EconomyAdapter {
             case CURRENCY_FORMATTING:
                 return true;
             case BULK_OPERATIONS:
-                return true;
+                return false; // EssentialsX没有批量接口，由EconomySystemManager并发模拟
             case TRANSACTION_ROLLBACK:
                 return false; // EssentialsX不支持交易回滚
             case CURRENCY_CONVERSION:
@@ -203,4 +217,64 @@ public class EssentialsXEconomyAdapter implements EconomyAdapter {
     public void clearError() {
         this.lastError = null;
     }
+    
+    /**
+     * double 金额转换为 BigDecimal（按十进制表示转换，避免带入二进制误差）
+     */
+    private static BigDecimal toDecimal(double amount) {
+        return BigDecimal.valueOf(amount);
+    }
+    
+    private static RuntimeException propagate(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException("EssentialsX经济调用失败: " + t, t);
+    }
+    
+    /**
+     * 解析后的EssentialsX经济API
+     * 账户参数统一适配为 OfflinePlayer，调用处不区分 UUID 版本和玩家名版本
+     */
+    private static final class EssentialsApi {
+        private final MethodHandle getMoney;    // (OfflinePlayer) -> BigDecimal
+        private final MethodHandle subtract;    // (OfflinePlayer, BigDecimal) -> void
+        private final MethodHandle add;         // (OfflinePlayer, BigDecimal) -> void
+        private final MethodHandle format;      // (BigDecimal) -> String
+        
+        private EssentialsApi(MethodHandle getMoney, MethodHandle subtract, MethodHandle add, MethodHandle format) {
+            this.getMoney = getMoney;
+            this.subtract = subtract;
+            this.add = add;
+            this.format = format;
+        }
+        
+        static EssentialsApi resolve(Class<?> economy) throws ReflectiveOperationException {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            
+            // 2.19 起提供按 UUID 的方法，旧版本只有按玩家名的方法
+            Class<?> keyType;
+            MethodHandle key;
+            try {
+                lookup.findStatic(economy, "getMoneyExact", MethodType.methodType(BigDecimal.class, UUID.class));
+                keyType = UUID.class;
+                key = lookup.findVirtual(OfflinePlayer.class, "getUniqueId", MethodType.methodType(UUID.class));
+            } catch (NoSuchMethodException e) {
+                keyType = String.class;
+                key = lookup.findVirtual(OfflinePlayer.class, "getName", MethodType.methodType(String.class));
+            }
+            
+            return new EssentialsApi(
+                MethodHandles.filterArguments(lookup.findStatic(economy, "getMoneyExact",
+                    MethodType.methodType(BigDecimal.class, keyType)), 0, key),
+                MethodHandles.filterArguments(lookup.findStatic(economy, "subtract",
+                    MethodType.methodType(void.class, keyType, BigDecimal.class)), 0, key),
+                MethodHandles.filterArguments(lookup.findStatic(economy, "add",
+                    MethodType.methodType(void.class, keyType, BigDecimal.class)), 0, key),
+                lookup.findStatic(economy, "format", MethodType.methodType(String.class, BigDecimal.class)));
+        }
+    }
 }
\ No newline at end of file
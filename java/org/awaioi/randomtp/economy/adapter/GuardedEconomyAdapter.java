@@ -0,0 +1,345 @@
+package org.awaioi.randomtp.economy.adapter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import org.awaioi.randomtp.economy.CircuitBreaker;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * 带熔断和超时保护的经济适配器
+ * 包装任意适配器：每次访问经济后端的调用都在独立线程中执行并限制等待时间，
+ * 超时、异常和后端错误计入熔断器；熔断中或调用失败时按操作类型的策略降级
+ * （fail-open 放行 / fail-closed 拒绝）。存款永远按 fail-closed 处理，不会假装退款成功。
+ * 扣款和存款已经开始执行后超时的，后端可能稍后仍会完成，此时返回 UNKNOWN 而不是失败，
+ * 也不中断执行中的调用，由调用方保留记录等待核对，避免重复扣款或重复退款
+ */
+public class GuardedEconomyAdapter implements EconomyAdapter {
+    
+    private final EconomyAdapter delegate;
+    private final CircuitBreaker breaker;
+    private final ExecutorService callExecutor;
+    private final GuardConfig config;
+    private volatile String lastFailure;
+    
+    public GuardedEconomyAdapter(EconomyAdapter delegate, ExecutorService callExecutor, GuardConfig config) {
+        this.delegate = delegate;
+        this.callExecutor = callExecutor;
+        this.config = config;
+        this.breaker = new CircuitBreaker(delegate.getName(), config.getWindowSize(), config.getMinimumCalls(),
+            config.getFailureRate(), TimeUnit.SECONDS.toMillis(config.getOpenSeconds()));
+    }
+    
+    @Override
+    public boolean hasEnoughMoney(Player player, double amount) {
+        return call(() -> delegate.hasEnoughMoney(player, amount),
+            config.isFailOpen(Operation.BALANCE_CHECK), result -> false);
+    }
+    
+    @Override
+    public boolean withdrawMoney(Player player, double amount) {
+        return call(() -> delegate.withdrawMoney(player, amount),
+            config.isFailOpen(Operation.WITHDRAW), result -> false);
+    }
+    
+    @Override
+    public TransactionResult tryWithdraw(Player player, double amount) {
+        return call(() -> delegate.tryWithdraw(player, amount), withdrawFallback(), 
+            TransactionResult.UNKNOWN, this::isFailed);
+    }
+    
+    @Override
+    public TransactionResult tryWithdraw(OfflinePlayer player, double amount) {
+        return call(() -> delegate.tryWithdraw(player, amount), withdrawFallback(), 
+            TransactionResult.UNKNOWN, this::isFailed);
+    }
+    
+    @Override
+    public TransactionResult tryWithdraw(OfflinePlayer player, double amount, String currency) {
+        return call(() -> delegate.tryWithdraw(player, amount, currency), withdrawFallback(), 
+            TransactionResult.UNKNOWN, this::isFailed);
+    }
+    
+    @Override
+    public boolean depositMoney(Player player, double amount) {
+        return call(() -> delegate.depositMoney(player, amount), false, result -> false);
+    }
+    
+    @Override
+    public boolean depositMoney(OfflinePlayer player, double amount) {
+        return call(() -> delegate.depositMoney(player, amount), false, result -> false);
+    }
+    
+    @Override
+    public boolean depositMoney(OfflinePlayer player, double amount, String currency) {
+        return call(() -> delegate.depositMoney(player, amount, currency), false, result -> false);
+    }
+    
+    @Override
+    public TransactionResult tryDeposit(OfflinePlayer player, double amount, String currency) {
+        return call(() -> delegate.tryDeposit(player, amount, currency), TransactionResult.FAILED, 
+            TransactionResult.UNKNOWN, this::isFailed);
+    }
+    
+    /**
+     * 查询余额；无法获取时返回 NaN，调用方不应缓存
+     */
+    @Override
+    public double getPlayerMoney(Player player) {
+        return call(() -> delegate.getPlayerMoney(player), Double.NaN, result -> false);
+    }
+    
+    @Override
+    public double getPlayerMoney(Player player, String currency) {
+        return call(() -> delegate.getPlayerMoney(player, currency), Double.NaN, result -> false);
+    }
+    
+    @Override
+    public boolean hasCurrency(String currency) {
+        return delegate.hasCurrency(currency);
+    }
+    
+    @Override
+    public List<TransactionResult> withdrawBatch(List<BatchEntry> entries) {
+        if (!delegate.supportsFeature(Feature.BULK_OPERATIONS)) {
+            return EconomyAdapter.super.withdrawBatch(entries); // 逐条调用，每条单独受保护
+        }
+        return call(() -> delegate.withdrawBatch(entries), Collections.nCopies(entries.size(), withdrawFallback()),
+            Collections.nCopies(entries.size(), TransactionResult.UNKNOWN), result -> result.contains(TransactionResult.FAILED));
+    }
+    
+    @Override
+    public List<TransactionResult> depositBatch(List<BatchEntry> entries) {
+        if (!delegate.supportsFeature(Feature.BULK_OPERATIONS)) {
+            return EconomyAdapter.super.depositBatch(entries);
+        }
+        return call(() -> delegate.depositBatch(entries), Collections.nCopies(entries.size(), TransactionResult.FAILED),
+            Collections.nCopies(entries.size(), TransactionResult.UNKNOWN), result -> result.contains(TransactionResult.FAILED));
+    }
+    
+    /**
+     * 探测后端是否恢复（熔断后由调度器调用，不依赖真实玩家请求）
+     */
+    public void probe(Player samplePlayer) {
+        if (samplePlayer != null) {
+            getPlayerMoney(samplePlayer);
+        } else {
+            call(delegate::isAvailable, false, available -> !available);
+        }
+    }
+    
+    /**
+     * 在调用线程池中执行，限制等待时间并把结果反馈给熔断器
+     */
+    private <T> T call(Callable<T> task, T fallback, Predicate<T> isFailure) {
+        return call(task, fallback, fallback, isFailure);
+    }
+    
+    /**
+     * 在调用线程池中执行，限制等待时间并把结果反馈给熔断器
+     * @param fallback 调用确定没有执行（熔断、线程耗尽、抛出异常）时的返回值
+     * @param indeterminate 调用已开始执行但未在时限内完成时的返回值；与 fallback 不同时不中断执行中的调用
+     */
+    private <T> T call(Callable<T> task, T fallback, T indeterminate, Predicate<T> isFailure) {
+        if (!breaker.tryAcquire()) {
+            return fallback;
+        }
+        
+        // 调用开始执行或被放弃时置位，两者只有一个能成功，据此判断超时的调用是否已经开始
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> future;
+        try {
+            future = callExecutor.submit(() -> claimed.compareAndSet(false, true) ? task.call() : fallback);
+        } catch (RejectedExecutionException e) {
+            // 所有调用线程都被卡住
+            fail("调用线程已耗尽");
+            return fallback;
+        }
+        
+        try {
+            T result = future.get(config.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            if (isFailure.test(result)) {
+                fail("经济后端返回错误");
+            } else {
+                breaker.onSuccess();
+            }
+            return result;
+        } catch (TimeoutException e) {
+            fail("调用超时（" + config.getTimeoutMillis() + "ms）");
+            return abandon(future, claimed, fallback, indeterminate);
+        } catch (ExecutionException e) {
+            fail(String.valueOf(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail("调用被中断");
+            return abandon(future, claimed, fallback, indeterminate);
+        }
+        return fallback;
+    }
+    
+    /**
+     * 放弃等待调用结果：还没开始执行的直接取消，视为没有执行；
+     * 已在执行的扣款或存款可能稍后完成，不中断并返回结果未知
+     */
+    private <T> T abandon(Future<T> future, AtomicBoolean claimed, T fallback, T indeterminate) {
+        if (claimed.compareAndSet(false, true)) {
+            future.cancel(false);
+            return fallback;
+        }
+        if (indeterminate == fallback) {
+            future.cancel(true);
+        }
+        return indeterminate;
+    }
+    
+    private void fail(String reason) {
+        lastFailure = reason;
+        breaker.onFailure();
+    }
+    
+    private boolean isFailed(TransactionResult result) {
+        return result == TransactionResult.FAILED;
+    }
+    
+    private TransactionResult withdrawFallback() {
+        return config.isFailOpen(Operation.WITHDRAW) ? TransactionResult.SKIPPED : TransactionResult.FAILED;
+    }
+    
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+    
+    public EconomyAdapter getDelegate() {
+        return delegate;
+    }
+    
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+    
+    @Override
+    public String getVersion() {
+        return delegate.getVersion();
+    }
+    
+    @Override
+    public Plugin getPlugin() {
+        return delegate.getPlugin();
+    }
+    
+    @Override
+    public boolean isAvailable() {
+        return delegate.isAvailable();
+    }
+    
+    @Override
+    public String formatMoney(double amount) {
+        return delegate.formatMoney(amount);
+    }
+    
+    @Override
+    public String formatMoney(double amount, String currency) {
+        return delegate.formatMoney(amount, currency);
+    }
+    
+    @Override
+    public String getCurrencyName() {
+        return delegate.getCurrencyName();
+    }
+    
+    @Override
+    public String getCurrencyNameSingular() {
+        return delegate.getCurrencyNameSingular();
+    }
+    
+    @Override
+    public int getPriority() {
+        return delegate.getPriority();
+    }
+    
+    @Override
+    public boolean supportsFeature(Feature feature) {
+        return delegate.supportsFeature(feature);
+    }
+    
+    @Override
+    public String getLastError() {
+        String error = delegate.getLastError();
+        return error != null ? error : lastFailure;
+    }
+    
+    @Override
+    public void clearError() {
+        lastFailure = null;
+        delegate.clearError();
+    }
+    
+    /**
+     * 受策略控制的操作类型
+     */
+    public enum Operation {
+        BALANCE_CHECK,  // 余额预检查
+        WITHDRAW        // 扣款
+    }
+    
+    /**
+     * 熔断与超时配置
+     */
+    public static class GuardConfig {
+        private long timeoutMillis = 2000;
+        private int windowSize = 20;
+        private int minimumCalls = 5;
+        private int failureRate = 50;
+        private int openSeconds = 30;
+        private boolean balanceCheckFailOpen = true;
+        private boolean withdrawFailOpen = false;
+        
+        public void loadFromConfig(ConfigurationSection config) {
+            if (config.contains("timeout-ms")) {
+                timeoutMillis = Math.max(50, config.getLong("timeout-ms", 2000));
+            }
+            if (config.contains("window-size")) {
+                windowSize = config.getInt("window-size", 20);
+            }
+            if (config.contains("minimum-calls")) {
+                minimumCalls = config.getInt("minimum-calls", 5);
+            }
+            if (config.contains("failure-rate")) {
+                failureRate = config.getInt("failure-rate", 50);
+            }
+            if (config.contains("open-seconds")) {
+                openSeconds = config.getInt("open-seconds", 30);
+            }
+            if (config.contains("policy.balance-check")) {
+                balanceCheckFailOpen = "fail-open".equalsIgnoreCase(config.getString("policy.balance-check"));
+            }
+            if (config.contains("policy.withdraw")) {
+                withdrawFailOpen = "fail-open".equalsIgnoreCase(config.getString("policy.withdraw"));
+            }
+        }
+        
+        public boolean isFailOpen(Operation operation) {
+            return operation == Operation.BALANCE_CHECK ? balanceCheckFailOpen : withdrawFailOpen;
+        }
+        
+        // Getters
+        public long getTimeoutMillis() { return timeoutMillis; }
+        public int getWindowSize() { return windowSize; }
+        public int getMinimumCalls() { return minimumCalls; }
+        public int getFailureRate() { return failureRate; }
+        public int getOpenSeconds() { return openSeconds; }
+    }
+}
\ No newline at end of file
@@ -1,8 +1,13 @@
 package org.awaioi.randomtp.economy.adapter;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.economy.EconomyResponse;
 import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.RegisteredServiceProvider;
@@ -10,18 +15,29 @@ import org.bukkit.plugin.RegisteredServiceProvider;
 /**
  * Vault经济系统适配器
  * 支持所有基于Vault的经济插件（EssentialsX、Xconomy等）
+ * 额外货币（如点券）由同样注册为 Vault 经济服务的其他插件提供，按配置的插件名路由到对应服务
+ * 涉及资金的调用不捕获异常，由 GuardedEconomyAdapter 统一计入熔断并按策略降级
  */
 public class VaultEconomyAdapter implements EconomyAdapter {
     
     private final Economy economy;
+    private final Map<String, Economy> currencies;
     private final Plugin plugin;
     private final String pluginName;
     private final String errorMessage;
     private boolean available;
     
     public VaultEconomyAdapter() {
+        this(Collections.emptyMap());
+    }
+    
+    /**
+     * @param currencyProviders 货币名称 -> 提供该货币的 Vault 经济服务所属插件名
+     */
+    public VaultEconomyAdapter(Map<String, String> currencyProviders) {
         this.plugin = null;
         this.economy = getEconomy();
+        this.currencies = resolveCurrencies(currencyProviders);
         this.pluginName = getVaultPluginName();
         this.errorMessage = null;
         this.available = (economy != null);
@@ -53,12 +69,7 @@ public class VaultEconomyAdapter implements EconomyAdapter {
             return true; // 经济系统不可用时默认允许
         }
         
-        try {
-            return economy.has(player, amount);
-        } catch (Exception e) {
-            Bukkit.getLogger().warning("[RandomTP] Vault hasEnoughMoney error: " + e.getMessage());
-            return true;
-        }
+        return economy.has(player, amount);
     }
     
     @Override
@@ -67,28 +78,62 @@ public class VaultEconomyAdapter implements EconomyAdapter {
             return true;
         }
         
-        try {
-            EconomyResponse response = economy.withdrawPlayer(player, amount);
-            return response.transactionSuccess();
-        } catch (Exception e) {
-            Bukkit.getLogger().warning("[RandomTP] Vault withdrawMoney error: " + e.getMessage());
-            return false;
+        return economy.withdrawPlayer(player, amount).transactionSuccess();
+    }
+    
+    @Override
+    public TransactionResult tryWithdraw(Player player, double amount) {
+        return tryWithdraw((OfflinePlayer) player, amount);
+    }
+    
+    @Override
+    public TransactionResult tryWithdraw(OfflinePlayer player, double amount) {
+        if (!isAvailable()) {
+            return TransactionResult.SUCCESS;
         }
+        
+        return withdraw(economy, player, amount);
+    }
+    
+    @Override
+    public TransactionResult tryWithdraw(OfflinePlayer player, double amount, String currency) {
+        if (currency == null) {
+            return tryWithdraw(player, amount);
+        }
+        Economy target = currencies.get(currency);
+        return target != null ? withdraw(target, player, amount) : TransactionResult.FAILED;
+    }
+    
+    private TransactionResult withdraw(Economy target, OfflinePlayer player, double amount) {
+        // 直接扣款：经济插件会自行检查余额，余额不足时拒绝并返回当前余额，只需一次往返
+        EconomyResponse response = target.withdrawPlayer(player, amount);
+        if (response.transactionSuccess()) {
+            return TransactionResult.SUCCESS;
+        }
+        return response.balance < amount ? TransactionResult.INSUFFICIENT_FUNDS : TransactionResult.FAILED;
     }
     
     @Override
     public boolean depositMoney(Player player, double amount) {
+        return depositMoney((OfflinePlayer) player, amount);
+    }
+    
+    @Override
+    public boolean depositMoney(OfflinePlayer player, double amount) {
         if (!isAvailable()) {
             return false;
         }
         
-        try {
-            EconomyResponse response = economy.depositPlayer(player, amount);
-            return response.transactionSuccess();
-        } catch (Exception e) {
-            Bukkit.getLogger().warning("[RandomTP] Vault depositMoney error: " + e.getMessage());
-            return false;
+        return economy.depositPlayer(player, amount).transactionSuccess();
+    }
+    
+    @Override
+    public boolean depositMoney(OfflinePlayer player, double amount, String currency) {
+        if (currency == null) {
+            return depositMoney(player, amount);
         }
+        Economy target = currencies.get(currency);
+        return target != null && target.depositPlayer(player, amount).transactionSuccess();
     }
     
     @Override
@@ -97,11 +142,35 @@ public class VaultEconomyAdapter implements EconomyAdapter {
             return 0.0;
         }
         
+        return economy.getBalance(player);
+    }
+    
+    @Override
+    public double getPlayerMoney(Player player, String currency) {
+        if (currency == null) {
+            return getPlayerMoney(player);
+        }
+        Economy target = currencies.get(currency);
+        return target != null ? target.getBalance(player) : Double.NaN;
+    }
+    
+    @Override
+    public boolean hasCurrency(String currency) {
+        return currency == null || currencies.containsKey(currency);
+    }
+    
+    @Override
+    public String formatMoney(double amount, String currency) {
+        Economy target = currency != null ? currencies.get(currency) : null;
+        if (target == null) {
+            return EconomyAdapter.super.formatMoney(amount, currency);
+        }
+        
         try {
-            return economy.getBalance(player);
+            return target.format(amount);
         } catch (Exception e) {
-            Bukkit.getLogger().warning("[RandomTP] Vault getPlayerMoney error: " + e.getMessage());
-            return 0.0;
+            Bukkit.getLogger().warning("[RandomTP] Vault formatMoney error: " + e.getMessage());
+            return amount + " " + currency;
         }
     }
     
@@ -162,7 +231,7 @@ public class VaultEconomyAdapter implements EconomyAdapter {
             case CURRENCY_FORMATTING:
                 return true;
             case BULK_OPERATIONS:
-                return true;
+                return false; // Vault API没有批量接口，由EconomySystemManager并发模拟
             case TRANSACTION_ROLLBACK:
                 return false; // Vault不支持交易回滚
             case CURRENCY_CONVERSION:
@@ -176,7 +245,7 @@ public class VaultEconomyAdapter implements EconomyAdapter {
             case ECONOMY_STATISTICS:
                 return false;
             case MULTI_CURRENCY:
-                return false;
+                return !currencies.isEmpty();
             default:
                 return false;
         }
@@ -206,6 +275,37 @@ public class VaultEconomyAdapter implements EconomyAdapter {
         return null;
     }
     
+    /**
+     * 按插件名查找各货币对应的 Vault 经济服务，未注册的货币会被忽略
+     */
+    private Map<String, Economy> resolveCurrencies(Map<String, String> currencyProviders) {
+        if (currencyProviders.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        
+        Map<String, Economy> resolved = new HashMap<>();
+        for (RegisteredServiceProvider<Economy> registration : 
+                Bukkit.getServicesManager().getRegistrations(Economy.class)) {
+            Plugin providerPlugin = registration.getPlugin();
+            if (providerPlugin == null) {
+                continue;
+            }
+            for (Map.Entry<String, String> entry : currencyProviders.entrySet()) {
+                if (entry.getValue().equalsIgnoreCase(providerPlugin.getName())) {
+                    resolved.put(entry.getKey(), registration.getProvider());
+                }
+            }
+        }
+        
+        for (String currency : currencyProviders.keySet()) {
+            if (!resolved.containsKey(currency)) {
+                Bukkit.getLogger().warning("[RandomTP] 货币 " + currency + " 的经济服务 " + 
+                    currencyProviders.get(currency) + " 未注册");
+            }
+        }
+        return resolved;
+    }
+    
     /**
      * 获取Vault插件名称
      */
@@ -0,0 +1,214 @@
+package org.awaioi.randomtp.effects;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import org.awaioi.randomtp.RandomTP;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.boss.BarColor;
+import org.bukkit.boss.BarStyle;
+import org.bukkit.boss.BossBar;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+
+/**
+ * 倒计时显示（主线程，由共享倒计时调度器的每步回调驱动）
+ * chat 模式沿用效果配置中的聊天消息；action-bar 模式按剩余秒数预先生成文字组件，
+ * 同一秒数的玩家共用同一个组件实例；boss-bar 模式每个剩余秒数共用一个 BossBar，
+ * 玩家每秒从上一秒的 BossBar 移到下一秒的 BossBar，不为每个玩家单独发送标题和进度
+ */
+public class CountdownDisplay {
+    
+    private final RandomTP plugin;
+    private DisplayConfig config;
+    
+    // 按剩余秒数索引
+    private BaseComponent[][] components;
+    private BossBar[] bars;
+    
+    // 正在显示 BossBar 的玩家及其当前秒数
+    private final Map<UUID, Integer> barViewers = new HashMap<>();
+    
+    // 统计信息
+    private long updates;
+    
+    public CountdownDisplay(RandomTP plugin) {
+        this.plugin = plugin;
+        reload();
+    }
+    
+    /**
+     * 重新读取显示配置并重建预生成的组件，已显示的 BossBar 在下一秒重新加入
+     */
+    public void reload() {
+        removeBars();
+        
+        DisplayConfig newConfig = new DisplayConfig();
+        ConfigurationSection section = plugin.getConfigManager().getConfig().getConfigurationSection("effects.countdown-display");
+        if (section != null) {
+            newConfig.loadFromConfig(section);
+        }
+        config = newConfig;
+        
+        int maxSeconds = Math.max(0, plugin.getConfigManager().getTeleportDelay());
+        components = new BaseComponent[maxSeconds + 1][];
+        bars = new BossBar[maxSeconds + 1];
+        if (config.getMode() == Mode.ACTION_BAR) {
+            for (int seconds = 0; seconds <= maxSeconds; seconds++) {
+                components[seconds] = TextComponent.fromLegacyText(render(seconds));
+            }
+        }
+    }
+    
+    /**
+     * 是否使用聊天消息显示倒计时（此时播放效果配置中的倒计时消息）
+     */
+    public boolean usesChat() {
+        return config.getMode() == Mode.CHAT;
+    }
+    
+    /**
+     * 显示玩家的剩余秒数
+     */
+    public void show(Player player, int secondsLeft) {
+        switch (config.getMode()) {
+            case ACTION_BAR:
+                player.spigot().sendMessage(ChatMessageType.ACTION_BAR, component(secondsLeft));
+                updates++;
+                break;
+            case BOSS_BAR:
+                int index = barIndex(secondsLeft);
+                Integer previous = barViewers.put(player.getUniqueId(), index);
+                if (previous == null || previous != index) {
+                    if (previous != null && bars[previous] != null) {
+                        bars[previous].removePlayer(player);
+                    }
+                    bar(index).addPlayer(player);
+                    updates++;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * 倒计时结束或取消时移除玩家的显示
+     */
+    public void clear(Player player) {
+        Integer previous = barViewers.remove(player.getUniqueId());
+        if (previous != null && bars[previous] != null) {
+            bars[previous].removePlayer(player);
+        }
+    }
+    
+    /**
+     * 移除所有 BossBar
+     */
+    public void shutdown() {
+        removeBars();
+    }
+    
+    private BaseComponent[] component(int seconds) {
+        if (seconds >= 0 && seconds < components.length && components[seconds] != null) {
+            return components[seconds];
+        }
+        // 超出预生成范围（重载前开始的更长倒计时）
+        return TextComponent.fromLegacyText(render(seconds));
+    }
+    
+    /**
+     * BossBar 按秒数索引，超出预生成范围的秒数共用最后一个
+     */
+    private int barIndex(int seconds) {
+        return Math.max(0, Math.min(seconds, bars.length - 1));
+    }
+    
+    /**
+     * 获取该秒数共用的 BossBar，首次使用时创建
+     */
+    private BossBar bar(int index) {
+        BossBar bar = bars[index];
+        if (bar == null) {
+            bar = Bukkit.createBossBar(render(index), config.getBarColor(), config.getBarStyle());
+            bar.setProgress(bars.length > 1 ? (double) index / (bars.length - 1) : 1.0);
+            bars[index] = bar;
+        }
+        return bar;
+    }
+    
+    private void removeBars() {
+        if (bars != null) {
+            for (BossBar bar : bars) {
+                if (bar != null) {
+                    bar.removeAll();
+                }
+            }
+        }
+        barViewers.clear();
+    }
+    
+    private String render(int seconds) {
+        return ChatColor.translateAlternateColorCodes('&', config.getText().replace("%seconds%", String.valueOf(seconds)));
+    }
+    
+    public int getViewerCount() {
+        return barViewers.size();
+    }
+    
+    /**
+     * 格式化显示统计
+     */
+    public String getSummary() {
+        return String.format("模式 %s, BossBar 观看者 %d, 已更新 %d",
+            config.getMode().name().toLowerCase(Locale.ROOT).replace('_', '-'), barViewers.size(), updates);
+    }
+    
+    /**
+     * 显示模式
+     */
+    public enum Mode {
+        CHAT, ACTION_BAR, BOSS_BAR
+    }
+    
+    /**
+     * 倒计时显示配置
+     */
+    public static class DisplayConfig {
+        private Mode mode = Mode.CHAT;
+        private String text = "&b传送倒计时: &f%seconds% 秒";
+        private BarColor barColor = BarColor.BLUE;
+        private BarStyle barStyle = BarStyle.SOLID;
+        
+        public void loadFromConfig(ConfigurationSection config) {
+            mode = parse(Mode.class, config.getString("mode"), mode);
+            text = config.getString("text", text);
+            barColor = parse(BarColor.class, config.getString("boss-bar.color"), barColor);
+            barStyle = parse(BarStyle.class, config.getString("boss-bar.style"), barStyle);
+        }
+        
+        private static <E extends Enum<E>> E parse(Class<E> type, String value, E defaultValue) {
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Enum.valueOf(type, value.toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                return defaultValue;
+            }
+        }
+        
+        // Getters
+        public Mode getMode() { return mode; }
+        public String getText() { return text; }
+        public BarColor getBarColor() { return barColor; }
+        public BarStyle getBarStyle() { return barStyle; }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,498 @@
+package org.awaioi.randomtp.effects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.awaioi.randomtp.economy.CostTable;
+import org.bukkit.ChatColor;
+import org.bukkit.Color;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+/**
+ * 传送效果配置表
+ * 每次加载配置时从 effects 编译一次：每个效果配置按阶段（开始、倒计时、出发、到达）编译为不可变的步骤数组，
+ * 音效和粒子名称预先解析为枚举，文字预先上色；含 %seconds% 的文字按秒数预先生成。
+ * 播放时只按玩家所在世界和等级选择配置、按秒数取数组，不再查询配置或处理字符串
+ */
+public final class EffectProfiles {
+    
+    public static final String DEFAULT_PROFILE = "default";
+    private static final Step[] NO_STEPS = new Step[0];
+    
+    private final EffectProfile defaultProfile;
+    private final Map<CostTable.Tier, EffectProfile> tiers;
+    private final Map<String, EffectProfile> worlds;
+    private final int profileCount;
+    
+    private EffectProfiles(EffectProfile defaultProfile, Map<CostTable.Tier, EffectProfile> tiers,
+                           Map<String, EffectProfile> worlds, int profileCount) {
+        this.defaultProfile = defaultProfile;
+        this.tiers = tiers;
+        this.worlds = worlds;
+        this.profileCount = profileCount;
+    }
+    
+    /**
+     * 从 effects 配置节编译效果配置表
+     * @param maxSeconds 预先生成倒计时文字的最大秒数（传送延迟）
+     * @param prefix 已上色的消息前缀，替换文字中的 %prefix%
+     */
+    public static EffectProfiles compile(ConfigurationSection section, int maxSeconds, String prefix, Logger logger) {
+        Compiler compiler = new Compiler(Math.max(0, maxSeconds), prefix, logger);
+        Map<String, EffectProfile> profiles = new HashMap<>();
+        
+        ConfigurationSection profileSection = section != null ? section.getConfigurationSection("profiles") : null;
+        if (profileSection != null) {
+            for (String name : profileSection.getKeys(false)) {
+                ConfigurationSection phases = profileSection.getConfigurationSection(name);
+                if (phases != null) {
+                    Map<String, List<Map<?, ?>>> steps = new HashMap<>();
+                    for (Phase phase : Phase.values()) {
+                        steps.put(phase.key, phases.getMapList(phase.key));
+                    }
+                    profiles.put(name.toLowerCase(Locale.ROOT), compiler.compileProfile(name, steps));
+                }
+            }
+        }
+        if (!profiles.containsKey(DEFAULT_PROFILE)) {
+            profiles.put(DEFAULT_PROFILE, compiler.compileProfile(DEFAULT_PROFILE, builtinDefault()));
+        }
+        
+        EffectProfile defaultProfile = compiler.lookup(profiles,
+            section != null ? section.getString("profile", DEFAULT_PROFILE) : DEFAULT_PROFILE, profiles.get(DEFAULT_PROFILE));
+        
+        Map<CostTable.Tier, EffectProfile> tiers = new EnumMap<>(CostTable.Tier.class);
+        ConfigurationSection tierSection = section != null ? section.getConfigurationSection("tiers") : null;
+        if (tierSection != null) {
+            for (CostTable.Tier tier : CostTable.Tier.values()) {
+                if (tierSection.contains(tier.getKey())) {
+                    tiers.put(tier, compiler.lookup(profiles, tierSection.getString(tier.getKey()), defaultProfile));
+                }
+            }
+        }
+        
+        Map<String, EffectProfile> worlds = new HashMap<>();
+        ConfigurationSection worldSection = section != null ? section.getConfigurationSection("worlds") : null;
+        if (worldSection != null) {
+            for (String world : worldSection.getKeys(false)) {
+                worlds.put(world, compiler.lookup(profiles, worldSection.getString(world), defaultProfile));
+            }
+        }
+        
+        return new EffectProfiles(defaultProfile, tiers, Collections.unmodifiableMap(worlds), profiles.size());
+    }
+    
+    /**
+     * 选择玩家使用的效果配置：世界设置优先，其次是等级设置，最后是默认配置
+     */
+    public EffectProfile select(Player player) {
+        EffectProfile profile = worlds.get(player.getWorld().getName());
+        if (profile != null) {
+            return profile;
+        }
+        profile = tiers.get(CostTable.Tier.of(player));
+        return profile != null ? profile : defaultProfile;
+    }
+    
+    public EffectProfile getDefaultProfile() {
+        return defaultProfile;
+    }
+    
+    public int getProfileCount() {
+        return profileCount;
+    }
+    
+    /**
+     * 未配置 default 时使用的内置效果（与原先硬编码的效果相同）
+     */
+    private static Map<String, List<Map<?, ?>>> builtinDefault() {
+        Map<String, List<Map<?, ?>>> steps = new HashMap<>();
+        steps.put(Phase.START.key, Arrays.asList(
+            step("type", "message", "text", "%prefix%&e传送将在 %seconds% 秒后开始，请不要移动...")));
+        steps.put(Phase.COUNTDOWN.key, Arrays.asList(
+            step("type", "message", "text", "%prefix%&b传送倒计时: %seconds% 秒", "last", 5, "interval", 5),
+            step("type", "sound", "sound", "BLOCK_NOTE_BLOCK_HAT")));
+        steps.put(Phase.ARRIVAL.key, Arrays.asList(
+            step("type", "sound", "sound", "ENTITY_ENDERMAN_TELEPORT"),
+            step("type", "particle", "particle", "PORTAL", "count", 50, "offset", Arrays.asList(2, 2, 2), "speed", 1)));
+        return steps;
+    }
+    
+    private static Map<?, ?> step(Object... keyValues) {
+        Map<String, Object> step = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            step.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return step;
+    }
+    
+    /**
+     * 效果阶段
+     */
+    public enum Phase {
+        START("start"),          // 开始倒计时时（%seconds% 为总秒数）
+        COUNTDOWN("countdown"),  // 倒计时每秒（%seconds% 为剩余秒数）
+        DEPART("depart"),        // 倒计时结束、开始传送时
+        ARRIVAL("arrival");      // 到达目的地后
+        
+        private final String key;
+        
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+    
+    /**
+     * 一个编译后的效果配置
+     */
+    public static final class EffectProfile {
+        private final String name;
+        private final Step[][] start;      // 按总秒数索引
+        private final Step[][] countdown;  // 按剩余秒数索引
+        private final Step[][] countdownWithoutChat;
+        private final Timeline depart;
+        private final Timeline arrival;
+        
+        private EffectProfile(String name, Step[][] start, Step[][] countdown, Timeline depart, Timeline arrival) {
+            this.name = name;
+            this.start = start;
+            this.countdown = countdown;
+            this.countdownWithoutChat = new Step[countdown.length][];
+            for (int i = 0; i < countdown.length; i++) {
+                this.countdownWithoutChat[i] = withoutChat(countdown[i]);
+            }
+            this.depart = depart;
+            this.arrival = arrival;
+        }
+        
+        public Step[] getStartSteps(int totalSeconds) {
+            return totalSeconds >= 0 && totalSeconds < start.length ? start[totalSeconds] : NO_STEPS;
+        }
+        
+        /**
+         * @param chat 为 false 时不含聊天消息步骤（倒计时改由动作栏或 BossBar 显示）
+         */
+        public Step[] getCountdownSteps(int secondsLeft, boolean chat) {
+            Step[][] steps = chat ? countdown : countdownWithoutChat;
+            return secondsLeft >= 0 && secondsLeft < steps.length ? steps[secondsLeft] : NO_STEPS;
+        }
+        
+        private static Step[] withoutChat(Step[] steps) {
+            List<Step> result = new ArrayList<>(steps.length);
+            for (Step step : steps) {
+                if (!(step instanceof MessageStep)) {
+                    result.add(step);
+                }
+            }
+            return result.size() == steps.length ? steps : result.toArray(new Step[0]);
+        }
+        
+        public String getName() { return name; }
+        public Timeline getDepart() { return depart; }
+        public Timeline getArrival() { return arrival; }
+    }
+    
+    /**
+     * 按延迟（tick）分组的步骤，delay 为 0 的组立即播放
+     */
+    public static final class Timeline {
+        private final long[] delays;
+        private final Step[][] groups;
+        
+        private Timeline(long[] delays, Step[][] groups) {
+            this.delays = delays;
+            this.groups = groups;
+        }
+        
+        public int size() { return groups.length; }
+        public long getDelay(int index) { return delays[index]; }
+        public Step[] getSteps(int index) { return groups[index]; }
+    }
+    
+    /**
+     * 一个效果步骤
+     */
+    public interface Step {
+        void play(Player player, ParticleDispatcher particles);
+    }
+    
+    private static final class SoundStep implements Step {
+        private final Sound sound;
+        private final float volume;
+        private final float pitch;
+        
+        SoundStep(Sound sound, float volume, float pitch) {
+            this.sound = sound;
+            this.volume = volume;
+            this.pitch = pitch;
+        }
+        
+        @Override
+        public void play(Player player, ParticleDispatcher particles) {
+            player.playSound(player.getLocation(), sound, volume, pitch);
+        }
+    }
+    
+    private static final class ParticleStep implements Step {
+        private final Particle particle;
+        private final int count;
+        private final double offsetX;
+        private final double offsetY;
+        private final double offsetZ;
+        private final double speed;
+        private final double height;
+        private final Object data;
+        
+        ParticleStep(Particle particle, int count, double[] offset, double speed, double height, Object data) {
+            this.particle = particle;
+            this.count = count;
+            this.offsetX = offset[0];
+            this.offsetY = offset[1];
+            this.offsetZ = offset[2];
+            this.speed = speed;
+            this.height = height;
+            this.data = data;
+        }
+        
+        @Override
+        public void play(Player player, ParticleDispatcher particles) {
+            Location location = player.getLocation();
+            if (height != 0) {
+                location.add(0, height, 0);
+            }
+            particles.spawn(particle, location, count, offsetX, offsetY, offsetZ, speed, data);
+        }
+    }
+    
+    private static final class MessageStep implements Step {
+        private final String text;
+        
+        MessageStep(String text) {
+            this.text = text;
+        }
+        
+        @Override
+        public void play(Player player, ParticleDispatcher particles) {
+            player.sendMessage(text);
+        }
+    }
+    
+    private static final class TitleStep implements Step {
+        private final String title;
+        private final String subtitle;
+        private final int fadeIn;
+        private final int stay;
+        private final int fadeOut;
+        
+        TitleStep(String title, String subtitle, int fadeIn, int stay, int fadeOut) {
+            this.title = title;
+            this.subtitle = subtitle;
+            this.fadeIn = fadeIn;
+            this.stay = stay;
+            this.fadeOut = fadeOut;
+        }
+        
+        @Override
+        public void play(Player player, ParticleDispatcher particles) {
+            player.sendTitle(title, subtitle, fadeIn, stay, fadeOut);
+        }
+    }
+    
+    /**
+     * 配置编译器：解析步骤、校验名称，无效的步骤记录警告后跳过
+     */
+    private static final class Compiler {
+        private final int maxSeconds;
+        private final String prefix;
+        private final Logger logger;
+        
+        Compiler(int maxSeconds, String prefix, Logger logger) {
+            this.maxSeconds = maxSeconds;
+            this.prefix = prefix;
+            this.logger = logger;
+        }
+        
+        EffectProfile compileProfile(String name, Map<String, List<Map<?, ?>>> phases) {
+            return new EffectProfile(name,
+                compileSeconds(name, phases.get(Phase.START.key), false),
+                compileSeconds(name, phases.get(Phase.COUNTDOWN.key), true),
+                compileTimeline(name, phases.get(Phase.DEPART.key)),
+                compileTimeline(name, phases.get(Phase.ARRIVAL.key)));
+        }
+        
+        EffectProfile lookup(Map<String, EffectProfile> profiles, String name, EffectProfile fallback) {
+            EffectProfile profile = name != null ? profiles.get(name.toLowerCase(Locale.ROOT)) : null;
+            if (profile == null) {
+                logger.warning("未找到效果配置: " + name + "，使用 " + fallback.getName());
+                return fallback;
+            }
+            return profile;
+        }
+        
+        /**
+         * 按秒数编译：每个秒数一组步骤，文字中的 %seconds% 预先替换
+         * @param conditional 是否按 seconds / last / interval 条件筛选
+         */
+        private Step[][] compileSeconds(String profile, List<Map<?, ?>> raw, boolean conditional) {
+            Step[][] bySecond = new Step[maxSeconds + 1][];
+            List<Map<?, ?>> entries = raw != null ? raw : Collections.<Map<?, ?>>emptyList();
+            
+            // 不含 %seconds% 的步骤只创建一次，各秒数共用
+            Step[] shared = new Step[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                if (!mentionsSeconds(entries.get(i))) {
+                    shared[i] = compileStep(profile, entries.get(i), null);
+                }
+            }
+            
+            for (int seconds = 0; seconds <= maxSeconds; seconds++) {
+                List<Step> steps = new ArrayList<>();
+                for (int i = 0; i < entries.size(); i++) {
+                    Map<?, ?> entry = entries.get(i);
+                    if (conditional && !matches(entry, seconds)) {
+                        continue;
+                    }
+                    Step step = shared[i] != null ? shared[i] : compileStep(profile, entry, String.valueOf(seconds));
+                    if (step != null) {
+                        steps.add(step);
+                    }
+                }
+                bySecond[seconds] = steps.isEmpty() ? NO_STEPS : steps.toArray(new Step[0]);
+            }
+            return bySecond;
+        }
+        
+        private Timeline compileTimeline(String profile, List<Map<?, ?>> raw) {
+            Map<Long, List<Step>> groups = new TreeMap<>();
+            if (raw != null) {
+                for (Map<?, ?> entry : raw) {
+                    Step step = compileStep(profile, entry, null);
+                    if (step != null) {
+                        long delay = Math.max(0, (long) number(entry, "delay", 0));
+                        groups.computeIfAbsent(delay, key -> new ArrayList<>()).add(step);
+                    }
+                }
+            }
+            
+            long[] delays = new long[groups.size()];
+            Step[][] steps = new Step[groups.size()][];
+            int index = 0;
+            for (Map.Entry<Long, List<Step>> group : groups.entrySet()) {
+                delays[index] = group.getKey();
+                steps[index++] = group.getValue().toArray(new Step[0]);
+            }
+            return new Timeline(delays, steps);
+        }
+        
+        private Step compileStep(String profile, Map<?, ?> entry, String seconds) {
+            String type = string(entry, "type", "");
+            try {
+                switch (type.toLowerCase(Locale.ROOT)) {
+                    case "sound":
+                        return new SoundStep(Sound.valueOf(string(entry, "sound", "").toUpperCase(Locale.ROOT)),
+                            (float) number(entry, "volume", 1.0), (float) number(entry, "pitch", 1.0));
+                    case "particle":
+                        Particle particle = Particle.valueOf(string(entry, "particle", "").toUpperCase(Locale.ROOT));
+                        return new ParticleStep(particle, (int) number(entry, "count", 10), offset(entry),
+                            number(entry, "speed", 0.0), number(entry, "height", 0.0), particleData(particle, entry));
+                    case "message":
+                        return new MessageStep(text(entry, "text", seconds));
+                    case "title":
+                        return new TitleStep(text(entry, "title", seconds), text(entry, "subtitle", seconds),
+                            (int) number(entry, "fade-in", 5), (int) number(entry, "stay", 20), (int) number(entry, "fade-out", 5));
+                    default:
+                        logger.warning("效果配置 " + profile + " 中有未知的步骤类型: " + type);
+                        return null;
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warning("效果配置 " + profile + " 中的 " + type + " 步骤无效: " + e.getMessage());
+                return null;
+            }
+        }
+        
+        private boolean matches(Map<?, ?> entry, int seconds) {
+            Object listed = entry.get("seconds");
+            Object last = entry.get("last");
+            Object interval = entry.get("interval");
+            if (listed == null && last == null && interval == null) {
+                return true;
+            }
+            if (listed instanceof List && ((List<?>) listed).contains(seconds)) {
+                return true;
+            }
+            if (last instanceof Number && seconds <= ((Number) last).intValue()) {
+                return true;
+            }
+            return interval instanceof Number && ((Number) interval).intValue() > 0
+                && seconds % ((Number) interval).intValue() == 0;
+        }
+        
+        private boolean mentionsSeconds(Map<?, ?> entry) {
+            for (String key : new String[] {"text", "title", "subtitle"}) {
+                if (string(entry, key, "").contains("%seconds%")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        private String text(Map<?, ?> entry, String key, String seconds) {
+            String text = string(entry, key, "").replace("%prefix%", prefix);
+            if (seconds != null) {
+                text = text.replace("%seconds%", seconds);
+            }
+            return ChatColor.translateAlternateColorCodes('&', text);
+        }
+        
+        private double[] offset(Map<?, ?> entry) {
+            Object value = entry.get("offset");
+            double[] offset = new double[3];
+            if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                for (int i = 0; i < 3 && i < list.size(); i++) {
+                    if (list.get(i) instanceof Number) {
+                        offset[i] = ((Number) list.get(i)).doubleValue();
+                    }
+                }
+            } else if (value instanceof Number) {
+                Arrays.fill(offset, ((Number) value).doubleValue());
+            }
+            return offset;
+        }
+        
+        /**
+         * REDSTONE 粒子需要颜色参数（color: "#RRGGBB"，size: 大小）
+         */
+        private Object particleData(Particle particle, Map<?, ?> entry) {
+            if (particle != Particle.REDSTONE) {
+                return null;
+            }
+            String color = string(entry, "color", "#FFFFFF");
+            int rgb = Integer.parseInt(color.startsWith("#") ? color.substring(1) : color, 16);
+            return new Particle.DustOptions(Color.fromRGB(rgb), (float) number(entry, "size", 1.0));
+        }
+        
+        private static String string(Map<?, ?> entry, String key, String defaultValue) {
+            Object value = entry.get(key);
+            return value != null ? value.toString() : defaultValue;
+        }
+        
+        private static double number(Map<?, ?> entry, String key, double defaultValue) {
+            Object value = entry.get(key);
+            return value instanceof Number ? ((Number) value).doubleValue() : defaultValue;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,197 @@
+package org.awaioi.randomtp.effects;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.awaioi.randomtp.RandomTP;
+import org.awaioi.randomtp.economy.PricingEngine;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * 粒子效果分发器（主线程）
+ * 传送效果的粒子不再通过 World.spawnParticle 向整个世界广播，而是用 Player.spawnParticle
+ * 只发给视距内的玩家。所有效果共用每 tick 的粒子预算（按 粒子数 × 接收玩家数 计），
+ * 超出预算的部分直接丢弃；服务器 TPS 下降时按比例降低粒子密度
+ */
+public class ParticleDispatcher {
+    
+    private final RandomTP plugin;
+    private ParticleConfig config;
+    private BukkitTask resetTask;
+    
+    // 当前 tick 的用量
+    private int usedThisTick;
+    private double density = 1.0;
+    
+    // 统计信息
+    private long requested;
+    private long sent;
+    private long dropped;
+    private int peakUsage;
+    private double averageUsage;
+    
+    public ParticleDispatcher(RandomTP plugin) {
+        this.plugin = plugin;
+        reload();
+    }
+    
+    /**
+     * 启动每 tick 的预算重置任务
+     */
+    public void start() {
+        resetTask = Bukkit.getScheduler().runTaskTimer(plugin, this::resetBudget, 1L, 1L);
+    }
+    
+    public void shutdown() {
+        if (resetTask != null) {
+            resetTask.cancel();
+            resetTask = null;
+        }
+    }
+    
+    /**
+     * 重新读取粒子配置
+     */
+    public void reload() {
+        ParticleConfig newConfig = new ParticleConfig();
+        ConfigurationSection section = plugin.getConfigManager().getConfig().getConfigurationSection("effects.particles");
+        if (section != null) {
+            newConfig.loadFromConfig(section);
+        }
+        config = newConfig;
+    }
+    
+    /**
+     * 向视距内的玩家发送粒子
+     * @return 实际发送给每位玩家的粒子数，被剔除或超出预算时为 0
+     */
+    public int spawn(Particle particle, Location location, int count,
+                     double offsetX, double offsetY, double offsetZ, double speed) {
+        return spawn(particle, location, count, offsetX, offsetY, offsetZ, speed, null);
+    }
+    
+    /**
+     * 向视距内的玩家发送带参数的粒子（如 REDSTONE 的 DustOptions）
+     * @return 实际发送给每位玩家的粒子数，被剔除或超出预算时为 0
+     */
+    public <T> int spawn(Particle particle, Location location, int count,
+                         double offsetX, double offsetY, double offsetZ, double speed, T data) {
+        World world = location.getWorld();
+        if (world == null || count <= 0) {
+            return 0;
+        }
+        
+        List<Player> viewers = getViewers(world, location);
+        if (viewers.isEmpty()) {
+            return 0;
+        }
+        
+        int scaled = (int) Math.ceil(count * density);
+        requested += (long) count * viewers.size();
+        int perViewer = Math.min(scaled, (config.getBudgetPerTick() - usedThisTick) / viewers.size());
+        if (perViewer <= 0) {
+            dropped += (long) count * viewers.size();
+            return 0;
+        }
+        
+        for (Player viewer : viewers) {
+            if (data != null) {
+                viewer.spawnParticle(particle, location, perViewer, offsetX, offsetY, offsetZ, speed, data);
+            } else {
+                viewer.spawnParticle(particle, location, perViewer, offsetX, offsetY, offsetZ, speed);
+            }
+        }
+        
+        int total = perViewer * viewers.size();
+        usedThisTick += total;
+        sent += total;
+        dropped += (long) (count - perViewer) * viewers.size();
+        return perViewer;
+    }
+    
+    /**
+     * 同一世界中视距内的玩家
+     */
+    private List<Player> getViewers(World world, Location location) {
+        double maxDistanceSquared = (double) config.getViewDistance() * config.getViewDistance();
+        List<Player> viewers = new ArrayList<>();
+        for (Player player : world.getPlayers()) {
+            if (player.getLocation().distanceSquared(location) <= maxDistanceSquared) {
+                viewers.add(player);
+            }
+        }
+        return viewers;
+    }
+    
+    /**
+     * 每 tick 执行：记录上一 tick 的用量，重置预算，并按当前 TPS 计算粒子密度
+     */
+    private void resetBudget() {
+        peakUsage = Math.max(peakUsage, usedThisTick);
+        averageUsage = averageUsage * 0.95 + usedThisTick * 0.05;
+        usedThisTick = 0;
+        
+        PricingEngine pricingEngine = plugin.getPricingEngine();
+        if (pricingEngine != null) {
+            density = config.densityFor(Math.min(20.0, 1000.0 / Math.max(1.0, pricingEngine.getMsPerTick())));
+        }
+    }
+    
+    public double getDensity() {
+        return density;
+    }
+    
+    /**
+     * 格式化预算使用情况
+     */
+    public String getSummary() {
+        return String.format("预算 %d/tick, 平均 %.1f (%.0f%%), 峰值 %d, 密度 %.0f%%, 已发送 %d/%d, 削减 %d",
+            config.getBudgetPerTick(), averageUsage, averageUsage * 100.0 / config.getBudgetPerTick(),
+            peakUsage, density * 100, sent, requested, dropped);
+    }
+    
+    /**
+     * 粒子配置
+     */
+    public static class ParticleConfig {
+        private int budgetPerTick = 2000;
+        private int viewDistance = 48;
+        private double fullTps = 19.0;
+        private double minTps = 12.0;
+        private double minDensity = 0.2;
+        
+        public void loadFromConfig(ConfigurationSection config) {
+            budgetPerTick = Math.max(1, config.getInt("budget-per-tick", budgetPerTick));
+            viewDistance = Math.max(1, config.getInt("view-distance", viewDistance));
+            fullTps = config.getDouble("density.full-tps", fullTps);
+            minTps = Math.min(fullTps, config.getDouble("density.min-tps", minTps));
+            minDensity = Math.max(0.0, Math.min(1.0, config.getDouble("density.min-density", minDensity)));
+        }
+        
+        /**
+         * TPS 不低于 full-tps 时为满密度，降到 min-tps 时为 min-density，中间线性过渡
+         */
+        double densityFor(double tps) {
+            if (tps >= fullTps) {
+                return 1.0;
+            }
+            if (tps <= minTps) {
+                return minDensity;
+            }
+            return minDensity + (1.0 - minDensity) * (tps - minTps) / (fullTps - minTps);
+        }
+        
+        // Getters
+        public int getBudgetPerTick() { return budgetPerTick; }
+        public int getViewDistance() { return viewDistance; }
+        public double getFullTps() { return fullTps; }
+        public double getMinTps() { return minTps; }
+        public double getMinDensity() { return minDensity; }
+    }
+}
\ No newline at end of file
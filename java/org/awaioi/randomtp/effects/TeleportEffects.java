@@ -1,105 +1,143 @@
 package org.awaioi.randomtp.effects;
 
+import java.util.UUID;
+
 import org.awaioi.randomtp.RandomTP;
-import org.awaioi.randomtp.config.ConfigManager;
-import org.bukkit.*;
+import org.awaioi.randomtp.scheduler.CountdownScheduler;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
-import org.bukkit.potion.PotionEffect;
-import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 
 /**
  * 传送效果管理器
- * 负责处理传送前后的视觉效果和玩家效果
+ * 负责处理传送前后的视觉效果和玩家效果，按玩家选中的效果配置（见 EffectProfiles）播放
  */
 public class TeleportEffects {
     
     private final RandomTP plugin;
+    private final ParticleDispatcher particleDispatcher;
+    private final CountdownDisplay countdownDisplay;
     
     public TeleportEffects(RandomTP plugin) {
         this.plugin = plugin;
+        this.particleDispatcher = plugin.getParticleDispatcher();
+        this.countdownDisplay = new CountdownDisplay(plugin);
+    }
+    
+    /**
+     * 重新读取倒计时显示配置
+     */
+    public void reload() {
+        countdownDisplay.reload();
+    }
+    
+    /**
+     * 移除所有倒计时显示
+     */
+    public void shutdown() {
+        countdownDisplay.shutdown();
     }
     
     /**
      * 启动传送序列（包含效果和倒计时）
+     * 效果配置在开始时选择一次，之后的每秒效果都从编译好的数组中取
      */
     public void startTeleportSequence(Player player, Runnable callback) {
-        ConfigManager config = plugin.getConfigManager();
-        int delay = config.getTeleportDelay();
+        int delay = plugin.getConfigManager().getTeleportDelay();
+        EffectProfiles.EffectProfile profile = plugin.getConfigManager().getEffectProfiles().select(player);
         
-        // 显示倒计时消息
-        player.sendMessage(config.getMessage("prefix") + 
-            ChatColor.YELLOW + "传送将在 " + delay + " 秒后开始，请不要移动...");
+        // 开始效果（倒计时提示等）
+        play(player, profile.getStartSteps(delay));
         
         // 启动倒计时效果
-        startCountdownEffect(player, delay, callback);
+        startCountdownEffect(player, profile, delay, callback);
     }
     
     /**
-     * 开始倒计时效果
+     * 开始倒计时效果（由共享倒计时调度器驱动）
      */
-    private void startCountdownEffect(Player player, int totalSeconds, Runnable callback) {
-        new BukkitRunnable() {
-            int secondsLeft = totalSeconds;
-            
+    private void startCountdownEffect(Player player, EffectProfiles.EffectProfile profile,
+                                      int totalSeconds, Runnable callback) {
+        plugin.getCountdownScheduler().start(player.getUniqueId(), totalSeconds, new CountdownScheduler.Listener() {
             @Override
-            public void run() {
+            public boolean onStep(int secondsLeft) {
                 if (!player.isOnline() || player.isDead()) {
-                    this.cancel();
-                    return;
+                    countdownDisplay.clear(player);
+                    return false;
                 }
                 
-                if (secondsLeft <= 0) {
-                    this.cancel();
+                // 每秒的倒计时效果，非聊天模式下剩余秒数由动作栏或 BossBar 显示
+                boolean chat = countdownDisplay.usesChat();
+                play(player, profile.getCountdownSteps(secondsLeft, chat));
+                if (!chat) {
+                    countdownDisplay.show(player, secondsLeft);
+                }
+                return true;
+            }
+            
+            @Override
+            public void onComplete() {
+                countdownDisplay.clear(player);
+                if (player.isOnline() && !player.isDead()) {
+                    playTimeline(player, profile.getDepart());
+                    
                     // 执行传送
                     callback.run();
-                    return;
                 }
-                
-                // 每秒显示倒计时
-                if (secondsLeft <= 5 || secondsLeft % 5 == 0) {
-                    player.sendMessage(plugin.getConfigManager().getMessage("prefix") + 
-                        ChatColor.AQUA + "传送倒计时: " + secondsLeft + " 秒");
-                }
-                
-                // 播放倒计时音效
-                playCountdownSound(player);
-                
-                secondsLeft--;
             }
-        }.runTaskTimer(plugin, 0L, 20L);
+        });
     }
     
     /**
-     * 播放倒计时音效
+     * 检查玩家是否有进行中的倒计时
      */
-    private void playCountdownSound(Player player) {
-        try {
-            player.playSound(player.getLocation(), Sound.BLOCK_NOTE_BLOCK_HAT, 1.0F, 1.0F);
-        } catch (Exception e) {
-            // 忽略音效错误
-        }
+    public boolean hasActiveCountdown(UUID playerId) {
+        return plugin.getCountdownScheduler().isActive(playerId);
+    }
+    
+    /**
+     * 获取进行中的倒计时数量
+     */
+    public int getActiveCountdownCount() {
+        return plugin.getCountdownScheduler().getActiveCount();
+    }
+    
+    public CountdownDisplay getCountdownDisplay() {
+        return countdownDisplay;
     }
     
     /**
      * 播放传送到达效果
      */
     public void playArrivalEffect(Player player) {
-        Location location = player.getLocation();
-        
-        // 播放到达音效
-        try {
-            player.playSound(location, Sound.ENTITY_ENDERMAN_TELEPORT, 1.0F, 1.0F);
-        } catch (Exception e) {
-            // 忽略音效错误
+        playTimeline(player, plugin.getConfigManager().getEffectProfiles().select(player).getArrival());
+    }
+    
+    /**
+     * 播放时间线：delay 为 0 的步骤立即播放，其余按延迟调度
+     */
+    private void playTimeline(Player player, EffectProfiles.Timeline timeline) {
+        for (int i = 0; i < timeline.size(); i++) {
+            EffectProfiles.Step[] steps = timeline.getSteps(i);
+            long delay = timeline.getDelay(i);
+            if (delay <= 0) {
+                play(player, steps);
+            } else {
+                Bukkit.getScheduler().runTaskLater(plugin, () -> {
+                    if (player.isOnline()) {
+                        play(player, steps);
+                    }
+                }, delay);
+            }
         }
-        
-        // 播放到达粒子效果
-        try {
-            player.getWorld().spawnParticle(Particle.PORTAL, location, 50, 2, 2, 2, 1);
-        } catch (Exception e) {
-            // 忽略粒子错误
+    }
+    
+    private void play(Player player, EffectProfiles.Step[] steps) {
+        for (EffectProfiles.Step step : steps) {
+            try {
+                step.play(player, particleDispatcher);
+            } catch (Exception e) {
+                // 忽略音效和粒子错误
+            }
         }
     }
     
@@ -107,8 +145,9 @@ public class TeleportEffects {
      * 取消玩家所有传送相关效果
      */
     public void cancelEffects(Player player) {
-        // 移除所有传送相关效果
-        player.removePotionEffect(PotionEffectType.DAMAGE_RESISTANCE);
+        // 停止倒计时（不执行传送）
+        plugin.getCountdownScheduler().cancel(player.getUniqueId());
+        countdownDisplay.clear(player);
         
         // 可以添加更多效果清理逻辑
     }
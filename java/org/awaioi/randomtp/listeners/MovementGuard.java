@@ -0,0 +1,223 @@
+package org.awaioi.randomtp.listeners;
+
+import java.util.Arrays;
+
+import org.awaioi.randomtp.RandomTP;
+import org.awaioi.randomtp.teleport.TeleportManager;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerMoveEvent;
+
+/**
+ * 传送等待期间的移动检测（主线程）
+ * 只在有玩家等待传送时注册 PlayerMoveEvent 监听，没有时注销，平时不处理任何移动事件。
+ * 等待中的玩家按实体 ID 存放在开放寻址的 int 表中，同时记录开始等待时的位置和允许移动的距离，
+ * 每次移动事件只做一次 int 查找和坐标比较，不创建 Location
+ */
+public class MovementGuard implements Listener {
+    
+    private static final int EMPTY = Integer.MIN_VALUE;
+    
+    private final RandomTP plugin;
+    private final TeleportManager teleportManager;
+    
+    // 开放寻址表（线性探测），容量为 2 的幂
+    private int[] keys;
+    private double[] startX;
+    private double[] startY;
+    private double[] startZ;
+    private double[] tolerances;
+    private int size;
+    private boolean registered;
+    
+    public MovementGuard(RandomTP plugin, TeleportManager teleportManager) {
+        this.plugin = plugin;
+        this.teleportManager = teleportManager;
+        allocate(16);
+    }
+    
+    /**
+     * 开始监视玩家的移动（记录当前位置），第一个玩家加入时注册监听
+     */
+    public void watch(Player player) {
+        Location location = player.getLocation();
+        if (size * 2 >= keys.length) {
+            rehash(keys.length * 2);
+        }
+        
+        int slot = find(player.getEntityId());
+        if (keys[slot] == EMPTY) {
+            keys[slot] = player.getEntityId();
+            size++;
+        }
+        startX[slot] = location.getX();
+        startY[slot] = location.getY();
+        startZ[slot] = location.getZ();
+        tolerances[slot] = plugin.getConfigManager().getMoveTolerance();
+        
+        if (!registered) {
+            Bukkit.getPluginManager().registerEvents(this, plugin);
+            registered = true;
+        }
+    }
+    
+    /**
+     * 停止监视玩家的移动，没有玩家时注销监听
+     */
+    public void unwatch(Player player) {
+        int slot = find(player.getEntityId());
+        if (keys[slot] != EMPTY) {
+            delete(slot);
+        }
+        if (size == 0) {
+            unregister();
+        }
+    }
+    
+    public boolean isWatching(Player player) {
+        return keys[find(player.getEntityId())] != EMPTY;
+    }
+    
+    public int getWatchedCount() {
+        return size;
+    }
+    
+    public boolean isRegistered() {
+        return registered;
+    }
+    
+    /**
+     * 清空并注销监听
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        unregister();
+    }
+    
+    /**
+     * 玩家移动事件 - 离开开始等待时的位置超过允许距离时取消传送并退款
+     */
+    @EventHandler
+    public void onPlayerMove(PlayerMoveEvent event) {
+        Player player = event.getPlayer();
+        int slot = find(player.getEntityId());
+        if (keys[slot] == EMPTY) {
+            return;
+        }
+        
+        // 传送已经以其他方式结束（如倒计时中掉线后重新进入）
+        if (!teleportManager.hasActiveTeleport(player.getUniqueId())) {
+            unwatch(player);
+            return;
+        }
+        
+        Location to = event.getTo();
+        if (to == null || !hasMoved(slot, to)) {
+            return;
+        }
+        
+        // 检查配置是否允许在移动时退款
+        boolean shouldRefund = plugin.getConfigManager().isEconomyEnabled() &&
+                             plugin.getConfigManager().shouldRefundOnMove();
+        
+        // 取消传送并退款（如果配置允许）
+        teleportManager.cancelTeleport(player, shouldRefund);
+    }
+    
+    /**
+     * 允许距离为 0 时只要离开开始时所在的方块即视为移动（只转动视角不算）
+     */
+    private boolean hasMoved(int slot, Location to) {
+        double tolerance = tolerances[slot];
+        if (tolerance <= 0) {
+            return (int) Math.floor(startX[slot]) != to.getBlockX()
+                || (int) Math.floor(startY[slot]) != to.getBlockY()
+                || (int) Math.floor(startZ[slot]) != to.getBlockZ();
+        }
+        double dx = to.getX() - startX[slot];
+        double dy = to.getY() - startY[slot];
+        double dz = to.getZ() - startZ[slot];
+        return dx * dx + dy * dy + dz * dz > tolerance * tolerance;
+    }
+    
+    private void unregister() {
+        if (registered) {
+            HandlerList.unregisterAll(this);
+            registered = false;
+        }
+    }
+    
+    /**
+     * 查找实体 ID 所在的槽位，不存在时返回应插入的空槽位
+     */
+    private int find(int entityId) {
+        int mask = keys.length - 1;
+        int slot = mix(entityId) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != entityId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    /**
+     * 删除槽位，并把后续同一探测链上的条目前移，保持线性探测不断链
+     */
+    private void delete(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            // 条目的理想位置不在 (hole, next] 区间内时才能移到 hole
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                startX[hole] = startX[next];
+                startY[hole] = startY[next];
+                startZ[hole] = startZ[next];
+                tolerances[hole] = tolerances[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+    
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        double[] oldX = startX;
+        double[] oldY = startY;
+        double[] oldZ = startZ;
+        double[] oldTolerances = tolerances;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                startX[slot] = oldX[i];
+                startY[slot] = oldY[i];
+                startZ[slot] = oldZ[i];
+                tolerances[slot] = oldTolerances[i];
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        startX = new double[capacity];
+        startY = new double[capacity];
+        startZ = new double[capacity];
+        tolerances = new double[capacity];
+    }
+    
+    private static int mix(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
\ No newline at end of file
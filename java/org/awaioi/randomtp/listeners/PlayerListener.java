@@ -4,7 +4,6 @@ import java.util.UUID;
 
 import org.awaioi.randomtp.RandomTP;
 import org.awaioi.randomtp.teleport.TeleportManager;
-import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -17,14 +16,13 @@ import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
-import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerPortalEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 
 /**
  * 玩家事件监听器
- * 处理与传送相关的玩家事件
+ * 处理与传送相关的玩家事件（移动检测见 MovementGuard，只在有玩家等待传送时注册）
  */
 public class PlayerListener implements Listener {
     
@@ -46,6 +44,11 @@ public class PlayerListener implements Listener {
         // 确保玩家数据已加载
         plugin.getPlayerDataManager().getPlayerData(player.getUniqueId());
         
+        // 退还离线期间未完成的退款
+        if (plugin.getRefundQueue() != null) {
+            plugin.getRefundQueue().onPlayerJoin(player.getUniqueId());
+        }
+        
         // 发送欢迎消息（可选）
         // player.sendMessage(plugin.getConfigManager().getMessage("prefix") + 
         //     "欢迎使用随机传送插件！输入 /rtp help 查看帮助。");
@@ -59,49 +62,33 @@ public class PlayerListener implements Listener {
         Player player = event.getPlayer();
         UUID uuid = player.getUniqueId();
         
-        // 取消传送任务
+        // 取消传送任务并释放费用预留
         if (teleportManager.hasActiveTeleport(uuid)) {
-            teleportManager.cancelTeleport(player);
+            teleportManager.cancelTeleportOnQuit(player);
         }
         
-        // 保存玩家数据
-        plugin.getPlayerDataManager().savePlayerData();
-    }
-    
-    /**
-     * 玩家移动事件 - 取消传送延迟并退款
-     */
-    @EventHandler
-    public void onPlayerMove(PlayerMoveEvent event) {
-        Player player = event.getPlayer();
-        UUID uuid = player.getUniqueId();
+        // 移除传送后保护和移动检测
+        teleportManager.getProtectionManager().remove(uuid);
+        teleportManager.getMovementGuard().unwatch(player);
         
-        // 检查玩家是否有正在进行的传送任务
-        if (teleportManager.hasActiveTeleport(uuid)) {
-            Location from = event.getFrom();
-            Location to = event.getTo();
-            
-            // 如果玩家移动了位置（不仅仅是视角），取消传送并退款
-            if (from.getBlockX() != to.getBlockX() || 
-                from.getBlockY() != to.getBlockY() || 
-                from.getBlockZ() != to.getBlockZ()) {
-                
-                // 检查配置是否允许在移动时退款
-                boolean shouldRefund = plugin.getConfigManager().isEconomyEnabled() && 
-                                     plugin.getConfigManager().shouldRefundOnMove();
-                
-                // 取消传送并退款（如果配置允许）
-                teleportManager.cancelTeleport(player, shouldRefund);
-            }
+        // 清理余额缓存
+        if (plugin.getEconomySystemManager() != null) {
+            plugin.getEconomySystemManager().clearPlayerCache(uuid);
         }
+        
+        // 保存玩家数据
+        plugin.getPlayerDataManager().savePlayerData();
     }
     
     /**
-     * 玩家受到伤害事件 - 不取消传送
+     * 玩家受到伤害事件 - 不取消传送，传送后保护期内取消或减免伤害
      */
-    @EventHandler
+    @EventHandler(ignoreCancelled = true)
     public void onPlayerDamage(EntityDamageEvent event) {
         // 受到伤害时不取消传送，允许传送继续进行
+        if (event.getEntity() instanceof Player) {
+            teleportManager.getProtectionManager().onDamage((Player) event.getEntity(), event);
+        }
     }
     
     /**
@@ -0,0 +1,367 @@
+package org.awaioi.randomtp.logging;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.awaioi.randomtp.scheduler.MaintenanceScheduler;
+
+/**
+ * 日志归档器
+ * 在维护调度器的后台线程中把关闭的日志分段移入归档目录并进行流式压缩。
+ * 压缩使用固定大小的缓冲区，写入临时文件后回读校验并刷入磁盘，校验通过才替换并删除原文件
+ */
+public class LogArchiver {
+    
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_PENDING = 256;
+    private static final String ZSTD_OUTPUT_CLASS = "com.github.luben.zstd.ZstdOutputStream";
+    private static final String ZSTD_INPUT_CLASS = "com.github.luben.zstd.ZstdInputStream";
+    
+    private final File archiveDirectory;
+    private final LogManager.LogArchivalConfig config;
+    private final Logger logger;
+    private final MaintenanceScheduler scheduler;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Codec codec;
+    private volatile boolean stopping;
+    
+    // 压缩统计
+    private final AtomicLong filesCompressed = new AtomicLong();
+    private final AtomicLong failedCompressions = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong compressionNanos = new AtomicLong();
+    
+    public LogArchiver(File archiveDirectory, LogManager.LogArchivalConfig config, Logger logger, 
+                       MaintenanceScheduler scheduler) {
+        this.archiveDirectory = archiveDirectory;
+        this.config = config;
+        this.logger = logger;
+        this.scheduler = scheduler;
+        this.codec = resolveCodec(config.getCodec());
+    }
+    
+    /**
+     * 提交一个关闭的日志分段进行归档
+     */
+    public void submit(File logFile) {
+        execute(() -> archive(logFile));
+    }
+    
+    /**
+     * 压缩归档目录中遗留的未压缩文件（例如上次关闭时未处理完的分段），
+     * 开始前先删除上次中断的压缩留下的临时文件
+     */
+    public void compressPending() {
+        deleteStaleTemp();
+        if (!config.isCompressArchived()) {
+            return;
+        }
+        
+        File[] files = archiveDirectory.listFiles((dir, name) -> name.endsWith(".log"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            execute(() -> compress(file));
+        }
+    }
+    
+    /**
+     * 删除归档目录中的临时文件（此时还没有提交任何压缩任务，不会误删正在写入的文件）
+     */
+    private void deleteStaleTemp() {
+        File[] files = archiveDirectory.listFiles((dir, name) -> name.endsWith(".tmp"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.delete()) {
+                logger.warning("无法删除遗留的临时文件: " + file.getName());
+            }
+        }
+    }
+    
+    private void execute(Runnable task) {
+        if (stopping) {
+            return;
+        }
+        if (pending.incrementAndGet() > MAX_PENDING) {
+            // 队列已满时保持未压缩状态，下次启动时由 compressPending 处理
+            pending.decrementAndGet();
+            logger.warning("归档队列已满，稍后再处理");
+            return;
+        }
+        try {
+            scheduler.executeBlocking("log-archive", () -> {
+                try {
+                    if (!stopping) {
+                        task.run();
+                    }
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 调度器已关闭，留给下次启动处理
+            pending.decrementAndGet();
+        }
+    }
+    
+    /**
+     * 移动到归档目录并压缩
+     */
+    private void archive(File logFile) {
+        if (!logFile.exists()) {
+            return;
+        }
+        
+        File archiveFile = new File(archiveDirectory, logFile.getName());
+        try {
+            moveAtomically(logFile, archiveFile);
+        } catch (IOException e) {
+            logger.warning("日志文件归档失败: " + logFile.getName() + " - " + e.getMessage());
+            return;
+        }
+        
+        if (config.isCompressArchived()) {
+            compress(archiveFile);
+        }
+    }
+    
+    /**
+     * 流式压缩单个文件
+     */
+    private void compress(File source) {
+        if (!source.exists()) {
+            return;
+        }
+        
+        File target = new File(source.getParentFile(), source.getName() + codec.extension);
+        File temp = new File(source.getParentFile(), target.getName() + ".tmp");
+        long start = System.nanoTime();
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        
+        try {
+            CRC32 sourceChecksum = new CRC32();
+            long sourceLength = 0;
+            
+            try (InputStream in = new FileInputStream(source);
+                 OutputStream out = codec.wrapOutput(new FileOutputStream(temp))) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    sourceChecksum.update(buffer, 0, read);
+                    sourceLength += read;
+                }
+            }
+            
+            // 回读校验：长度和CRC必须与原文件一致
+            CRC32 verifyChecksum = new CRC32();
+            long verifyLength = 0;
+            try (InputStream in = codec.wrapInput(new FileInputStream(temp))) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    verifyChecksum.update(buffer, 0, read);
+                    verifyLength += read;
+                }
+            }
+            
+            if (verifyLength != sourceLength || verifyChecksum.getValue() != sourceChecksum.getValue()) {
+                throw new IOException("压缩校验失败");
+            }
+            
+            // 替换前刷入磁盘，避免断电后留下已删除原文件但内容不完整的归档
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            
+            moveAtomically(temp, target);
+            long compressedLength = target.length();
+            
+            if (!source.delete()) {
+                logger.warning("压缩完成但无法删除原文件: " + source.getName());
+            }
+            
+            filesCompressed.incrementAndGet();
+            bytesIn.addAndGet(sourceLength);
+            bytesOut.addAndGet(compressedLength);
+            compressionNanos.addAndGet(System.nanoTime() - start);
+            
+        } catch (Exception e) {
+            failedCompressions.incrementAndGet();
+            temp.delete();
+            logger.warning("压缩归档文件失败: " + source.getName() + " - " + e.getMessage());
+        }
+    }
+    
+    private void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, 
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * 解析压缩算法；请求 Zstd 但未打包时回退到 GZIP
+     */
+    private Codec resolveCodec(String name) {
+        if ("zstd".equalsIgnoreCase(name)) {
+            try {
+                Class<?> outputClass = Class.forName(ZSTD_OUTPUT_CLASS);
+                Class<?> inputClass = Class.forName(ZSTD_INPUT_CLASS);
+                return new ZstdCodec(outputClass.getConstructor(OutputStream.class, int.class),
+                    inputClass.getConstructor(InputStream.class), config.getCompressionLevel());
+            } catch (ReflectiveOperationException | LinkageError e) {
+                logger.warning("未找到 Zstd 支持库，归档压缩回退到 GZIP");
+            }
+        }
+        return new GzipCodec();
+    }
+    
+    /**
+     * 获取压缩统计快照
+     */
+    public CompressionStats getStats() {
+        return new CompressionStats(codec.name, filesCompressed.get(), failedCompressions.get(),
+            bytesIn.get(), bytesOut.get(), compressionNanos.get(), pending.get());
+    }
+    
+    /**
+     * 停止接收新任务；排队中的任务留到下次启动处理，
+     * 正在进行的压缩由维护调度器关闭时等待完成
+     */
+    public void shutdown() {
+        stopping = true;
+    }
+    
+    /**
+     * 压缩算法
+     */
+    private abstract static class Codec {
+        final String name;
+        final String extension;
+        
+        Codec(String name, String extension) {
+            this.name = name;
+            this.extension = extension;
+        }
+        
+        abstract OutputStream wrapOutput(OutputStream out) throws IOException;
+        
+        abstract InputStream wrapInput(InputStream in) throws IOException;
+    }
+    
+    private static class GzipCodec extends Codec {
+        GzipCodec() {
+            super("gzip", ".gz");
+        }
+        
+        @Override
+        OutputStream wrapOutput(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, STREAM_BUFFER_SIZE);
+        }
+        
+        @Override
+        InputStream wrapInput(InputStream in) throws IOException {
+            return new GZIPInputStream(in, STREAM_BUFFER_SIZE);
+        }
+    }
+    
+    private static class ZstdCodec extends Codec {
+        private final Constructor<?> outputConstructor;
+        private final Constructor<?> inputConstructor;
+        private final int level;
+        
+        ZstdCodec(Constructor<?> outputConstructor, Constructor<?> inputConstructor, int level) {
+            super("zstd", ".zst");
+            this.outputConstructor = outputConstructor;
+            this.inputConstructor = inputConstructor;
+            this.level = level;
+        }
+        
+        @Override
+        OutputStream wrapOutput(OutputStream out) throws IOException {
+            try {
+                return (OutputStream) outputConstructor.newInstance(out, level);
+            } catch (ReflectiveOperationException e) {
+                out.close();
+                throw new IOException("无法创建 Zstd 输出流", e);
+            }
+        }
+        
+        @Override
+        InputStream wrapInput(InputStream in) throws IOException {
+            try {
+                return (InputStream) inputConstructor.newInstance(in);
+            } catch (ReflectiveOperationException e) {
+                in.close();
+                throw new IOException("无法创建 Zstd 输入流", e);
+            }
+        }
+    }
+    
+    /**
+     * 压缩统计快照
+     */
+    public static class CompressionStats {
+        private final String codec;
+        private final long filesCompressed;
+        private final long failures;
+        private final long bytesIn;
+        private final long bytesOut;
+        private final long nanos;
+        private final int pending;
+        
+        public CompressionStats(String codec, long filesCompressed, long failures, 
+                                long bytesIn, long bytesOut, long nanos, int pending) {
+            this.codec = codec;
+            this.filesCompressed = filesCompressed;
+            this.failures = failures;
+            this.bytesIn = bytesIn;
+            this.bytesOut = bytesOut;
+            this.nanos = nanos;
+            this.pending = pending;
+        }
+        
+        public String getCodec() { return codec; }
+        public long getFilesCompressed() { return filesCompressed; }
+        public long getFailures() { return failures; }
+        public long getBytesIn() { return bytesIn; }
+        public long getBytesOut() { return bytesOut; }
+        public int getPending() { return pending; }
+        
+        /**
+         * 压缩比（原始大小 / 压缩后大小）
+         */
+        public double getCompressionRatio() {
+            return bytesOut > 0 ? (double) bytesIn / bytesOut : 0.0;
+        }
+        
+        /**
+         * 吞吐量（MB/s，按原始大小计算）
+         */
+        public double getThroughputMBps() {
+            return nanos > 0 ? (bytesIn / (1024.0 * 1024.0)) / (nanos / 1_000_000_000.0) : 0.0;
+        }
+    }
+}
\ No newline at end of file
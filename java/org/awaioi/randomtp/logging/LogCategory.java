@@ -0,0 +1,34 @@
+package org.awaioi.randomtp.logging;
+
+/**
+ * 日志类别
+ * 每个类别对应一个独立的日志输出端，记录只会写入其所属类别的文件
+ */
+public enum LogCategory {
+    SYSTEM("main", "main"),
+    TRANSACTION("transaction", "transactions"),
+    PLAYER_ACTIVITY("player-activity", "player_activity"),
+    ECONOMY("economy", "economy");
+    
+    private final String configKey;
+    private final String fileBaseName;
+    
+    LogCategory(String configKey, String fileBaseName) {
+        this.configKey = configKey;
+        this.fileBaseName = fileBaseName;
+    }
+    
+    /**
+     * 获取配置文件中使用的键名
+     */
+    public String getConfigKey() {
+        return configKey;
+    }
+    
+    /**
+     * 获取日志文件基础名称
+     */
+    public String getFileBaseName() {
+        return fileBaseName;
+    }
+}
\ No newline at end of file
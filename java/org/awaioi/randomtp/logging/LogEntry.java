@@ -0,0 +1,18 @@
+package org.awaioi.randomtp.logging;
+
+/**
+ * 可编码的日志条目
+ * 条目直接写入线程复用的编码缓冲区，不经过 String.format 和额外的日期格式化
+ */
+public interface LogEntry {
+    
+    /**
+     * 获取条目时间戳
+     */
+    long getTimestamp();
+    
+    /**
+     * 将条目内容（不含换行符）写入编码器
+     */
+    void encodeTo(LogEntryEncoder encoder);
+}
\ No newline at end of file
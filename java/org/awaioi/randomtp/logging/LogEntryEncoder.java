@@ -0,0 +1,291 @@
+package org.awaioi.randomtp.logging;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+/**
+ * 日志条目编码器
+ * 每个线程持有一个实例，把日志字段直接以 UTF-8 写入可复用的 ByteBuffer；
+ * 时间戳前缀按秒缓存，同一秒内的记录不再重复格式化日期
+ */
+public final class LogEntryEncoder {
+    
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = 
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final ThreadLocal<LogEntryEncoder> LOCAL = ThreadLocal.withInitial(LogEntryEncoder::new);
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final int INITIAL_CAPACITY = 512;
+    
+    private ByteBuffer buffer;
+    
+    // 时间戳缓存（精确到秒）
+    private final byte[] timestampBytes = new byte[19];
+    private final StringBuilder timestampBuilder = new StringBuilder(19);
+    private long cachedSecond = Long.MIN_VALUE;
+    
+    // 整数转换临时区
+    private final byte[] digitBuffer = new byte[20];
+    
+    private LogEntryEncoder() {
+        this.buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    }
+    
+    /**
+     * 获取当前线程的编码器并清空缓冲区
+     */
+    public static LogEntryEncoder get() {
+        LogEntryEncoder encoder = LOCAL.get();
+        encoder.buffer.clear();
+        return encoder;
+    }
+    
+    /**
+     * 写入 yyyy-MM-dd HH:mm:ss 格式的时间戳
+     */
+    public LogEntryEncoder appendTimestamp(long millis) {
+        long second = Math.floorDiv(millis, 1000L);
+        if (second != cachedSecond) {
+            timestampBuilder.setLength(0);
+            TIMESTAMP_FORMAT.formatTo(Instant.ofEpochSecond(second), timestampBuilder);
+            for (int i = 0; i < timestampBytes.length; i++) {
+                timestampBytes[i] = (byte) timestampBuilder.charAt(i);
+            }
+            cachedSecond = second;
+        }
+        ensureCapacity(timestampBytes.length);
+        buffer.put(timestampBytes);
+        return this;
+    }
+    
+    /**
+     * 写入字符串（UTF-8 编码）
+     */
+    public LogEntryEncoder append(String value) {
+        if (value == null) {
+            value = "null";
+        }
+        
+        int length = value.length();
+        ensureCapacity(length * 3);
+        
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else {
+                i = putNonAscii(value, i);
+            }
+        }
+        return this;
+    }
+    
+    /**
+     * 写入带引号的 JSON 字符串，转义引号、反斜杠和控制字符
+     */
+    public LogEntryEncoder appendJsonString(String value) {
+        if (value == null) {
+            return append("null");
+        }
+        
+        int length = value.length();
+        ensureCapacity(length * 6 + 2);
+        buffer.put((byte) '"');
+        
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.put((byte) '\\');
+                buffer.put((byte) c);
+            } else if (c == '\n') {
+                buffer.put((byte) '\\');
+                buffer.put((byte) 'n');
+            } else if (c == '\r') {
+                buffer.put((byte) '\\');
+                buffer.put((byte) 'r');
+            } else if (c == '\t') {
+                buffer.put((byte) '\\');
+                buffer.put((byte) 't');
+            } else if (c < 0x20) {
+                buffer.put((byte) '\\');
+                buffer.put((byte) 'u');
+                appendHex(c, 4);
+            } else if (c < 0x80) {
+                buffer.put((byte) c);
+            } else {
+                i = putNonAscii(value, i);
+            }
+        }
+        
+        buffer.put((byte) '"');
+        return this;
+    }
+    
+    /**
+     * 写入单个 ASCII 字符
+     */
+    public LogEntryEncoder append(char value) {
+        if (value >= 0x80) {
+            return append(String.valueOf(value));
+        }
+        ensureCapacity(1);
+        buffer.put((byte) value);
+        return this;
+    }
+    
+    /**
+     * 写入整数
+     */
+    public LogEntryEncoder append(long value) {
+        if (value == Long.MIN_VALUE) {
+            return append(Long.toString(value));
+        }
+        
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        
+        int pos = digitBuffer.length;
+        do {
+            digitBuffer[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        
+        buffer.put(digitBuffer, pos, digitBuffer.length - pos);
+        return this;
+    }
+    
+    /**
+     * 写入保留两位小数的金额
+     */
+    public LogEntryEncoder appendAmount(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= 1.0E15) {
+            return append(Double.toString(value));
+        }
+        
+        long cents = Math.round(Math.abs(value) * 100.0);
+        if (value < 0 && cents != 0) {
+            append('-');
+        }
+        append(cents / 100);
+        
+        int fraction = (int) (cents % 100);
+        ensureCapacity(3);
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + fraction / 10));
+        buffer.put((byte) ('0' + fraction % 10));
+        return this;
+    }
+    
+    /**
+     * 写入UUID（标准 8-4-4-4-12 格式）
+     */
+    public LogEntryEncoder append(UUID uuid) {
+        if (uuid == null) {
+            return append("null");
+        }
+        
+        ensureCapacity(36);
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        appendHex(msb >>> 32, 8);
+        buffer.put((byte) '-');
+        appendHex(msb >>> 16, 4);
+        buffer.put((byte) '-');
+        appendHex(msb, 4);
+        buffer.put((byte) '-');
+        appendHex(lsb >>> 48, 4);
+        buffer.put((byte) '-');
+        appendHex(lsb, 12);
+        return this;
+    }
+    
+    /**
+     * 写入异常堆栈（仅在异常路径使用，允许分配）
+     */
+    public LogEntryEncoder appendStackTrace(Throwable throwable) {
+        StringWriter writer = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(writer));
+        return append(writer.toString());
+    }
+    
+    /**
+     * 写入系统换行符
+     */
+    public LogEntryEncoder appendLineSeparator() {
+        ensureCapacity(LINE_SEPARATOR.length);
+        buffer.put(LINE_SEPARATOR);
+        return this;
+    }
+    
+    /**
+     * 获取底层字节数组（有效数据范围为 0 到 length()）
+     */
+    public byte[] array() {
+        return buffer.array();
+    }
+    
+    /**
+     * 获取已编码的字节数
+     */
+    public int length() {
+        return buffer.position();
+    }
+    
+    @Override
+    public String toString() {
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 以 UTF-8 写入 value[index] 处的非 ASCII 字符，返回最后消费的下标
+     */
+    private int putNonAscii(String value, int index) {
+        char c = value.charAt(index);
+        if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && index + 1 < value.length() 
+                   && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(++index));
+            buffer.put((byte) (0xF0 | (codePoint >> 18)));
+            buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+        } else if (Character.isSurrogate(c)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+        return index;
+    }
+    
+    private void appendHex(long value, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            buffer.put(HEX_DIGITS[(int) ((value >>> shift) & 0xF)]);
+        }
+    }
+    
+    private void ensureCapacity(int extra) {
+        if (buffer.remaining() >= extra) {
+            return;
+        }
+        
+        int required = buffer.position() + extra;
+        int newCapacity = Math.max(buffer.capacity() * 2, required);
+        ByteBuffer grown = ByteBuffer.allocate(newCapacity);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+}
\ No newline at end of file
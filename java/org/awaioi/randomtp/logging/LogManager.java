@@ -2,22 +2,23 @@ package org.awaioi.randomtp.logging;
 
 import java.io.File;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.ConsoleHandler;
-import java.util.logging.FileHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
-import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 
 import org.awaioi.randomtp.RandomTP;
+import org.awaioi.randomtp.scheduler.MaintenanceScheduler;
 
 /**
  * 日志管理器
@@ -29,32 +30,45 @@ public class LogManager {
     private final Logger logger;
     private final File logDirectory;
     private final File archiveDirectory;
+    private final File ledgerDirectory;
     
     // 日志配置
     private LogLevelConfig logLevelConfig;
     private LogRotationConfig rotationConfig;
     private LogArchivalConfig archivalConfig;
+    private LogSinkConfig sinkConfig;
+    private LogRateLimitConfig rateLimitConfig;
     
-    // 性能监控
-    private final ConcurrentHashMap<String, Integer> logStats;
-    private final ScheduledExecutorService scheduler;
+    // 分类输出端（每个类别只写入自己的文件）
+    private final Map<LogCategory, LogSink> sinks;
+    private final MaintenanceScheduler scheduler;
+    private final List<ScheduledFuture<?>> maintenanceTasks;
+    private LogArchiver archiver;
     
-    // 交易日志专用
-    private static final String TRANSACTION_LOG_FILE = "transactions";
-    private static final String PLAYER_DATA_LOG_FILE = "player_activity";
+    // 交易账本（JSON 行 + 玩家偏移索引）
+    private TransactionLedger ledger;
+    
+    // 各类别限流器（交易类别不限流）
+    private final Map<LogCategory, LogRateLimiter> rateLimiters;
     
     public LogManager(RandomTP plugin) {
         this.plugin = plugin;
         this.logger = Logger.getLogger("RandomTP");
         this.logDirectory = new File(plugin.getDataFolder(), "logs");
         this.archiveDirectory = new File(plugin.getDataFolder(), "logs_archive");
-        this.logStats = new ConcurrentHashMap<>();
-        this.scheduler = Executors.newScheduledThreadPool(2);
+        this.ledgerDirectory = new File(logDirectory, "ledger");
+        this.sinks = new EnumMap<>(LogCategory.class);
+        this.rateLimiters = new EnumMap<>(LogCategory.class);
+        this.scheduler = plugin.getMaintenanceScheduler();
+        this.maintenanceTasks = new ArrayList<>();
         
         initializeLogDirectories();
         loadLogConfiguration();
+        archiver = new LogArchiver(archiveDirectory, archivalConfig, plugin.getLogger(), scheduler);
         setupLogHandlers();
+        setupRateLimiters();
         startMaintenanceTasks();
+        archiver.compressPending();
     }
     
     /**
@@ -77,6 +91,8 @@ public class LogManager {
         logLevelConfig = new LogLevelConfig();
         rotationConfig = new LogRotationConfig();
         archivalConfig = new LogArchivalConfig();
+        sinkConfig = new LogSinkConfig();
+        rateLimitConfig = new LogRateLimitConfig();
         
         // 从配置文件加载自定义设置
         if (plugin.getConfigManager().getConfig().contains("logging")) {
@@ -91,80 +107,124 @@ public class LogManager {
             
             // 加载归档配置
             archivalConfig.loadFromConfig(loggingConfig);
+            
+            // 加载输出端配置
+            sinkConfig.loadFromConfig(loggingConfig);
+            
+            // 加载限流配置
+            rateLimitConfig.loadFromConfig(loggingConfig);
         }
     }
     
     /**
      * 设置日志处理器
+     * Logger 只保留控制台处理器；文件输出按类别路由到各自的输出端
      */
     private void setupLogHandlers() {
-        try {
-            // 清除现有处理器
-            logger.setUseParentHandlers(false);
-            logger.getHandlers();
-            
-            // 主日志文件处理器
-            FileHandler mainHandler = createFileHandler("main", rotationConfig.getMainLogRotation());
-            mainHandler.setFormatter(new DetailedFormatter());
-            logger.addHandler(mainHandler);
-            
-            // 交易日志处理器
-            if (logLevelConfig.isTransactionLoggingEnabled()) {
-                FileHandler transactionHandler = createFileHandler(TRANSACTION_LOG_FILE, 
-                    rotationConfig.getTransactionLogRotation());
-                transactionHandler.setFormatter(new TransactionFormatter());
-                logger.addHandler(transactionHandler);
-            }
-            
-            // 玩家活动日志处理器
-            if (logLevelConfig.isPlayerActivityLoggingEnabled()) {
-                FileHandler playerHandler = createFileHandler(PLAYER_DATA_LOG_FILE, 
-                    rotationConfig.getPlayerLogRotation());
-                playerHandler.setFormatter(new PlayerActivityFormatter());
-                logger.addHandler(playerHandler);
+        // 清除现有处理器
+        logger.setUseParentHandlers(false);
+        for (Handler handler : logger.getHandlers()) {
+            logger.removeHandler(handler);
+            handler.close();
+        }
+        
+        // 主日志输出端（系统日志）
+        createSink(LogCategory.SYSTEM);
+        
+        // 交易账本（替代文本交易日志，按天分段，不参与归档压缩以便直接定位）
+        if (logLevelConfig.isTransactionLoggingEnabled()) {
+            try {
+                ledger = new TransactionLedger(ledgerDirectory, sinkConfig.getBufferSize(LogCategory.TRANSACTION));
+            } catch (IOException e) {
+                plugin.getLogger().severe("无法创建交易账本: " + e.getMessage());
             }
-            
-            // 控制台处理器（根据日志级别）
-            ConsoleHandler consoleHandler = new ConsoleHandler();
-            consoleHandler.setLevel(logLevelConfig.getConsoleLevel());
-            consoleHandler.setFormatter(new SimpleFormatter());
-            logger.addHandler(consoleHandler);
-            
+        }
+        
+        // 玩家活动日志输出端
+        if (logLevelConfig.isPlayerActivityLoggingEnabled()) {
+            createSink(LogCategory.PLAYER_ACTIVITY);
+        }
+        
+        // 经济日志输出端
+        if (logLevelConfig.isEconomyLoggingEnabled()) {
+            createSink(LogCategory.ECONOMY);
+        }
+        
+        // 控制台处理器（根据日志级别，仅输出系统日志）
+        ConsoleHandler consoleHandler = new ConsoleHandler();
+        consoleHandler.setLevel(logLevelConfig.getConsoleLevel());
+        consoleHandler.setFormatter(new SimpleFormatter());
+        logger.addHandler(consoleHandler);
+    }
+    
+    /**
+     * 创建分类输出端
+     */
+    private void createSink(LogCategory category) {
+        try {
+            RollingFileWriter writer = new RollingFileWriter(logDirectory, category.getFileBaseName(),
+                rotationConfig.getRotation(category), rotationConfig.getMaxFileSize(),
+                sinkConfig.getBufferSize(category), this::onSegmentClosed, plugin.getLogger());
+            LogSink sink = new LogSink(category, writer,
+                sinkConfig.getLevel(category, logLevelConfig.getFileLevel()));
+            sinks.put(category, sink);
         } catch (IOException e) {
-            plugin.getLogger().severe("无法设置日志处理器: " + e.getMessage());
+            plugin.getLogger().severe("无法创建日志输出端 " + category + ": " + e.getMessage());
         }
     }
     
     /**
-     * 创建文件处理器
+     * 创建各类别的限流器
+     * 交易记录属于账务数据，始终完整写入，不参与限流和采样
      */
-    private FileHandler createFileHandler(String logType, LogRotationConfig.RotationType rotationType) throws IOException {
-        String fileName = getLogFileName(logType, rotationType);
-        File logFile = new File(logDirectory, fileName);
-        
-        boolean append = rotationType == LogRotationConfig.RotationType.SIZE;
-        FileHandler handler = new FileHandler(logFile.getAbsolutePath(), append);
+    private void setupRateLimiters() {
+        if (!rateLimitConfig.isEnabled()) {
+            return;
+        }
         
-        return handler;
+        for (LogCategory category : LogCategory.values()) {
+            if (category == LogCategory.TRANSACTION) {
+                continue;
+            }
+            rateLimiters.put(category, new LogRateLimiter(category, 
+                rateLimitConfig.getRate(category), rateLimitConfig.getBurst(category), 
+                rateLimitConfig.getSampleEvery(category)));
+        }
     }
     
     /**
-     * 获取日志文件名
+     * 检查类别当前是否允许写入一条记录
      */
-    private String getLogFileName(String logType, LogRotationConfig.RotationType rotationType) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        String dateStr = dateFormat.format(new Date());
-        
-        switch (rotationType) {
-            case DAILY:
-                return String.format("%s_%s.log", logType, dateStr);
-            case HOURLY:
-                SimpleDateFormat hourFormat = new SimpleDateFormat("yyyy-MM-dd_HH");
-                return String.format("%s_%s.log", logType, hourFormat.format(new Date()));
-            case SIZE:
-                return String.format("%s.log", logType);
-            default:
-                return String.format("%s.log", logType);
+    private boolean isAllowed(LogCategory category) {
+        LogRateLimiter limiter = rateLimiters.get(category);
+        return limiter == null || limiter.tryAcquire();
+    }
+    
+    /**
+     * 分段滚动完成后的回调（在写入线程中调用，只做提交）
+     */
+    private void onSegmentClosed(File segment) {
+        archiver.submit(segment);
+    }
+    
+    /**
+     * 获取正在写入的日志文件
+     */
+    private Set<File> getActiveLogFiles() {
+        Set<File> activeFiles = new HashSet<>();
+        for (LogSink sink : sinks.values()) {
+            activeFiles.add(sink.getFile());
+        }
+        return activeFiles;
+    }
+    
+    /**
+     * 将结构化条目路由到对应类别的输出端
+     */
+    private void route(LogCategory category, LogEntry entry) {
+        LogSink sink = sinks.get(category);
+        if (sink != null) {
+            sink.write(entry);
         }
     }
     
@@ -186,8 +246,24 @@ public class LogManager {
             description
         );
         
-        logger.log(Level.INFO, entry.toString());
-        updateStats("transactions");
+        if (ledger == null) {
+            return;
+        }
+        try {
+            ledger.append(entry);
+        } catch (IOException e) {
+            plugin.getLogger().warning("交易记录写入失败: " + entry + " - " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询玩家自指定时间以来的交易记录（读取磁盘，不要在主线程调用）
+     */
+    public TransactionLedger.LedgerQueryResult queryLedger(UUID playerUUID, long since, int limit) throws IOException {
+        if (ledger == null) {
+            throw new IOException("交易日志未启用");
+        }
+        return ledger.query(playerUUID, since, limit);
     }
     
     /**
@@ -195,7 +271,7 @@ public class LogManager {
      */
     public void logPlayerActivity(String playerName, UUID playerUUID, String activity, 
                                 String details) {
-        if (!logLevelConfig.isPlayerActivityLoggingEnabled()) {
+        if (!logLevelConfig.isPlayerActivityLoggingEnabled() || !isAllowed(LogCategory.PLAYER_ACTIVITY)) {
             return;
         }
         
@@ -207,8 +283,7 @@ public class LogManager {
             details
         );
         
-        logger.log(Level.INFO, entry.toString());
-        updateStats("player_activity");
+        route(LogCategory.PLAYER_ACTIVITY, entry);
     }
     
     /**
@@ -217,13 +292,22 @@ public class LogManager {
     public void logSystem(String level, String message, Throwable throwable) {
         Level logLevel = Level.parse(level.toUpperCase());
         
+        // 警告及以上级别始终记录
+        if (logLevel.intValue() < Level.WARNING.intValue() && !isAllowed(LogCategory.SYSTEM)) {
+            return;
+        }
+        
+        LogSink sink = sinks.get(LogCategory.SYSTEM);
+        if (sink != null) {
+            sink.write(System.currentTimeMillis(), logLevel, message, throwable);
+        }
+        
+        // 系统日志同时输出到控制台
         if (throwable != null) {
             logger.log(logLevel, message, throwable);
         } else {
             logger.log(logLevel, message);
         }
-        
-        updateStats("system");
     }
     
     /**
@@ -231,7 +315,7 @@ public class LogManager {
      */
     public void logEconomy(String playerName, UUID playerUUID, String operation, 
                           boolean success, String details) {
-        if (!logLevelConfig.isEconomyLoggingEnabled()) {
+        if (!logLevelConfig.isEconomyLoggingEnabled() || !isAllowed(LogCategory.ECONOMY)) {
             return;
         }
         
@@ -244,115 +328,123 @@ public class LogManager {
             details
         );
         
-        logger.log(Level.INFO, entry.toString());
-        updateStats("economy");
+        route(LogCategory.ECONOMY, entry);
     }
     
     /**
-     * 更新统计信息
+     * 获取各输出端的统计信息（记录数、字节数、被级别过滤的记录数）
      */
-    private void updateStats(String logType) {
-        logStats.merge(logType, 1, Integer::sum);
+    public Map<LogCategory, LogSink.SinkStats> getLogStats() {
+        Map<LogCategory, LogSink.SinkStats> stats = new EnumMap<>(LogCategory.class);
+        for (LogSink sink : sinks.values()) {
+            stats.put(sink.getCategory(), sink.getStats());
+        }
+        return stats;
     }
     
     /**
-     * 获取日志统计信息
+     * 获取各类别限流器的统计信息（放行数、采样数、抑制数）
      */
-    public ConcurrentHashMap<String, Integer> getLogStats() {
-        return new ConcurrentHashMap<>(logStats);
+    public Map<LogCategory, LogRateLimiter.LimiterStats> getRateLimitStats() {
+        Map<LogCategory, LogRateLimiter.LimiterStats> stats = new EnumMap<>(LogCategory.class);
+        for (LogRateLimiter limiter : rateLimiters.values()) {
+            stats.put(limiter.getCategory(), limiter.getStats());
+        }
+        return stats;
     }
     
     /**
-     * 开始维护任务
+     * 汇总上一个周期内被抑制的记录，写入系统日志
      */
-    private void startMaintenanceTasks() {
-        // 每日日志轮转检查
-        scheduler.scheduleAtFixedRate(this::checkLogRotation, 1, 1, TimeUnit.HOURS);
-        
-        // 每周归档清理
-        scheduler.scheduleAtFixedRate(this::archiveOldLogs, 1, 7, TimeUnit.DAYS);
-        
-        // 每月完全清理
-        scheduler.scheduleAtFixedRate(this::monthlyCleanup, 1, 30, TimeUnit.DAYS);
+    private void reportSuppressed() {
+        LogSink systemSink = sinks.get(LogCategory.SYSTEM);
+        long now = System.currentTimeMillis();
+        
+        for (LogRateLimiter limiter : rateLimiters.values()) {
+            long suppressed = limiter.drainSuppressed();
+            if (suppressed == 0) {
+                continue;
+            }
+            
+            String message = String.format("已抑制 %,d 条 %s 日志（最近 %d 秒，超限后每 %d 条采样 1 条）", 
+                suppressed, limiter.getCategory(), rateLimitConfig.getSummaryInterval(), limiter.getSampleEvery());
+            if (systemSink != null) {
+                systemSink.write(now, Level.INFO, message, null);
+            }
+        }
     }
     
     /**
-     * 检查日志轮转
+     * 刷新所有输出端缓冲区（到达日历边界的输出端会在此时滚动）
      */
-    private void checkLogRotation() {
-        // 检查文件大小，触发轮转
-        for (File logFile : logDirectory.listFiles((dir, name) -> name.endsWith(".log"))) {
-            long fileSize = logFile.length();
-            long maxSize = rotationConfig.getMaxFileSize();
-            
-            if (fileSize > maxSize) {
-                rotateLogFile(logFile);
+    private void flushSinks() {
+        for (LogSink sink : sinks.values()) {
+            sink.flush();
+        }
+        
+        if (ledger != null) {
+            try {
+                ledger.flush();
+            } catch (IOException e) {
+                plugin.getLogger().warning("交易账本刷新失败: " + e.getMessage());
             }
         }
     }
     
     /**
-     * 轮转日志文件
+     * 开始维护任务
      */
-    private void rotateLogFile(File logFile) {
-        try {
-            String baseName = logFile.getName().replace(".log", "");
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd_HHmmss");
-            String timestamp = dateFormat.format(new Date());
-            
-            File archivedFile = new File(logDirectory, baseName + "_" + timestamp + ".log");
-            boolean success = logFile.renameTo(archivedFile);
-            
-            if (success) {
-                plugin.getLogger().info("日志文件已轮转: " + archivedFile.getName());
-            } else {
-                plugin.getLogger().warning("日志文件轮转失败: " + logFile.getName());
-            }
-        } catch (Exception e) {
-            plugin.getLogger().severe("日志轮转异常: " + e.getMessage());
+    private void startMaintenanceTasks() {
+        // 定期刷新输出端缓冲区
+        maintenanceTasks.add(scheduler.scheduleAtFixedRate("log-flush", this::flushSinks, 1, 1, TimeUnit.SECONDS));
+        
+        // 定期汇总被限流抑制的记录
+        if (!rateLimiters.isEmpty()) {
+            int interval = rateLimitConfig.getSummaryInterval();
+            maintenanceTasks.add(scheduler.scheduleAtFixedRate("log-suppressed-summary", this::reportSuppressed, 
+                interval, interval, TimeUnit.SECONDS));
         }
+        
+        // 启动时归档上次运行遗留的分段，之后每周清理一次
+        // 归档和清理可能耗时较长，放在阻塞任务通道中执行，不推迟每秒的刷新
+        scheduler.executeBlocking("log-archive-sweep", this::archiveOldLogs);
+        maintenanceTasks.add(scheduler.scheduleBlockingAtFixedRate("log-archive-sweep", this::archiveOldLogs, 
+            7, 7, TimeUnit.DAYS));
+        
+        // 每月完全清理
+        maintenanceTasks.add(scheduler.scheduleBlockingAtFixedRate("log-cleanup", this::monthlyCleanup, 
+            1, 30, TimeUnit.DAYS));
     }
     
     /**
      * 归档旧日志
+     * 正常滚动的分段会立即交给归档器，这里只处理上次运行遗留或超过保留期的非活动文件
      */
     private void archiveOldLogs() {
         long cutoffTime = System.currentTimeMillis() - (archivalConfig.getArchiveAfterDays() * 24 * 60 * 60 * 1000L);
+        Set<File> activeFiles = getActiveLogFiles();
         
         for (File logFile : logDirectory.listFiles((dir, name) -> name.endsWith(".log"))) {
-            if (logFile.lastModified() < cutoffTime) {
-                archiveLogFile(logFile);
+            if (activeFiles.contains(logFile)) {
+                continue;
+            }
+            if (logFile.lastModified() < cutoffTime || isRolledSegment(logFile)) {
+                archiver.submit(logFile);
             }
         }
     }
     
     /**
-     * 归档日志文件
+     * 检查文件是否为某个类别已滚动的分段
      */
-    private void archiveLogFile(File logFile) {
-        try {
-            String fileName = logFile.getName();
-            File archiveFile = new File(archiveDirectory, fileName);
-            
-            boolean success = logFile.renameTo(archiveFile);
-            
-            if (success) {
-                plugin.getLogger().info("日志文件已归档: " + archiveFile.getName());
-                compressArchivedFile(archiveFile);
-            } else {
-                plugin.getLogger().warning("日志文件归档失败: " + logFile.getName());
+    private boolean isRolledSegment(File file) {
+        String name = file.getName();
+        for (LogCategory category : LogCategory.values()) {
+            if (name.startsWith(category.getFileBaseName() + "_") || name.equals(category.getFileBaseName() + ".log")) {
+                return true;
             }
-        } catch (Exception e) {
-            plugin.getLogger().severe("日志归档异常: " + e.getMessage());
         }
-    }
-    
-    /**
-     * 压缩归档文件
-     */
-    private void compressArchivedFile(File file) {
-        // 这里可以实现GZIP压缩
-        // 为简化示例，暂时跳过压缩实现
+        return false;
     }
     
     /**
@@ -369,6 +461,14 @@ public class LogManager {
                 }
             }
         }
+        
+        if (ledger != null) {
+            long ledgerCutoff = System.currentTimeMillis() - (archivalConfig.getLedgerRetentionDays() * 24 * 60 * 60 * 1000L);
+            int deleted = ledger.deleteSegmentsBefore(ledgerCutoff);
+            if (deleted > 0) {
+                plugin.getLogger().info("已删除过期交易账本文件: " + deleted + " 个");
+            }
+        }
     }
     
     /**
@@ -392,27 +492,43 @@ public class LogManager {
             }
         }
         
-        return new LogDirectoryInfo(totalSize, fileCount);
+        return new LogDirectoryInfo(totalSize, fileCount, archiver.getStats());
     }
     
     /**
      * 清理内存中的统计数据
      */
     public void clearStats() {
-        logStats.clear();
+        for (LogSink sink : sinks.values()) {
+            sink.resetStats();
+        }
+        for (LogRateLimiter limiter : rateLimiters.values()) {
+            limiter.resetStats();
+        }
     }
     
     /**
      * 关闭日志管理器
      */
     public void shutdown() {
-        scheduler.shutdown();
-        try {
-            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                scheduler.shutdownNow();
+        for (ScheduledFuture<?> task : maintenanceTasks) {
+            task.cancel(false);
+        }
+        maintenanceTasks.clear();
+        
+        // 停止接收新的归档任务，之后产生的分段留到下次启动时处理
+        archiver.shutdown();
+        
+        for (LogSink sink : sinks.values()) {
+            sink.close();
+        }
+        
+        if (ledger != null) {
+            try {
+                ledger.close();
+            } catch (IOException e) {
+                plugin.getLogger().warning("交易账本关闭失败: " + e.getMessage());
             }
-        } catch (InterruptedException e) {
-            scheduler.shutdownNow();
         }
         
         for (Handler handler : logger.getHandlers()) {
@@ -467,6 +583,7 @@ public class LogManager {
         private RotationType mainLogRotation = RotationType.DAILY;
         private RotationType transactionLogRotation = RotationType.DAILY;
         private RotationType playerLogRotation = RotationType.DAILY;
+        private RotationType economyLogRotation = RotationType.DAILY;
         private long maxFileSize = 10 * 1024 * 1024; // 10MB
         
         public void loadFromConfig(org.bukkit.configuration.ConfigurationSection config) {
@@ -479,6 +596,9 @@ public class LogManager {
             if (config.contains("rotation.player-activity")) {
                 playerLogRotation = RotationType.valueOf(config.getString("rotation.player-activity", "DAILY").toUpperCase());
             }
+            if (config.contains("rotation.economy")) {
+                economyLogRotation = RotationType.valueOf(config.getString("rotation.economy", "DAILY").toUpperCase());
+            }
             if (config.contains("rotation.max-file-size")) {
                 maxFileSize = config.getLong("rotation.max-file-size", 10485760);
             }
@@ -488,7 +608,111 @@ public class LogManager {
         public RotationType getMainLogRotation() { return mainLogRotation; }
         public RotationType getTransactionLogRotation() { return transactionLogRotation; }
         public RotationType getPlayerLogRotation() { return playerLogRotation; }
+        public RotationType getEconomyLogRotation() { return economyLogRotation; }
         public long getMaxFileSize() { return maxFileSize; }
+        
+        public RotationType getRotation(LogCategory category) {
+            switch (category) {
+                case TRANSACTION:
+                    return transactionLogRotation;
+                case PLAYER_ACTIVITY:
+                    return playerLogRotation;
+                case ECONOMY:
+                    return economyLogRotation;
+                default:
+                    return mainLogRotation;
+            }
+        }
+    }
+    
+    /**
+     * 日志输出端配置
+     * 每个类别可以单独设置级别过滤和缓冲区大小
+     */
+    public static class LogSinkConfig {
+        private static final int DEFAULT_BUFFER_SIZE = 8192;
+        
+        private final Map<LogCategory, Level> levels = new EnumMap<>(LogCategory.class);
+        private final Map<LogCategory, Integer> bufferSizes = new EnumMap<>(LogCategory.class);
+        
+        public void loadFromConfig(org.bukkit.configuration.ConfigurationSection config) {
+            for (LogCategory category : LogCategory.values()) {
+                String path = "sinks." + category.getConfigKey();
+                if (config.contains(path + ".level")) {
+                    levels.put(category, Level.parse(config.getString(path + ".level", "ALL").toUpperCase()));
+                }
+                if (config.contains(path + ".buffer-size")) {
+                    bufferSizes.put(category, Math.max(512, config.getInt(path + ".buffer-size", DEFAULT_BUFFER_SIZE)));
+                }
+            }
+        }
+        
+        // Getters
+        public Level getLevel(LogCategory category, Level defaultLevel) {
+            Level level = levels.get(category);
+            return level != null ? level : defaultLevel;
+        }
+        
+        public int getBufferSize(LogCategory category) {
+            Integer size = bufferSizes.get(category);
+            return size != null ? size : DEFAULT_BUFFER_SIZE;
+        }
+    }
+    
+    /**
+     * 日志限流配置
+     * 每个类别的令牌桶速率（条/秒）、突发容量和超限后的采样间隔（0 表示超限后全部丢弃）
+     */
+    public static class LogRateLimitConfig {
+        private static final double DEFAULT_RATE = 50.0;
+        private static final int DEFAULT_BURST = 200;
+        private static final int DEFAULT_SAMPLE_EVERY = 10;
+        
+        private boolean enabled = true;
+        private int summaryInterval = 60;
+        private final Map<LogCategory, Double> rates = new EnumMap<>(LogCategory.class);
+        private final Map<LogCategory, Integer> bursts = new EnumMap<>(LogCategory.class);
+        private final Map<LogCategory, Integer> sampleEvery = new EnumMap<>(LogCategory.class);
+        
+        public void loadFromConfig(org.bukkit.configuration.ConfigurationSection config) {
+            if (config.contains("rate-limit.enabled")) {
+                enabled = config.getBoolean("rate-limit.enabled", true);
+            }
+            if (config.contains("rate-limit.summary-interval")) {
+                summaryInterval = Math.max(1, config.getInt("rate-limit.summary-interval", 60));
+            }
+            for (LogCategory category : LogCategory.values()) {
+                String path = "rate-limit." + category.getConfigKey();
+                if (config.contains(path + ".rate")) {
+                    rates.put(category, Math.max(0.1, config.getDouble(path + ".rate", DEFAULT_RATE)));
+                }
+                if (config.contains(path + ".burst")) {
+                    bursts.put(category, Math.max(1, config.getInt(path + ".burst", DEFAULT_BURST)));
+                }
+                if (config.contains(path + ".sample-every")) {
+                    sampleEvery.put(category, Math.max(0, config.getInt(path + ".sample-every", DEFAULT_SAMPLE_EVERY)));
+                }
+            }
+        }
+        
+        // Getters
+        public boolean isEnabled() { return enabled; }
+        public int getSummaryInterval() { return summaryInterval; }
+        
+        public double getRate(LogCategory category) {
+            Double rate = rates.get(category);
+            return rate != null ? rate : DEFAULT_RATE;
+        }
+        
+        public int getBurst(LogCategory category) {
+            Integer burst = bursts.get(category);
+            return burst != null ? burst : DEFAULT_BURST;
+        }
+        
+        public int getSampleEvery(LogCategory category) {
+            Integer every = sampleEvery.get(category);
+            return every != null ? every : DEFAULT_SAMPLE_EVERY;
+        }
     }
     
     /**
@@ -498,6 +722,9 @@ public class LogManager {
         private int archiveAfterDays = 7;
         private int deleteAfterDays = 30;
         private boolean compressArchived = true;
+        private String codec = "gzip";
+        private int compressionLevel = 3;
+        private int ledgerRetentionDays = 365;
         
         public void loadFromConfig(org.bukkit.configuration.ConfigurationSection config) {
             if (config.contains("archival.archive-after-days")) {
@@ -509,12 +736,24 @@ public class LogManager {
             if (config.contains("archival.compress")) {
                 compressArchived = config.getBoolean("archival.compress", true);
             }
+            if (config.contains("archival.codec")) {
+                codec = config.getString("archival.codec", "gzip");
+            }
+            if (config.contains("archival.compression-level")) {
+                compressionLevel = config.getInt("archival.compression-level", 3);
+            }
+            if (config.contains("archival.ledger-retention-days")) {
+                ledgerRetentionDays = config.getInt("archival.ledger-retention-days", 365);
+            }
         }
         
         // Getters
         public int getArchiveAfterDays() { return archiveAfterDays; }
         public int getDeleteAfterDays() { return deleteAfterDays; }
         public boolean isCompressArchived() { return compressArchived; }
+        public String getCodec() { return codec; }
+        public int getCompressionLevel() { return compressionLevel; }
+        public int getLedgerRetentionDays() { return ledgerRetentionDays; }
     }
     
     /**
@@ -523,14 +762,24 @@ public class LogManager {
     public static class LogDirectoryInfo {
         private final long totalSize;
         private final int fileCount;
+        private final LogArchiver.CompressionStats compressionStats;
         
-        public LogDirectoryInfo(long totalSize, int fileCount) {
+        public LogDirectoryInfo(long totalSize, int fileCount, LogArchiver.CompressionStats compressionStats) {
             this.totalSize = totalSize;
             this.fileCount = fileCount;
+            this.compressionStats = compressionStats;
         }
         
         public long getTotalSize() { return totalSize; }
         public int getFileCount() { return fileCount; }
+        public LogArchiver.CompressionStats getCompressionStats() { return compressionStats; }
+        
+        public String getFormattedCompression() {
+            return String.format("%s %.2fx, %.2f MB/s (%d 个文件, %d 个待处理)",
+                compressionStats.getCodec(), compressionStats.getCompressionRatio(),
+                compressionStats.getThroughputMBps(), compressionStats.getFilesCompressed(),
+                compressionStats.getPending());
+        }
         
         public String getFormattedSize() {
             if (totalSize < 1024) return totalSize + " B";
@@ -542,7 +791,7 @@ public class LogManager {
     /**
      * 交易日志条目
      */
-    public static class TransactionLogEntry {
+    public static class TransactionLogEntry implements LogEntry {
         private final long timestamp;
         private final String playerName;
         private final UUID playerUUID;
@@ -560,18 +809,51 @@ public class LogManager {
             this.description = description;
         }
         
+        @Override
+        public long getTimestamp() {
+            return timestamp;
+        }
+        
+        @Override
+        public void encodeTo(LogEntryEncoder encoder) {
+            encoder.append("[TRANSACTION] ").appendTimestamp(timestamp)
+                .append(" | Player: ").append(playerName)
+                .append(" (").append(playerUUID)
+                .append(") | Action: ").append(action)
+                .append(" | Amount: ").appendAmount(amount)
+                .append(" | ").append(description);
+        }
+        
+        /**
+         * 编码为一行紧凑 JSON（不含换行符），供交易账本使用
+         */
+        public void encodeJsonTo(LogEntryEncoder encoder) {
+            encoder.append("{\"ts\":").append(timestamp)
+                .append(",\"time\":\"").appendTimestamp(timestamp)
+                .append("\",\"player\":").appendJsonString(playerName)
+                .append(",\"uuid\":\"").append(playerUUID)
+                .append("\",\"action\":").appendJsonString(action)
+                .append(",\"amount\":").appendAmount(amount)
+                .append(",\"desc\":").appendJsonString(description)
+                .append('}');
+        }
+        
+        public UUID getPlayerUUID() {
+            return playerUUID;
+        }
+        
         @Override
         public String toString() {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            return String.format("[TRANSACTION] %s | Player: %s (%s) | Action: %s | Amount: %.2f | %s",
-                dateFormat.format(new Date(timestamp)), playerName, playerUUID, action, amount, description);
+            LogEntryEncoder encoder = LogEntryEncoder.get();
+            encodeTo(encoder);
+            return encoder.toString();
         }
     }
     
     /**
      * 玩家活动日志条目
      */
-    public static class PlayerActivityLogEntry {
+    public static class PlayerActivityLogEntry implements LogEntry {
         private final long timestamp;
         private final String playerName;
         private final UUID playerUUID;
@@ -587,18 +869,32 @@ public class LogManager {
             this.details = details;
         }
         
+        @Override
+        public long getTimestamp() {
+            return timestamp;
+        }
+        
+        @Override
+        public void encodeTo(LogEntryEncoder encoder) {
+            encoder.append("[PLAYER_ACTIVITY] ").appendTimestamp(timestamp)
+                .append(" | Player: ").append(playerName)
+                .append(" (").append(playerUUID)
+                .append(") | Activity: ").append(activity)
+                .append(" | Details: ").append(details);
+        }
+        
         @Override
         public String toString() {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            return String.format("[PLAYER_ACTIVITY] %s | Player: %s (%s) | Activity: %s | Details: %s",
-                dateFormat.format(new Date(timestamp)), playerName, playerUUID, activity, details);
+            LogEntryEncoder encoder = LogEntryEncoder.get();
+            encodeTo(encoder);
+            return encoder.toString();
         }
     }
     
     /**
      * 经济日志条目
      */
-    public static class EconomyLogEntry {
+    public static class EconomyLogEntry implements LogEntry {
         private final long timestamp;
         private final String playerName;
         private final UUID playerUUID;
@@ -617,54 +913,25 @@ public class LogManager {
         }
         
         @Override
-        public String toString() {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            String status = success ? "SUCCESS" : "FAILED";
-            return String.format("[ECONOMY] %s | Player: %s (%s) | Operation: %s | Status: %s | Details: %s",
-                dateFormat.format(new Date(timestamp)), playerName, playerUUID, operation, status, details);
+        public long getTimestamp() {
+            return timestamp;
         }
-    }
-    
-    /**
-     * 详细日志格式化器
-     */
-    public static class DetailedFormatter extends SimpleFormatter {
-        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         
         @Override
-        public String format(LogRecord record) {
-            return String.format("[%s] [%s] %s%n", 
-                dateFormat.format(new Date(record.getMillis())),
-                record.getLevel().getName(),
-                record.getMessage());
+        public void encodeTo(LogEntryEncoder encoder) {
+            encoder.append("[ECONOMY] ").appendTimestamp(timestamp)
+                .append(" | Player: ").append(playerName)
+                .append(" (").append(playerUUID)
+                .append(") | Operation: ").append(operation)
+                .append(" | Status: ").append(success ? "SUCCESS" : "FAILED")
+                .append(" | Details: ").append(details);
         }
-    }
-    
-    /**
-     * 交易日志格式化器
-     */
-    public static class TransactionFormatter extends SimpleFormatter {
-        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         
         @Override
-        public String format(LogRecord record) {
-            return String.format("%s | %s%n", 
-                dateFormat.format(new Date(record.getMillis())),
-                record.getMessage());
-        }
-    }
-    
-    /**
-     * 玩家活动日志格式化器
-     */
-    public static class PlayerActivityFormatter extends SimpleFormatter {
-        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        
-        @Override
-        public String format(LogRecord record) {
-            return String.format("%s | %s%n", 
-                dateFormat.format(new Date(record.getMillis())),
-                record.getMessage());
+        public String toString() {
+            LogEntryEncoder encoder = LogEntryEncoder.get();
+            encodeTo(encoder);
+            return encoder.toString();
         }
     }
 }
\ No newline at end of file
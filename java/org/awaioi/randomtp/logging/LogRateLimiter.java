@@ -0,0 +1,115 @@
+package org.awaioi.randomtp.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 日志限流器
+ * 每个日志类别一个令牌桶：令牌充足时正常写入，令牌耗尽后进入采样模式，
+ * 每 N 条超限记录只保留 1 条，其余计入抑制计数，由 LogManager 定期汇总输出
+ */
+public class LogRateLimiter {
+    
+    private final LogCategory category;
+    private final double tokensPerNano;
+    private final double burst;
+    private final int sampleEvery;
+    
+    // 令牌桶状态（受 this 锁保护）
+    private double tokens;
+    private long lastRefill;
+    
+    // 统计信息
+    private final AtomicLong allowedCount = new AtomicLong();
+    private final AtomicLong sampledCount = new AtomicLong();
+    private final AtomicLong suppressedCount = new AtomicLong();
+    private final AtomicLong overLimitCount = new AtomicLong();
+    private final AtomicLong windowSuppressed = new AtomicLong();
+    
+    public LogRateLimiter(LogCategory category, double recordsPerSecond, int burst, int sampleEvery) {
+        this.category = category;
+        this.tokensPerNano = recordsPerSecond / 1_000_000_000.0;
+        this.burst = Math.max(1, burst);
+        this.sampleEvery = sampleEvery;
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+    }
+    
+    /**
+     * 尝试获取写入许可；返回 false 表示该记录应被丢弃
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        synchronized (this) {
+            tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                allowedCount.incrementAndGet();
+                return true;
+            }
+        }
+        
+        // 超出速率后按 1/N 采样
+        if (sampleEvery > 0 && overLimitCount.incrementAndGet() % sampleEvery == 0) {
+            sampledCount.incrementAndGet();
+            return true;
+        }
+        
+        suppressedCount.incrementAndGet();
+        windowSuppressed.incrementAndGet();
+        return false;
+    }
+    
+    /**
+     * 取出并清零本统计周期内被抑制的记录数
+     */
+    public long drainSuppressed() {
+        return windowSuppressed.getAndSet(0);
+    }
+    
+    public LogCategory getCategory() {
+        return category;
+    }
+    
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+    
+    /**
+     * 获取统计快照
+     */
+    public LimiterStats getStats() {
+        return new LimiterStats(category, allowedCount.get(), sampledCount.get(), suppressedCount.get());
+    }
+    
+    /**
+     * 重置统计计数
+     */
+    public void resetStats() {
+        allowedCount.set(0);
+        sampledCount.set(0);
+        suppressedCount.set(0);
+    }
+    
+    /**
+     * 限流器统计快照
+     */
+    public static class LimiterStats {
+        private final LogCategory category;
+        private final long allowed;
+        private final long sampled;
+        private final long suppressed;
+        
+        public LimiterStats(LogCategory category, long allowed, long sampled, long suppressed) {
+            this.category = category;
+            this.allowed = allowed;
+            this.sampled = sampled;
+            this.suppressed = suppressed;
+        }
+        
+        public LogCategory getCategory() { return category; }
+        public long getAllowed() { return allowed; }
+        public long getSampled() { return sampled; }
+        public long getSuppressed() { return suppressed; }
+    }
+}
\ No newline at end of file
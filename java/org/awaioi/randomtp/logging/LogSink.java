@@ -0,0 +1,194 @@
+package org.awaioi.randomtp.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * 分类日志输出端
+ * 每个日志类别拥有独立的文件、级别过滤、缓冲区大小和统计计数
+ * 记录通过线程复用的 LogEntryEncoder 直接编码为字节，不经过 Formatter，
+ * 再交给 RollingFileWriter 写入当前分段
+ */
+public class LogSink extends Handler {
+    
+    private final LogCategory category;
+    private final RollingFileWriter writer;
+    private volatile boolean closed;
+    
+    // 统计信息
+    private final AtomicLong recordCount = new AtomicLong();
+    private final AtomicLong byteCount = new AtomicLong();
+    private final AtomicLong filteredCount = new AtomicLong();
+    
+    public LogSink(LogCategory category, RollingFileWriter writer, Level level) {
+        this.category = category;
+        this.writer = writer;
+        setLevel(level);
+    }
+    
+    /**
+     * 检查指定级别是否会被写入
+     */
+    public boolean isLevelEnabled(Level level) {
+        int threshold = getLevel().intValue();
+        return threshold != Level.OFF.intValue() && level.intValue() >= threshold;
+    }
+    
+    /**
+     * 写入结构化日志条目（INFO 级别）
+     */
+    public void write(LogEntry entry) {
+        if (!isLevelEnabled(Level.INFO)) {
+            filteredCount.incrementAndGet();
+            return;
+        }
+        
+        LogEntryEncoder encoder = LogEntryEncoder.get();
+        entry.encodeTo(encoder);
+        encoder.appendLineSeparator();
+        writeEncoded(encoder, false);
+    }
+    
+    /**
+     * 写入普通文本日志，格式为 [时间] [级别] 消息
+     */
+    public void write(long timestamp, Level level, String message, Throwable throwable) {
+        if (!isLevelEnabled(level)) {
+            filteredCount.incrementAndGet();
+            return;
+        }
+        
+        LogEntryEncoder encoder = LogEntryEncoder.get();
+        encoder.append('[').appendTimestamp(timestamp)
+            .append("] [").append(level.getName()).append("] ")
+            .append(message)
+            .appendLineSeparator();
+        if (throwable != null) {
+            encoder.appendStackTrace(throwable);
+        }
+        
+        // 警告及以上级别立即落盘，避免崩溃时丢失
+        writeEncoded(encoder, level.intValue() >= Level.WARNING.intValue());
+    }
+    
+    @Override
+    public void publish(LogRecord record) {
+        if (record == null) {
+            return;
+        }
+        write(record.getMillis(), record.getLevel(), record.getMessage(), record.getThrown());
+    }
+    
+    private void writeEncoded(LogEntryEncoder encoder, boolean flushNow) {
+        if (closed) {
+            return;
+        }
+        
+        int length = encoder.length();
+        try {
+            writer.write(encoder.array(), 0, length);
+            if (flushNow) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+            return;
+        }
+        
+        recordCount.incrementAndGet();
+        byteCount.addAndGet(length);
+    }
+    
+    @Override
+    public void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+    
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+    
+    /**
+     * 获取日志类别
+     */
+    public LogCategory getCategory() {
+        return category;
+    }
+    
+    /**
+     * 获取当前写入的日志文件
+     */
+    public File getFile() {
+        return writer.getActiveFile();
+    }
+    
+    /**
+     * 获取缓冲区大小
+     */
+    public int getBufferSize() {
+        return writer.getBufferSize();
+    }
+    
+    /**
+     * 获取统计快照
+     */
+    public SinkStats getStats() {
+        return new SinkStats(category, recordCount.get(), byteCount.get(), filteredCount.get(), 
+            writer.getRollCount());
+    }
+    
+    /**
+     * 重置统计计数
+     */
+    public void resetStats() {
+        recordCount.set(0);
+        byteCount.set(0);
+        filteredCount.set(0);
+    }
+    
+    /**
+     * 输出端统计快照
+     */
+    public static class SinkStats {
+        private final LogCategory category;
+        private final long records;
+        private final long bytes;
+        private final long filtered;
+        private final long rolls;
+        
+        public SinkStats(LogCategory category, long records, long bytes, long filtered, long rolls) {
+            this.category = category;
+            this.records = records;
+            this.bytes = bytes;
+            this.filtered = filtered;
+            this.rolls = rolls;
+        }
+        
+        public LogCategory getCategory() { return category; }
+        public long getRecords() { return records; }
+        public long getBytes() { return bytes; }
+        public long getFiltered() { return filtered; }
+        public long getRolls() { return rolls; }
+    }
+}
\ No newline at end of file
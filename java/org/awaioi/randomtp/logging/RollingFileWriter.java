@@ -0,0 +1,320 @@
+package org.awaioi.randomtp.logging;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import org.awaioi.randomtp.logging.LogManager.LogRotationConfig.RotationType;
+
+/**
+ * 滚动日志写入器
+ * 基于 FileChannel 写入，按大小或日历边界（天/小时）滚动。
+ * 下一次滚动时间在每次滚动时预先计算，写入路径只做一次时间比较，不需要定时扫描日志目录；
+ * 滚动时先打开新分段再切换，旧分段关闭后交给归档器处理
+ */
+public class RollingFileWriter implements Closeable {
+    
+    private static final DateTimeFormatter DAILY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter HOURLY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH");
+    private static final DateTimeFormatter SEGMENT_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    
+    // 大小轮转重命名失败后，间隔该时间再重试
+    private static final long RENAME_RETRY_MILLIS = 60_000L;
+    
+    private final File directory;
+    private final String baseName;
+    private final RotationType rotationType;
+    private final long maxFileSize;
+    private final ZoneId zone;
+    private final ByteBuffer buffer;
+    private final Consumer<File> segmentListener;
+    private final Logger logger;
+    
+    // 当前分段状态（受 this 锁保护）
+    private FileChannel channel;
+    private File activeFile;
+    private long activeSize;
+    private String activePeriod;
+    private int sequence;
+    private long nextRollTime;
+    private long rollCount;
+    private long sizeRollRetryAt;
+    private boolean broken;
+    private boolean closed;
+    
+    public RollingFileWriter(File directory, String baseName, RotationType rotationType, long maxFileSize, 
+                             int bufferSize, Consumer<File> segmentListener, Logger logger) throws IOException {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.rotationType = rotationType;
+        this.maxFileSize = maxFileSize;
+        this.zone = ZoneId.systemDefault();
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.segmentListener = segmentListener;
+        this.logger = logger;
+        
+        openSegment(System.currentTimeMillis());
+    }
+    
+    /**
+     * 写入数据，必要时先滚动到新分段
+     */
+    public synchronized void write(byte[] data, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("写入器已关闭: " + baseName);
+        }
+        
+        long now = System.currentTimeMillis();
+        reopenIfBroken(now);
+        if (shouldRoll(now, length)) {
+            roll(now);
+        }
+        
+        if (length > buffer.remaining()) {
+            drainBuffer();
+            if (length > buffer.capacity()) {
+                // 超过缓冲区容量的记录直接写入通道
+                writeFully(ByteBuffer.wrap(data, offset, length));
+                activeSize += length;
+                return;
+            }
+        }
+        
+        buffer.put(data, offset, length);
+        activeSize += length;
+    }
+    
+    /**
+     * 将缓冲区写入文件；到达日历边界时顺带完成滚动
+     */
+    public synchronized void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        reopenIfBroken(now);
+        if (now >= nextRollTime) {
+            roll(now);
+        } else {
+            drainBuffer();
+        }
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        
+        if (broken) {
+            return;
+        }
+        try {
+            drainBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+    
+    /**
+     * 获取当前活动文件
+     */
+    public synchronized File getActiveFile() {
+        return activeFile;
+    }
+    
+    /**
+     * 获取已完成的滚动次数
+     */
+    public synchronized long getRollCount() {
+        return rollCount;
+    }
+    
+    /**
+     * 获取缓冲区大小
+     */
+    public int getBufferSize() {
+        return buffer.capacity();
+    }
+    
+    private boolean shouldRoll(long now, int incoming) {
+        if (rotationType == RotationType.NEVER) {
+            return false;
+        }
+        if (now >= nextRollTime) {
+            return true;
+        }
+        return maxFileSize > 0 && activeSize > 0 && activeSize + incoming > maxFileSize && now >= sizeRollRetryAt;
+    }
+    
+    /**
+     * 上次重新打开分段失败时，先重试打开（失败则本次写入失败，下次继续重试）
+     */
+    private void reopenIfBroken(long now) throws IOException {
+        if (broken) {
+            openSegment(now);
+            broken = false;
+        }
+    }
+    
+    /**
+     * 滚动到新分段
+     */
+    private void roll(long now) throws IOException {
+        drainBuffer();
+        
+        FileChannel previousChannel = channel;
+        File previousFile = activeFile;
+        File closedSegment;
+        
+        if (rotationType == RotationType.SIZE) {
+            // 大小轮转的活动文件名固定，需要先关闭再原子重命名
+            previousChannel.close();
+            closedSegment = uniqueFile(baseName + "_" + SEGMENT_FORMAT.format(Instant.ofEpochMilli(now).atZone(zone)), ".log");
+            try {
+                moveAtomically(previousFile, closedSegment);
+            } catch (IOException e) {
+                // 重命名失败时继续写入原文件，保证不丢失记录；一段时间后再尝试滚动
+                logger.warning("日志分段重命名失败，继续写入 " + previousFile.getName() + ": " + e.getMessage());
+                closedSegment = null;
+                sizeRollRetryAt = now + RENAME_RETRY_MILLIS;
+            }
+            
+            try {
+                openSegment(now);
+            } catch (IOException e) {
+                // 无法重新打开时标记为损坏，下次写入时重试打开
+                broken = true;
+                throw e;
+            }
+            if (closedSegment == null) {
+                return;
+            }
+        } else {
+            // 日历轮转的新分段使用新文件名，先打开新分段再关闭旧分段
+            openSegment(now);
+            previousChannel.close();
+            closedSegment = previousFile;
+        }
+        
+        rollCount++;
+        
+        if (segmentListener != null && closedSegment.length() > 0) {
+            segmentListener.accept(closedSegment);
+        } else if (closedSegment.length() == 0) {
+            closedSegment.delete();
+        }
+    }
+    
+    /**
+     * 打开当前时间对应的分段
+     */
+    private void openSegment(long now) throws IOException {
+        ZonedDateTime time = Instant.ofEpochMilli(now).atZone(zone);
+        String period = getPeriodName(time);
+        
+        if (!period.equals(activePeriod)) {
+            activePeriod = period;
+            sequence = 0;
+        } else if (rotationType != RotationType.SIZE) {
+            sequence++;
+        }
+        
+        File file = segmentFile(period, sequence);
+        boolean calendarRotation = rotationType == RotationType.DAILY || rotationType == RotationType.HOURLY;
+        while (calendarRotation && maxFileSize > 0 && file.length() >= maxFileSize) {
+            // 重启后同一周期内的分段已写满，继续使用下一个序号
+            sequence++;
+            file = segmentFile(period, sequence);
+        }
+        
+        channel = FileChannel.open(file.toPath(), 
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        activeFile = file;
+        activeSize = channel.size();
+        nextRollTime = computeNextRollTime(time);
+    }
+    
+    private String getPeriodName(ZonedDateTime time) {
+        switch (rotationType) {
+            case DAILY:
+                return DAILY_FORMAT.format(time);
+            case HOURLY:
+                return HOURLY_FORMAT.format(time);
+            default:
+                return "";
+        }
+    }
+    
+    private File segmentFile(String period, int index) {
+        StringBuilder name = new StringBuilder(baseName);
+        if (!period.isEmpty()) {
+            name.append('_').append(period);
+        }
+        if (index > 0) {
+            name.append('.').append(index);
+        }
+        return new File(directory, name.append(".log").toString());
+    }
+    
+    private long computeNextRollTime(ZonedDateTime time) {
+        switch (rotationType) {
+            case DAILY:
+                return time.toLocalDate().plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            case HOURLY:
+                return time.truncatedTo(ChronoUnit.HOURS).plusHours(1).toInstant().toEpochMilli();
+            default:
+                return Long.MAX_VALUE;
+        }
+    }
+    
+    private File uniqueFile(String name, String extension) {
+        File file = new File(directory, name + extension);
+        int index = 1;
+        while (file.exists()) {
+            file = new File(directory, name + "." + index++ + extension);
+        }
+        return file;
+    }
+    
+    private void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath());
+        }
+    }
+    
+    private void drainBuffer() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            writeFully(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+    
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,627 @@
+package org.awaioi.randomtp.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 交易账本
+ * 交易按天写入 JSON 行文件（transactions_yyyy-MM-dd.jsonl），每个分段附带一个同名 .idx 索引文件，
+ * 索引由定长记录组成（UUID 高位、UUID 低位、行偏移量、时间戳）。
+ * 按玩家查询时只扫描所需日期的索引，再直接定位到匹配的行，不需要逐行解析日志
+ */
+public class TransactionLedger implements Closeable {
+    
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final String FILE_PREFIX = "transactions_";
+    private static final String DATA_EXTENSION = ".jsonl";
+    private static final String INDEX_EXTENSION = ".idx";
+    private static final int INDEX_RECORD_SIZE = 32;
+    private static final int INDEX_READ_BATCH = 256;
+    private static final int LINE_READ_CHUNK = 512;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    
+    private final File directory;
+    private final ZoneId zone;
+    private final ByteBuffer dataBuffer;
+    private final ByteBuffer indexBuffer;
+    
+    // 当前分段状态（受 this 锁保护）
+    private FileChannel dataChannel;
+    private FileChannel indexChannel;
+    private LocalDate activeDay;
+    private long dataSize;
+    private long nextRollTime;
+    private boolean closed;
+    
+    // 统计信息
+    private final AtomicLong recordCount = new AtomicLong();
+    private final AtomicLong byteCount = new AtomicLong();
+    
+    public TransactionLedger(File directory, int bufferSize) throws IOException {
+        this.directory = directory;
+        this.zone = ZoneId.systemDefault();
+        this.dataBuffer = ByteBuffer.allocate(bufferSize);
+        this.indexBuffer = ByteBuffer.allocate(INDEX_RECORD_SIZE * INDEX_READ_BATCH);
+        
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        openSegment(System.currentTimeMillis());
+    }
+    
+    /**
+     * 追加一条交易记录
+     */
+    public synchronized void append(LogManager.TransactionLogEntry entry) throws IOException {
+        if (closed) {
+            throw new IOException("交易账本已关闭");
+        }
+        
+        long timestamp = entry.getTimestamp();
+        if (timestamp >= nextRollTime) {
+            roll(timestamp);
+        }
+        
+        LogEntryEncoder encoder = LogEntryEncoder.get();
+        entry.encodeJsonTo(encoder);
+        encoder.append('\n');
+        int length = encoder.length();
+        long offset = dataSize;
+        
+        if (length > dataBuffer.remaining()) {
+            drainData();
+            if (length > dataBuffer.capacity()) {
+                writeFully(dataChannel, ByteBuffer.wrap(encoder.array(), 0, length));
+            } else {
+                dataBuffer.put(encoder.array(), 0, length);
+            }
+        } else {
+            dataBuffer.put(encoder.array(), 0, length);
+        }
+        dataSize += length;
+        
+        if (indexBuffer.remaining() < INDEX_RECORD_SIZE) {
+            // 索引只能指向已落盘的数据，先写数据再写索引
+            drainData();
+            drainIndex();
+        }
+        UUID uuid = entry.getPlayerUUID();
+        indexBuffer.putLong(uuid != null ? uuid.getMostSignificantBits() : 0L)
+            .putLong(uuid != null ? uuid.getLeastSignificantBits() : 0L)
+            .putLong(offset)
+            .putLong(timestamp);
+        
+        recordCount.incrementAndGet();
+        byteCount.addAndGet(length);
+    }
+    
+    /**
+     * 将缓冲区写入文件
+     */
+    public synchronized void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        drainData();
+        drainIndex();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        
+        try {
+            drainData();
+            drainIndex();
+        } finally {
+            dataChannel.close();
+            indexChannel.close();
+        }
+    }
+    
+    /**
+     * 查询玩家自指定时间以来的交易，最多返回最近的 limit 条
+     */
+    public LedgerQueryResult query(UUID playerUUID, long since, int limit) throws IOException {
+        long start = System.nanoTime();
+        flush();
+        
+        LocalDate sinceDay = Instant.ofEpochMilli(since).atZone(zone).toLocalDate();
+        long msb = playerUUID.getMostSignificantBits();
+        long lsb = playerUUID.getLeastSignificantBits();
+        
+        Deque<LedgerRecord> records = new ArrayDeque<>();
+        int segmentsScanned = 0;
+        long indexRecordsScanned = 0;
+        long matched = 0;
+        Map<String, Double> netPaid = new TreeMap<>();
+        
+        for (File indexFile : listIndexFiles(sinceDay)) {
+            File dataFile = dataFileFor(indexFile);
+            if (!dataFile.exists()) {
+                continue;
+            }
+            segmentsScanned++;
+            
+            List<Long> offsets = new ArrayList<>();
+            try (FileChannel index = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer batch = ByteBuffer.allocate(INDEX_RECORD_SIZE * INDEX_READ_BATCH);
+                while (index.read(batch) > 0 || batch.position() > 0) {
+                    batch.flip();
+                    while (batch.remaining() >= INDEX_RECORD_SIZE) {
+                        long recordMsb = batch.getLong();
+                        long recordLsb = batch.getLong();
+                        long offset = batch.getLong();
+                        long timestamp = batch.getLong();
+                        indexRecordsScanned++;
+                        if (recordMsb == msb && recordLsb == lsb && timestamp >= since) {
+                            offsets.add(offset);
+                        }
+                    }
+                    if (batch.hasRemaining() && batch.position() == 0) {
+                        // 文件末尾的不完整记录（写入中断），忽略
+                        break;
+                    }
+                    batch.compact();
+                }
+            }
+            
+            if (offsets.isEmpty()) {
+                continue;
+            }
+            
+            try (FileChannel data = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+                for (long offset : offsets) {
+                    String line = readLine(data, offset);
+                    LedgerRecord record = line != null ? LedgerRecord.parse(line) : null;
+                    if (record == null) {
+                        continue;
+                    }
+                    matched++;
+                    double signed = record.getSignedAmount();
+                    if (signed != 0) {
+                        netPaid.merge(record.getCurrency() == null ? "" : record.getCurrency(), signed, Double::sum);
+                    }
+                    records.addLast(record);
+                    if (records.size() > limit) {
+                        records.removeFirst();
+                    }
+                }
+            }
+        }
+        
+        return new LedgerQueryResult(new ArrayList<>(records), matched, netPaid, segmentsScanned,
+            indexRecordsScanned, System.nanoTime() - start);
+    }
+    
+    /**
+     * 删除指定日期之前的账本分段
+     */
+    public int deleteSegmentsBefore(long cutoffTime) {
+        LocalDate cutoffDay = Instant.ofEpochMilli(cutoffTime).atZone(zone).toLocalDate();
+        int deleted = 0;
+        
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX));
+        if (files == null) {
+            return 0;
+        }
+        for (File file : files) {
+            LocalDate day = parseDay(file.getName());
+            if (day != null && day.isBefore(cutoffDay) && !day.equals(getActiveDay()) && file.delete()) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+    
+    /**
+     * 获取当前写入的账本文件
+     */
+    public synchronized File getActiveFile() {
+        return segmentFile(activeDay, DATA_EXTENSION);
+    }
+    
+    public long getRecordCount() {
+        return recordCount.get();
+    }
+    
+    public long getByteCount() {
+        return byteCount.get();
+    }
+    
+    private synchronized LocalDate getActiveDay() {
+        return activeDay;
+    }
+    
+    /**
+     * 滚动到新的一天
+     */
+    private void roll(long now) throws IOException {
+        drainData();
+        drainIndex();
+        dataChannel.close();
+        indexChannel.close();
+        openSegment(now);
+    }
+    
+    /**
+     * 打开当前日期对应的分段，并修复上次异常退出留下的不完整索引
+     */
+    private void openSegment(long now) throws IOException {
+        LocalDate day = Instant.ofEpochMilli(now).atZone(zone).toLocalDate();
+        
+        dataChannel = FileChannel.open(segmentFile(day, DATA_EXTENSION).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        indexChannel = FileChannel.open(segmentFile(day, INDEX_EXTENSION).toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dataSize = dataChannel.size();
+        
+        long indexSize = indexChannel.size() - indexChannel.size() % INDEX_RECORD_SIZE;
+        ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_SIZE);
+        while (indexSize > 0) {
+            // 丢弃指向未落盘数据的尾部索引记录
+            record.clear();
+            indexChannel.read(record, indexSize - INDEX_RECORD_SIZE);
+            if (record.getLong(16) < dataSize) {
+                break;
+            }
+            indexSize -= INDEX_RECORD_SIZE;
+        }
+        indexChannel.truncate(indexSize);
+        indexChannel.position(indexSize);
+        
+        activeDay = day;
+        nextRollTime = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+    
+    private File segmentFile(LocalDate day, String extension) {
+        return new File(directory, FILE_PREFIX + DAY_FORMAT.format(day) + extension);
+    }
+    
+    private File dataFileFor(File indexFile) {
+        String name = indexFile.getName();
+        return new File(directory, name.substring(0, name.length() - INDEX_EXTENSION.length()) + DATA_EXTENSION);
+    }
+    
+    /**
+     * 列出不早于指定日期的索引文件（按日期升序）
+     */
+    private List<File> listIndexFiles(LocalDate sinceDay) {
+        File[] files = directory.listFiles((dir, name) ->
+            name.startsWith(FILE_PREFIX) && name.endsWith(INDEX_EXTENSION));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        
+        Arrays.sort(files);
+        List<File> result = new ArrayList<>();
+        for (File file : files) {
+            LocalDate day = parseDay(file.getName());
+            if (day != null && !day.isBefore(sinceDay)) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+    
+    private LocalDate parseDay(String fileName) {
+        int start = FILE_PREFIX.length();
+        int end = start + 10;
+        if (fileName.length() < end) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(fileName.substring(start, end), DAY_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 从指定偏移量读取一行
+     */
+    private String readLine(FileChannel channel, long offset) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(LINE_READ_CHUNK);
+        ByteBuffer chunk = ByteBuffer.allocate(LINE_READ_CHUNK);
+        long position = offset;
+        
+        while (line.size() < MAX_LINE_LENGTH) {
+            chunk.clear();
+            int read = channel.read(chunk, position);
+            if (read <= 0) {
+                return null;
+            }
+            byte[] bytes = chunk.array();
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == '\n') {
+                    line.write(bytes, 0, i);
+                    return new String(line.toByteArray(), StandardCharsets.UTF_8);
+                }
+            }
+            line.write(bytes, 0, read);
+            position += read;
+        }
+        return null;
+    }
+    
+    private void drainData() throws IOException {
+        if (dataBuffer.position() == 0) {
+            return;
+        }
+        dataBuffer.flip();
+        try {
+            writeFully(dataChannel, dataBuffer);
+        } finally {
+            dataBuffer.clear();
+        }
+    }
+    
+    private void drainIndex() throws IOException {
+        if (indexBuffer.position() == 0) {
+            return;
+        }
+        indexBuffer.flip();
+        try {
+            writeFully(indexChannel, indexBuffer);
+        } finally {
+            indexBuffer.clear();
+        }
+    }
+    
+    private void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+    
+    /**
+     * 账本中的一条交易记录
+     */
+    public static class LedgerRecord {
+        private final long timestamp;
+        private final String playerName;
+        private final String action;
+        private final double amount;
+        private final String description;
+        
+        public LedgerRecord(long timestamp, String playerName, String action, double amount, String description) {
+            this.timestamp = timestamp;
+            this.playerName = playerName;
+            this.action = action;
+            this.amount = amount;
+            this.description = description;
+        }
+        
+        public long getTimestamp() { return timestamp; }
+        public String getPlayerName() { return playerName; }
+        public String getAction() { return action; }
+        public double getAmount() { return amount; }
+        public String getDescription() { return description; }
+        
+        /**
+         * 货币名称：经济模块在描述末尾以 " [货币]" 标注非默认货币，没有标注时返回 null
+         */
+        public String getCurrency() {
+            if (description == null || !description.endsWith("]")) {
+                return null;
+            }
+            int start = description.lastIndexOf(" [");
+            return start >= 0 ? description.substring(start + 2, description.length() - 1) : null;
+        }
+        
+        /**
+         * 玩家实际支付方向的金额：扣款为正，退款为负，其他记录为 0
+         */
+        public double getSignedAmount() {
+            if ("WITHDRAW".equals(action)) {
+                return amount;
+            }
+            if ("REFUND".equals(action)) {
+                return -amount;
+            }
+            return 0;
+        }
+        
+        /**
+         * 解析账本写入的单层 JSON 对象，格式不符时返回 null
+         */
+        public static LedgerRecord parse(String line) {
+            long timestamp = 0;
+            String playerName = null;
+            String action = null;
+            double amount = 0;
+            String description = null;
+            
+            int i = skipWhitespace(line, 0);
+            if (i >= line.length() || line.charAt(i) != '{') {
+                return null;
+            }
+            i++;
+            
+            StringBuilder token = new StringBuilder();
+            while (true) {
+                i = skipWhitespace(line, i);
+                if (i >= line.length()) {
+                    return null;
+                }
+                if (line.charAt(i) == '}') {
+                    break;
+                }
+                if (line.charAt(i) == ',') {
+                    i++;
+                    continue;
+                }
+                
+                i = readString(line, i, token);
+                if (i < 0) {
+                    return null;
+                }
+                String key = token.toString();
+                
+                i = skipWhitespace(line, i);
+                if (i >= line.length() || line.charAt(i) != ':') {
+                    return null;
+                }
+                i = skipWhitespace(line, i + 1);
+                if (i >= line.length()) {
+                    return null;
+                }
+                
+                String value;
+                if (line.charAt(i) == '"') {
+                    i = readString(line, i, token);
+                    if (i < 0) {
+                        return null;
+                    }
+                    value = token.toString();
+                } else {
+                    int end = i;
+                    while (end < line.length() && line.charAt(end) != ',' && line.charAt(end) != '}') {
+                        end++;
+                    }
+                    value = line.substring(i, end).trim();
+                    i = end;
+                }
+                
+                try {
+                    switch (key) {
+                        case "ts":
+                            timestamp = Long.parseLong(value);
+                            break;
+                        case "player":
+                            playerName = value;
+                            break;
+                        case "action":
+                            action = value;
+                            break;
+                        case "amount":
+                            amount = Double.parseDouble(value);
+                            break;
+                        case "desc":
+                            description = value;
+                            break;
+                        default:
+                            break;
+                    }
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            
+            return new LedgerRecord(timestamp, playerName, action, amount, description);
+        }
+        
+        private static int skipWhitespace(String line, int index) {
+            while (index < line.length() && Character.isWhitespace(line.charAt(index))) {
+                index++;
+            }
+            return index;
+        }
+        
+        /**
+         * 读取 index 处开始的 JSON 字符串到 out，返回结束引号之后的位置，格式错误返回 -1
+         */
+        private static int readString(String line, int index, StringBuilder out) {
+            if (line.charAt(index) != '"') {
+                return -1;
+            }
+            out.setLength(0);
+            
+            for (int i = index + 1; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    return i + 1;
+                }
+                if (c != '\\') {
+                    out.append(c);
+                    continue;
+                }
+                if (++i >= line.length()) {
+                    return -1;
+                }
+                char escaped = line.charAt(i);
+                switch (escaped) {
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'u':
+                        if (i + 4 >= line.length()) {
+                            return -1;
+                        }
+                        try {
+                            out.append((char) Integer.parseInt(line.substring(i + 1, i + 5), 16));
+                        } catch (NumberFormatException e) {
+                            return -1;
+                        }
+                        i += 4;
+                        break;
+                    default:
+                        out.append(escaped);
+                        break;
+                }
+            }
+            return -1;
+        }
+    }
+    
+    /**
+     * 账本查询结果
+     */
+    public static class LedgerQueryResult {
+        private final List<LedgerRecord> records;
+        private final long matched;
+        private final Map<String, Double> netPaid;
+        private final int segmentsScanned;
+        private final long indexRecordsScanned;
+        private final long elapsedNanos;
+        
+        public LedgerQueryResult(List<LedgerRecord> records, long matched, Map<String, Double> netPaid, 
+                                 int segmentsScanned, long indexRecordsScanned, long elapsedNanos) {
+            this.records = records;
+            this.matched = matched;
+            this.netPaid = netPaid;
+            this.segmentsScanned = segmentsScanned;
+            this.indexRecordsScanned = indexRecordsScanned;
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        public List<LedgerRecord> getRecords() { return records; }
+        public long getMatched() { return matched; }
+        /**
+         * 按货币汇总的净支付金额（扣款减退款，默认货币的键为空字符串）
+         */
+        public Map<String, Double> getNetPaid() { return netPaid; }
+        public int getSegmentsScanned() { return segmentsScanned; }
+        public long getIndexRecordsScanned() { return indexRecordsScanned; }
+        public double getElapsedMillis() { return elapsedNanos / 1_000_000.0; }
+    }
+}
\ No newline at end of file
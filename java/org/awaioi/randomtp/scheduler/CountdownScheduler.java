@@ -0,0 +1,240 @@
+package org.awaioi.randomtp.scheduler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * 共享倒计时调度器（主线程）
+ * 所有玩家的倒计时由同一个每 tick 执行的任务驱动，不再为每个玩家创建 BukkitRunnable。
+ * 倒计时按下次触发的 tick 挂在时间轮的槽位上（每个槽位是一个双向链表），
+ * 每 tick 只处理当前槽位，一次完成所有到期的每步回调和结束回调；取消只需从链表摘除，为 O(1)。
+ * 没有倒计时时停止驱动任务
+ */
+public class CountdownScheduler {
+    
+    // 时间轮槽位数（2 的幂），超过一圈的倒计时用 rounds 记录剩余圈数
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int DETACHED = -1;
+    
+    private final Plugin plugin;
+    private final Countdown[] wheel = new Countdown[WHEEL_SIZE];
+    private final Map<UUID, Countdown> countdowns = new HashMap<>();
+    private long currentTick;
+    private BukkitTask driver;
+    
+    public CountdownScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * 开始按秒计的倒计时，替换该玩家已有的倒计时
+     * @param seconds 倒计时秒数，onStep 依次收到 seconds..1，再过一秒调用 onComplete
+     */
+    public Countdown start(UUID owner, int seconds, Listener listener) {
+        return start(owner, seconds, 20, listener);
+    }
+    
+    /**
+     * 开始倒计时，替换该玩家已有的倒计时
+     * @param steps 步数，第一步在下一 tick 执行，onStep 依次收到 steps..1
+     * @param periodTicks 每步间隔的 tick 数，最后一步之后再过一个间隔调用 onComplete
+     */
+    public Countdown start(UUID owner, int steps, int periodTicks, Listener listener) {
+        cancel(owner);
+        
+        Countdown countdown = new Countdown(owner, Math.max(0, steps), Math.max(1, periodTicks), listener);
+        countdowns.put(owner, countdown);
+        schedule(countdown, currentTick + 1);
+        
+        if (driver == null) {
+            driver = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+        return countdown;
+    }
+    
+    /**
+     * 取消玩家的倒计时（不调用结束回调）
+     * @return 该玩家没有倒计时时返回 false
+     */
+    public boolean cancel(UUID owner) {
+        Countdown countdown = countdowns.remove(owner);
+        if (countdown == null) {
+            return false;
+        }
+        countdown.cancelled = true;
+        if (countdown.slot != DETACHED) {
+            unlink(countdown);
+        }
+        return true;
+    }
+    
+    public boolean isActive(UUID owner) {
+        return countdowns.containsKey(owner);
+    }
+    
+    /**
+     * 获取剩余步数，没有倒计时时返回 0
+     */
+    public int getRemaining(UUID owner) {
+        Countdown countdown = countdowns.get(owner);
+        return countdown != null ? countdown.remaining : 0;
+    }
+    
+    public int getActiveCount() {
+        return countdowns.size();
+    }
+    
+    /**
+     * 停止驱动任务并丢弃所有倒计时
+     */
+    public void shutdown() {
+        if (driver != null) {
+            driver.cancel();
+            driver = null;
+        }
+        for (Countdown countdown : countdowns.values()) {
+            countdown.cancelled = true;
+        }
+        countdowns.clear();
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = null;
+        }
+    }
+    
+    /**
+     * 每 tick 执行：摘下当前槽位的整条链表，到期的执行回调，未到期的（还有剩余圈数）放回
+     */
+    private void tick() {
+        currentTick++;
+        int index = (int) (currentTick & WHEEL_MASK);
+        Countdown countdown = wheel[index];
+        wheel[index] = null;
+        for (Countdown entry = countdown; entry != null; entry = entry.next) {
+            entry.slot = DETACHED;
+        }
+        
+        while (countdown != null) {
+            Countdown next = countdown.next;
+            countdown.prev = null;
+            countdown.next = null;
+            if (!countdown.cancelled) {
+                if (countdown.rounds > 0) {
+                    countdown.rounds--;
+                    link(countdown, index);
+                } else {
+                    fire(countdown);
+                }
+            }
+            countdown = next;
+        }
+        
+        if (countdowns.isEmpty() && driver != null) {
+            driver.cancel();
+            driver = null;
+        }
+    }
+    
+    private void fire(Countdown countdown) {
+        try {
+            if (countdown.remaining <= 0) {
+                countdowns.remove(countdown.owner, countdown);
+                countdown.cancelled = true;
+                countdown.listener.onComplete();
+                return;
+            }
+            
+            if (!countdown.listener.onStep(countdown.remaining)) {
+                cancel(countdown.owner);
+                return;
+            }
+            countdown.remaining--;
+            if (!countdown.cancelled) {
+                schedule(countdown, currentTick + countdown.periodTicks);
+            }
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.WARNING, "倒计时回调出错，已取消该倒计时", e);
+            countdowns.remove(countdown.owner, countdown);
+            countdown.cancelled = true;
+        }
+    }
+    
+    private void schedule(Countdown countdown, long deadline) {
+        countdown.rounds = (deadline - currentTick - 1) / WHEEL_SIZE;
+        link(countdown, (int) (deadline & WHEEL_MASK));
+    }
+    
+    private void link(Countdown countdown, int index) {
+        Countdown head = wheel[index];
+        countdown.slot = index;
+        countdown.prev = null;
+        countdown.next = head;
+        if (head != null) {
+            head.prev = countdown;
+        }
+        wheel[index] = countdown;
+    }
+    
+    private void unlink(Countdown countdown) {
+        if (countdown.prev != null) {
+            countdown.prev.next = countdown.next;
+        } else {
+            wheel[countdown.slot] = countdown.next;
+        }
+        if (countdown.next != null) {
+            countdown.next.prev = countdown.prev;
+        }
+        countdown.prev = null;
+        countdown.next = null;
+        countdown.slot = DETACHED;
+    }
+    
+    /**
+     * 倒计时回调（主线程）
+     */
+    public interface Listener {
+        /**
+         * 每步调用一次
+         * @param remaining 剩余步数（含本步）
+         * @return 返回 false 时中止倒计时，不调用 onComplete
+         */
+        boolean onStep(int remaining);
+        
+        /**
+         * 倒计时结束
+         */
+        void onComplete();
+    }
+    
+    /**
+     * 一个进行中的倒计时，同时是时间轮槽位链表的节点
+     */
+    public static final class Countdown {
+        private final UUID owner;
+        private final int periodTicks;
+        private final Listener listener;
+        private int remaining;
+        private long rounds;
+        private int slot = DETACHED;
+        private Countdown prev;
+        private Countdown next;
+        private boolean cancelled;
+        
+        private Countdown(UUID owner, int steps, int periodTicks, Listener listener) {
+            this.owner = owner;
+            this.remaining = steps;
+            this.periodTicks = periodTicks;
+            this.listener = listener;
+        }
+        
+        public UUID getOwner() { return owner; }
+        public int getRemaining() { return remaining; }
+        public boolean isCancelled() { return cancelled; }
+    }
+}
\ No newline at end of file
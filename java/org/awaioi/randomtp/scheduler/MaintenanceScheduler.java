@@ -0,0 +1,243 @@
+package org.awaioi.randomtp.scheduler;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 插件统一维护调度器
+ * 日志、玩家数据和经济系统的后台任务共用一组命名的守护线程；
+ * 压缩归档、等待经济操作结果等可能长时间阻塞的任务另有一条单线程通道，
+ * 不会占满共用线程而推迟日志刷新等短周期任务；
+ * 周期任务的首次执行加入随机抖动，避免同周期的任务在同一时刻触发；
+ * 每个任务按名称统计运行次数、耗时和失败次数
+ */
+public class MaintenanceScheduler {
+    
+    private final Logger logger;
+    private final ScheduledThreadPoolExecutor executor;
+    private final ScheduledThreadPoolExecutor blockingExecutor;
+    private final int jitterPercent;
+    private final long maxJitterMillis;
+    private final Map<String, JobMetrics> jobMetrics;
+    
+    public MaintenanceScheduler(Logger logger, int threads, int jitterPercent, long maxJitterSeconds) {
+        this.logger = logger;
+        this.jitterPercent = Math.max(0, Math.min(100, jitterPercent));
+        this.maxJitterMillis = TimeUnit.SECONDS.toMillis(Math.max(0, maxJitterSeconds));
+        this.jobMetrics = new ConcurrentHashMap<>();
+        
+        this.executor = createExecutor(Math.max(1, threads), "RandomTP-Maintenance-");
+        this.blockingExecutor = createExecutor(1, "RandomTP-Maintenance-Blocking-");
+    }
+    
+    private static ScheduledThreadPoolExecutor createExecutor(int threads, String namePrefix) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        // 关闭时丢弃尚未到期的周期任务，只等待正在执行和已提交的一次性任务
+        executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return executor;
+    }
+    
+    /**
+     * 按固定频率执行周期任务，首次延迟会加入抖动
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(String jobName, Runnable task,
+                                                  long initialDelay, long period, TimeUnit unit) {
+        long periodMillis = unit.toMillis(period);
+        long delayMillis = unit.toMillis(initialDelay) + computeJitter(periodMillis);
+        return executor.scheduleAtFixedRate(wrap(jobName, task), delayMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 延迟执行一次性任务
+     */
+    public ScheduledFuture<?> schedule(String jobName, Runnable task, long delay, TimeUnit unit) {
+        return executor.schedule(wrap(jobName, task), delay, unit);
+    }
+    
+    /**
+     * 立即提交一次性任务
+     * @throws RejectedExecutionException 调度器已关闭时
+     */
+    public void execute(String jobName, Runnable task) {
+        executor.execute(wrap(jobName, task));
+    }
+    
+    /**
+     * 在阻塞任务通道中按固定频率执行周期任务，首次延迟会加入抖动
+     */
+    public ScheduledFuture<?> scheduleBlockingAtFixedRate(String jobName, Runnable task,
+                                                          long initialDelay, long period, TimeUnit unit) {
+        long periodMillis = unit.toMillis(period);
+        long delayMillis = unit.toMillis(initialDelay) + computeJitter(periodMillis);
+        return blockingExecutor.scheduleAtFixedRate(wrap(jobName, task), delayMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 在阻塞任务通道中立即提交一次性任务
+     * @throws RejectedExecutionException 调度器已关闭时
+     */
+    public void executeBlocking(String jobName, Runnable task) {
+        blockingExecutor.execute(wrap(jobName, task));
+    }
+    
+    /**
+     * 调度器是否已开始关闭
+     */
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+    
+    /**
+     * 获取线程数（不含阻塞任务通道）
+     */
+    public int getThreadCount() {
+        return executor.getCorePoolSize();
+    }
+    
+    /**
+     * 获取排队中的任务数（包括等待下次执行的周期任务）
+     */
+    public int getQueuedTaskCount() {
+        return executor.getQueue().size();
+    }
+    
+    /**
+     * 获取阻塞任务通道中排队的任务数
+     */
+    public int getBlockingQueuedTaskCount() {
+        return blockingExecutor.getQueue().size();
+    }
+    
+    /**
+     * 获取各任务的运行统计（按名称排序）
+     */
+    public Map<String, JobStats> getJobStats() {
+        Map<String, JobStats> stats = new TreeMap<>();
+        for (Map.Entry<String, JobMetrics> entry : jobMetrics.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+        }
+        return stats;
+    }
+    
+    /**
+     * 有序关闭：停止周期任务，等待正在执行的保存、压缩等任务完成
+     */
+    public void shutdown(long timeoutSeconds) {
+        executor.shutdown();
+        blockingExecutor.shutdown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        try {
+            if (!executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                    || !blockingExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                logger.warning("维护任务未能在 " + timeoutSeconds + " 秒内完成，强制停止");
+                executor.shutdownNow();
+                blockingExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            blockingExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private long computeJitter(long periodMillis) {
+        long bound = Math.min(periodMillis * jitterPercent / 100, maxJitterMillis);
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0;
+    }
+    
+    /**
+     * 包装任务：记录耗时，捕获异常以免周期任务被执行器静默取消
+     */
+    private Runnable wrap(String jobName, Runnable task) {
+        JobMetrics metrics = jobMetrics.computeIfAbsent(jobName, name -> new JobMetrics());
+        return () -> {
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                task.run();
+            } catch (Throwable t) {
+                failed = true;
+                logger.log(Level.WARNING, "维护任务 " + jobName + " 执行失败", t);
+            } finally {
+                metrics.record(System.nanoTime() - start, failed);
+            }
+        };
+    }
+    
+    /**
+     * 单个任务的累计指标
+     */
+    private static class JobMetrics {
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile long lastRunTime;
+        
+        void record(long nanos, boolean failed) {
+            runs.incrementAndGet();
+            if (failed) {
+                failures.incrementAndGet();
+            }
+            totalNanos.addAndGet(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // 重试直到更新成功或已有更大的值
+            }
+            lastRunTime = System.currentTimeMillis();
+        }
+        
+        JobStats snapshot(String name) {
+            return new JobStats(name, runs.get(), failures.get(), totalNanos.get(), maxNanos.get(), lastRunTime);
+        }
+    }
+    
+    /**
+     * 任务统计快照
+     */
+    public static class JobStats {
+        private final String name;
+        private final long runs;
+        private final long failures;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long lastRunTime;
+        
+        public JobStats(String name, long runs, long failures, long totalNanos, long maxNanos, long lastRunTime) {
+            this.name = name;
+            this.runs = runs;
+            this.failures = failures;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.lastRunTime = lastRunTime;
+        }
+        
+        public String getName() { return name; }
+        public long getRuns() { return runs; }
+        public long getFailures() { return failures; }
+        public long getLastRunTime() { return lastRunTime; }
+        public double getMaxMillis() { return maxNanos / 1_000_000.0; }
+        
+        public double getAverageMillis() {
+            return runs == 0 ? 0.0 : totalNanos / (double) runs / 1_000_000.0;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,464 @@
+package org.awaioi.randomtp.teleport;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import org.awaioi.randomtp.RandomTP;
+import org.awaioi.randomtp.teleport.TeleportRequestRegistry.TeleportRequest;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Player;
+
+/**
+ * 安全位置搜索
+ * 搜索是一条可取消的 CompletableFuture 链，所有方块检查都在主线程进行：
+ * 候选位置所在区块未加载时，Paper 服务器使用 getChunkAtAsync 异步加载，其他服务器在下一 tick 同步加载，
+ * 每次只有一个区块请求在进行中；三个阶段都按各自的范围和安全标准检查，第三阶段只作为最后手段。
+ * 候选位置与区块边缘至少保持安全检查的扫描半径，检查只读取这一个区块，不会同步加载相邻区块。
+ * 每个候选位置前都检查请求是否已取消；取消时立即以 null 结束，尚未开始的同步加载会被丢弃，
+ * 已在进行的异步加载无法停止，之后到达的结果不再检查也不会接触玩家
+ */
+public class LocationSearch {
+    
+    // Paper 的 World.getChunkAtAsync(int, int)，Spigot 上为 null
+    private static final MethodHandle GET_CHUNK_AT_ASYNC = findGetChunkAtAsync();
+    
+    // 安全检查扫描周围方块的半径；候选位置与区块边缘保持这个距离，扫描不会读到（并同步加载）相邻区块
+    private static final int SCAN_RADIUS = 2;
+    
+    private final RandomTP plugin;
+    private final Random random = new Random();
+    
+    // 统计信息
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong cancelledSearches = new AtomicLong();
+    private final AtomicLong candidatesChecked = new AtomicLong();
+    private final AtomicLong candidatesSkipped = new AtomicLong();
+    private final AtomicLong chunkRequests = new AtomicLong();
+    private final AtomicLong chunkRequestsDropped = new AtomicLong();
+    private final AtomicLong chunkLoadsWasted = new AtomicLong();
+    
+    public LocationSearch(RandomTP plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * 为请求搜索安全位置（主线程调用）
+     * @return 在主线程完成的 future，未找到或请求被取消时结果为 null
+     */
+    public CompletableFuture<Location> search(Player player, TeleportRequest request) {
+        searches.incrementAndGet();
+        Search search = new Search(player.getWorld(), player.getLocation(), request);
+        request.setCancelHook(search::cancel);
+        search.start();
+        return search.result;
+    }
+    
+    public boolean isAsyncChunkLoading() {
+        return GET_CHUNK_AT_ASYNC != null;
+    }
+    
+    /**
+     * 格式化搜索统计
+     */
+    public String getSummary() {
+        return String.format("搜索 %d (取消 %d), 检查候选 %d, 取消省去候选 %d, 区块请求 %d (%s), 取消丢弃(仅同步) %d, 取消后浪费 %d",
+            searches.get(), cancelledSearches.get(), candidatesChecked.get(), candidatesSkipped.get(),
+            chunkRequests.get(), isAsyncChunkLoading() ? "异步" : "同步", chunkRequestsDropped.get(), chunkLoadsWasted.get());
+    }
+    
+    /**
+     * 一次搜索（状态只在主线程修改）
+     */
+    private final class Search {
+        private static final int REDUCED_TRIES = 5;
+        private static final int FALLBACK_RANGE = 1000;
+        
+        private final World world;
+        private final int originX;
+        private final int originZ;
+        private final TeleportRequest request;
+        private final CompletableFuture<Location> result = new CompletableFuture<>();
+        private final int range;
+        private final int standardTries;
+        private final int totalTries;
+        private int attempt;
+        private volatile CompletableFuture<Chunk> pendingChunk;
+        private volatile boolean pendingDroppable;
+        
+        Search(World world, Location origin, TeleportRequest request) {
+            this.world = world;
+            this.originX = origin.getBlockX();
+            this.originZ = origin.getBlockZ();
+            this.request = request;
+            this.range = plugin.getConfigManager().getTeleportRange();
+            this.standardTries = plugin.getConfigManager().getMaxTries();
+            this.totalTries = standardTries + REDUCED_TRIES + plugin.getConfigManager().getMaxTries() * 2;
+        }
+        
+        void start() {
+            next();
+        }
+        
+        /**
+         * 依次检查候选位置，区块未加载时请求加载，加载完成后从该候选位置继续
+         * 第一阶段：标准重试机制；第二阶段：降低标准重试（减少范围）；第三阶段：极低标准重试（最后手段）
+         */
+        private void next() {
+            try {
+                while (attempt < totalTries) {
+                    if (stopIfCancelled(totalTries - attempt)) {
+                        return;
+                    }
+                    boolean fallback = isFallback(attempt);
+                    int candidateRange = fallback ? FALLBACK_RANGE : attempt < standardTries ? range : range / 2;
+                    attempt++;
+                    
+                    int x = keepInsideChunk(originX + random.nextInt(candidateRange * 2) - candidateRange);
+                    int z = keepInsideChunk(originZ + random.nextInt(candidateRange * 2) - candidateRange);
+                    if (!world.isChunkLoaded(x >> 4, z >> 4)) {
+                        requestChunk(x, z, fallback);
+                        return;
+                    }
+                    
+                    Location location = checkCandidate(x, z, fallback);
+                    if (location != null) {
+                        result.complete(location);
+                        return;
+                    }
+                }
+                result.complete(null);
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+        
+        /**
+         * 把坐标移到所在区块内距边缘至少 SCAN_RADIUS 格的位置
+         */
+        private int keepInsideChunk(int coordinate) {
+            int offset = coordinate & 15;
+            return (coordinate & ~15) | Math.max(SCAN_RADIUS, Math.min(15 - SCAN_RADIUS, offset));
+        }
+        
+        private boolean isFallback(int attempt) {
+            return attempt >= standardTries + REDUCED_TRIES;
+        }
+        
+        /**
+         * 检查候选位置（区块已加载）：标准候选遵守 Y 轴限制并做完整安全检查，降低标准的候选只检查基本安全要求
+         */
+        private Location checkCandidate(int x, int z, boolean fallback) {
+            candidatesChecked.incrementAndGet();
+            int y = world.getHighestBlockYAt(x, z);
+            Location testLocation = new Location(world, x + 0.5, y + 1, z + 0.5);
+            if (fallback) {
+                return isBasicSafeLocation(testLocation) ? testLocation : null;
+            }
+            
+            // 检查Y轴限制
+            if (y < plugin.getConfigManager().getMinY() || y > plugin.getConfigManager().getMaxY()) {
+                return null;
+            }
+            return isSafeLocation(testLocation) ? testLocation : null;
+        }
+        
+        private void requestChunk(int x, int z, boolean fallback) {
+            chunkRequests.incrementAndGet();
+            CompletableFuture<Chunk> chunk = loadChunkAsync(world, x >> 4, z >> 4);
+            // 只有下一 tick 加载的请求能在加载前丢弃；异步加载取消 future 也不会停止加载
+            pendingDroppable = chunk == null;
+            if (chunk == null) {
+                chunk = loadChunkNextTick(world, x >> 4, z >> 4);
+            }
+            CompletableFuture<Chunk> requested = chunk;
+            pendingChunk = requested;
+            requested.whenComplete((loaded, error) -> runOnMainThread(() -> {
+                if (requested.isCancelled()) {
+                    return; // 取消时已丢弃，区块没有加载
+                }
+                pendingChunk = null;
+                if (request.isCancelled()) {
+                    chunkLoadsWasted.incrementAndGet();
+                    return;
+                }
+                if (error == null && !result.isDone()) {
+                    Location location = checkCandidate(x, z, fallback);
+                    if (location != null) {
+                        result.complete(location);
+                        return;
+                    }
+                }
+                next();
+            }));
+        }
+        
+        /**
+         * 请求已取消时以 null 结束搜索，并记录省去的候选位置数
+         */
+        private boolean stopIfCancelled(int remainingCandidates) {
+            if (!request.isCancelled()) {
+                return false;
+            }
+            candidatesSkipped.addAndGet(remainingCandidates);
+            result.complete(null);
+            return true;
+        }
+        
+        /**
+         * 取消回调（请求被取消时，由取消的线程调用）：丢弃尚未开始的区块加载，立即结束搜索；
+         * 已在进行的异步加载无法停止，完成时计为浪费
+         */
+        void cancel() {
+            if (result.isDone()) {
+                return;
+            }
+            cancelledSearches.incrementAndGet();
+            CompletableFuture<Chunk> chunk = pendingChunk;
+            if (chunk != null) {
+                candidatesSkipped.addAndGet(totalTries - attempt);
+                if (pendingDroppable && chunk.cancel(false)) {
+                    chunkRequestsDropped.incrementAndGet();
+                }
+            }
+            result.complete(null);
+        }
+        
+        private void fail(RuntimeException e) {
+            plugin.getLogger().log(Level.WARNING, "寻找安全位置时出错", e);
+            result.complete(null);
+        }
+    }
+    
+    /**
+     * Paper 上异步加载区块，不支持或调用失败时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Chunk> loadChunkAsync(World world, int chunkX, int chunkZ) {
+        if (GET_CHUNK_AT_ASYNC != null) {
+            try {
+                return (CompletableFuture<Chunk>) GET_CHUNK_AT_ASYNC.invoke(world, chunkX, chunkZ);
+            } catch (Throwable e) {
+                plugin.getLogger().log(Level.FINE, "异步加载区块失败，改为同步加载", e);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 在下一 tick 同步加载区块（取消后不再加载）
+     */
+    private CompletableFuture<Chunk> loadChunkNextTick(World world, int chunkX, int chunkZ) {
+        CompletableFuture<Chunk> chunk = new CompletableFuture<>();
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if (!chunk.isDone()) {
+                chunk.complete(world.getChunkAt(chunkX, chunkZ));
+            }
+        });
+        return chunk;
+    }
+    
+    private void runOnMainThread(Runnable task) {
+        if (Bukkit.isPrimaryThread()) {
+            task.run();
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+    
+    private static MethodHandle findGetChunkAtAsync() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(World.class, "getChunkAtAsync",
+                MethodType.methodType(CompletableFuture.class, int.class, int.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 检查位置是否安全
+     */
+    private boolean isSafeLocation(Location location) {
+        if (!plugin.getConfigManager().shouldFindSafeLocation()) {
+            return true;
+        }
+        
+        Block block = location.getBlock();
+        Block below = block.getRelative(BlockFace.DOWN);
+        Block above = block.getRelative(BlockFace.UP);
+        Block above2 = block.getRelative(BlockFace.UP, 2);
+        
+        // 检查下方是否为固体方块
+        if (!below.getType().isSolid()) {
+            return false;
+        }
+        
+        // 检查当前方块是否为空气
+        if (!isAir(block.getType())) {
+            return false;
+        }
+        
+        // 检查上方1格是否为空气
+        if (!isAir(above.getType())) {
+            return false;
+        }
+        
+        // 检查上方2格是否为空气（确保玩家可以站立）
+        if (!isAir(above2.getType())) {
+            return false;
+        }
+        
+        // 避免水中传送
+        if (plugin.getConfigManager().shouldAvoidWater() && isWaterNearby(location, SCAN_RADIUS)) {
+            return false;
+        }
+        
+        // 避免岩浆传送
+        if (plugin.getConfigManager().shouldAvoidLava() && isLavaNearby(location, SCAN_RADIUS)) {
+            return false;
+        }
+        
+        // 检查周围危险方块
+        if (hasDangerousBlocksNearby(location, SCAN_RADIUS)) {
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * 检查是否为空气方块
+     */
+    private boolean isAir(Material material) {
+        return material == Material.AIR || material == Material.CAVE_AIR || material == Material.VOID_AIR;
+    }
+    
+    /**
+     * 检查附近是否有水域
+     */
+    private boolean isWaterNearby(Location location, int radius) {
+        World world = location.getWorld();
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dy = -radius; dy <= radius; dy++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    Block block = world.getBlockAt(x + dx, y + dy, z + dz);
+                    if (isWater(block.getType())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 检查附近是否有岩浆
+     */
+    private boolean isLavaNearby(Location location, int radius) {
+        World world = location.getWorld();
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dy = -radius; dy <= radius; dy++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    Block block = world.getBlockAt(x + dx, y + dy, z + dz);
+                    if (block.getType() == Material.LAVA) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 检查附近是否有危险方块
+     */
+    private boolean hasDangerousBlocksNearby(Location location, int radius) {
+        World world = location.getWorld();
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        
+        // 危险方块列表
+        Material[] dangerousBlocks = {
+            Material.FIRE,
+            Material.SOUL_FIRE,
+            Material.OBSIDIAN,
+            Material.CACTUS,
+            Material.SWEET_BERRY_BUSH,
+            Material.WITHER_ROSE,
+            Material.CAMPFIRE,
+            Material.SOUL_CAMPFIRE,
+            Material.END_CRYSTAL
+        };
+        
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dy = -radius; dy <= radius; dy++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    Block block = world.getBlockAt(x + dx, y + dy, z + dz);
+                    for (Material dangerous : dangerousBlocks) {
+                        if (block.getType() == dangerous) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 检查是否为水
+     */
+    private boolean isWater(Material material) {
+        return material == Material.WATER;
+    }
+    
+    /**
+     * 检查基本安全要求
+     */
+    private boolean isBasicSafeLocation(Location location) {
+        Block block = location.getBlock();
+        Block below = block.getRelative(BlockFace.DOWN);
+        
+        return below.getType().isSolid() && 
+               (block.getType() == Material.AIR || block.getType() == Material.CAVE_AIR);
+    }
+    
+    /**
+     * 检查是否为水域
+     */
+    private boolean isWaterArea(Location location) {
+        Block block = location.getBlock();
+        Block below = block.getRelative(BlockFace.DOWN);
+        
+        return block.isLiquid() || below.isLiquid();
+    }
+    
+    /**
+     * 检查是否为岩浆区域
+     */
+    private boolean isLavaArea(Location location) {
+        Block block = location.getBlock();
+        Block below = block.getRelative(BlockFace.DOWN);
+        
+        return block.getType() == Material.LAVA || below.getType() == Material.LAVA;
+    }
+}
\ No newline at end of file
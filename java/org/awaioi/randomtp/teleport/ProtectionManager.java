@@ -0,0 +1,189 @@
+package org.awaioi.randomtp.teleport;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+import org.awaioi.randomtp.RandomTP;
+import org.awaioi.randomtp.economy.CostTable;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * 传送后保护管理器（主线程）
+ * 传送成功后的短暂保护通过取消或减免伤害事件实现，不再给玩家添加抗性提升药水效果，
+ * 因此不会误删玩家自己喝药获得的效果。受保护的玩家按到期时间排在优先队列中，
+ * 由一个周期任务统一移除到期的保护；没有受保护的玩家时停止该任务
+ */
+public class ProtectionManager {
+    
+    private final RandomTP plugin;
+    private ProtectionConfig config;
+    
+    // 按到期时间排序的保护，以及每位玩家当前有效的保护（重复保护时旧的条目在出队时丢弃）
+    private final PriorityQueue<Protection> expiryQueue = new PriorityQueue<>();
+    private final Map<UUID, Protection> protections = new HashMap<>();
+    private BukkitTask expiryTask;
+    
+    // 统计信息
+    private long granted;
+    private long damagePrevented;
+    
+    public ProtectionManager(RandomTP plugin) {
+        this.plugin = plugin;
+        reload();
+    }
+    
+    /**
+     * 重新读取保护配置（已有的保护保持原到期时间）
+     */
+    public void reload() {
+        ProtectionConfig newConfig = new ProtectionConfig();
+        ConfigurationSection section = plugin.getConfigManager().getConfig().getConfigurationSection("teleport.protection");
+        if (section != null) {
+            newConfig.loadFromConfig(section);
+        }
+        config = newConfig;
+    }
+    
+    /**
+     * 为传送成功的玩家添加保护，时长按玩家等级配置
+     */
+    public void protect(Player player) {
+        int seconds = config.getDuration(CostTable.Tier.of(player));
+        if (!config.isEnabled() || seconds <= 0) {
+            return;
+        }
+        
+        Protection protection = new Protection(player.getUniqueId(), System.currentTimeMillis() + seconds * 1000L);
+        protections.put(protection.playerId, protection);
+        expiryQueue.add(protection);
+        granted++;
+        
+        if (expiryTask == null) {
+            expiryTask = Bukkit.getScheduler().runTaskTimer(plugin, this::expire, 10L, 10L);
+        }
+    }
+    
+    /**
+     * 受保护的玩家受到伤害时取消或减免伤害
+     */
+    public void onDamage(Player player, EntityDamageEvent event) {
+        if (!isProtected(player.getUniqueId())) {
+            return;
+        }
+        if (event.getCause() == EntityDamageEvent.DamageCause.VOID) {
+            return; // 掉出世界的伤害不保护，避免玩家卡在虚空中
+        }
+        
+        if (config.getDamageReduction() >= 1.0) {
+            event.setCancelled(true);
+        } else {
+            event.setDamage(event.getDamage() * (1.0 - config.getDamageReduction()));
+        }
+        damagePrevented++;
+    }
+    
+    public boolean isProtected(UUID playerId) {
+        Protection protection = protections.get(playerId);
+        return protection != null && protection.expiresAt > System.currentTimeMillis();
+    }
+    
+    /**
+     * 移除玩家的保护（玩家退出时）
+     */
+    public void remove(UUID playerId) {
+        protections.remove(playerId);
+    }
+    
+    public int getProtectedCount() {
+        return protections.size();
+    }
+    
+    /**
+     * 停止到期任务并移除所有保护
+     */
+    public void shutdown() {
+        if (expiryTask != null) {
+            expiryTask.cancel();
+            expiryTask = null;
+        }
+        expiryQueue.clear();
+        protections.clear();
+    }
+    
+    /**
+     * 格式化保护统计
+     */
+    public String getSummary() {
+        return String.format("保护中 %d, 已添加 %d, 已阻止伤害 %d 次", protections.size(), granted, damagePrevented);
+    }
+    
+    /**
+     * 周期执行：依次移除队首已到期的保护
+     */
+    private void expire() {
+        long now = System.currentTimeMillis();
+        while (!expiryQueue.isEmpty() && expiryQueue.peek().expiresAt <= now) {
+            Protection protection = expiryQueue.poll();
+            protections.remove(protection.playerId, protection);
+        }
+        
+        if (expiryQueue.isEmpty() && expiryTask != null) {
+            expiryTask.cancel();
+            expiryTask = null;
+        }
+    }
+    
+    /**
+     * 一次保护
+     */
+    private static final class Protection implements Comparable<Protection> {
+        private final UUID playerId;
+        private final long expiresAt;
+        
+        Protection(UUID playerId, long expiresAt) {
+            this.playerId = playerId;
+            this.expiresAt = expiresAt;
+        }
+        
+        @Override
+        public int compareTo(Protection other) {
+            return Long.compare(expiresAt, other.expiresAt);
+        }
+    }
+    
+    /**
+     * 保护配置
+     */
+    public static class ProtectionConfig {
+        private boolean enabled = true;
+        private double damageReduction = 1.0;
+        private final Map<CostTable.Tier, Integer> durations = new EnumMap<>(CostTable.Tier.class);
+        
+        public ProtectionConfig() {
+            for (CostTable.Tier tier : CostTable.Tier.values()) {
+                durations.put(tier, 5);
+            }
+        }
+        
+        public void loadFromConfig(ConfigurationSection config) {
+            enabled = config.getBoolean("enabled", enabled);
+            damageReduction = Math.max(0.0, Math.min(1.0, config.getDouble("damage-reduction", damageReduction)));
+            int defaultDuration = config.getInt("duration.default", durations.get(CostTable.Tier.DEFAULT));
+            for (CostTable.Tier tier : CostTable.Tier.values()) {
+                durations.put(tier, Math.max(0, config.getInt("duration." + tier.getKey(), defaultDuration)));
+            }
+        }
+        
+        // Getters
+        public boolean isEnabled() { return enabled; }
+        public double getDamageReduction() { return damageReduction; }
+        public int getDuration(CostTable.Tier tier) { return durations.get(tier); }
+    }
+}
\ No newline at end of file
@@ -2,24 +2,22 @@ package org.awaioi.randomtp.teleport;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import org.awaioi.randomtp.RandomTP;
+import org.awaioi.randomtp.economy.CostTable.TeleportCost;
 import org.awaioi.randomtp.economy.EconomySystemManager;
+import org.awaioi.randomtp.economy.EscrowManager;
+import org.awaioi.randomtp.economy.EscrowManager.Reservation;
+import org.awaioi.randomtp.economy.adapter.EconomyAdapter.TransactionResult;
 import org.awaioi.randomtp.effects.TeleportEffects;
+import org.awaioi.randomtp.listeners.MovementGuard;
+import org.awaioi.randomtp.teleport.TeleportRequestRegistry.State;
+import org.awaioi.randomtp.teleport.TeleportRequestRegistry.TeleportRequest;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
-import org.bukkit.Location;
-import org.bukkit.Material;
-import org.bukkit.World;
-import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
-import org.bukkit.potion.PotionEffect;
-import org.bukkit.potion.PotionEffectType;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 
 /**
  * 传送管理器
@@ -28,17 +26,29 @@ import org.bukkit.scheduler.BukkitTask;
 public class TeleportManager {
     
     private final RandomTP plugin;
-    private final Map<UUID, BukkitTask> teleportTasks;
-    private final Random random;
     private final TeleportEffects teleportEffects;
+    private final ProtectionManager protectionManager;
+    private final MovementGuard movementGuard;
+    private final LocationSearch locationSearch;
     private final EconomySystemManager economySystemManager;
+    private final EscrowManager escrowManager;
+    
+    // 进行中的传送请求（每位玩家最多一个，防止重复搜索和重复扣费）
+    private final TeleportRequestRegistry requests;
+    
+    // 已预留费用、等待传送结果的玩家
+    private final Map<UUID, Reservation> reservations;
     
     public TeleportManager(RandomTP plugin) {
         this.plugin = plugin;
-        this.teleportTasks = new HashMap<>();
-        this.random = new Random();
+        this.requests = new TeleportRequestRegistry();
+        this.reservations = new HashMap<>();
         this.teleportEffects = new TeleportEffects(plugin);
+        this.protectionManager = new ProtectionManager(plugin);
+        this.movementGuard = new MovementGuard(plugin, this);
+        this.locationSearch = new LocationSearch(plugin);
         this.economySystemManager = plugin.getEconomySystemManager();
+        this.escrowManager = plugin.getEscrowManager();
     }
     
     /**
@@ -53,30 +63,64 @@ public class TeleportManager {
             return;
         }
         
-        // 检查经济
-        if (!free && !checkAndDeductEconomy(player)) {
+        // 登记传送请求，已有正在进行的传送任务（费用预留、倒计时、搜索或传送中）时拒绝
+        TeleportRequest request = requests.begin(player.getUniqueId(), free);
+        if (request == null) {
+            // 如果已有传送任务，显示提示消息
+            player.sendMessage(plugin.getConfigManager().getMessage("prefix") + 
+                ChatColor.YELLOW + "你已有传送任务正在进行中。");
             return;
         }
         
-        // 开始传送延迟
-        startTeleportDelay(player, free, bypassCooldown);
+        // 计入请求频率（动态定价的需求指标）
+        if (plugin.getPricingEngine() != null) {
+            plugin.getPricingEngine().recordRequest();
+        }
+        
+        if (free) {
+            startTeleportDelay(player, request, State.QUOTED);
+            return;
+        }
+        
+        // 费用预留在经济线程中完成，成功后回到主线程开始传送；传送成功才确认扣费
+        reserveTeleportCost(player).thenAccept(reserved -> {
+            if (!reserved) {
+                requests.fail(request);
+            } else if (requests.advance(request, State.QUOTED, State.CHARGED)) {
+                startTeleportDelay(player, request, State.CHARGED);
+            } else {
+                // 预留期间请求已被取消，退还刚预留的费用
+                Reservation reservation = reservations.remove(player.getUniqueId());
+                if (reservation != null) {
+                    escrowManager.release(reservation, "传送取消退款");
+                }
+            }
+        });
     }
     
     /**
-     * 开始传送延迟倒计时
+     * 费用预留已超时退还：结束请求并提示玩家重新传送
      */
-    private void startTeleportDelay(Player player, boolean free, boolean bypassCooldown) {
-        // 检查是否有正在进行的传送任务
-        if (hasActiveTeleport(player.getUniqueId())) {
-            // 如果已有传送任务，显示提示消息
+    private void failExpiredReservation(Player player, TeleportRequest request) {
+        requests.fail(request);
+        if (player.isOnline()) {
             player.sendMessage(plugin.getConfigManager().getMessage("prefix") + 
-                ChatColor.YELLOW + "你已有传送任务正在进行中。");
+                ChatColor.YELLOW + "传送费用预留已超时，费用将自动退还，请重新传送。");
+        }
+    }
+    
+    /**
+     * 开始传送延迟倒计时
+     */
+    private void startTeleportDelay(Player player, TeleportRequest request, State from) {
+        if (!requests.advance(request, from, State.COUNTDOWN)) {
             return;
         }
+        boolean escrowed = reservations.containsKey(player.getUniqueId());
         
         // 启动新的传送序列（包含倒计时和效果）
         startTeleportSequence(player, () -> {
-            executeTeleport(player, free, bypassCooldown);
+            executeTeleport(player, request, escrowed);
         });
     }
     
@@ -84,364 +128,177 @@ public class TeleportManager {
      * 启动传送序列（包含效果和倒计时）
      */
     private void startTeleportSequence(Player player, Runnable callback) {
+        // 倒计时和搜索期间检测移动
+        movementGuard.watch(player);
+        
         // 使用新的效果系统
         teleportEffects.startTeleportSequence(player, callback);
     }
     
     /**
      * 执行实际传送
+     * @param escrowed 开始倒计时时是否持有费用预留
      */
-    private void executeTeleport(Player player, boolean free, boolean bypassCooldown) {
-        // 异步寻找安全位置
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            Location safeLocation = findSafeRandomLocation(player);
-            
-            // 同步执行传送
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                if (safeLocation != null && player.isOnline() && !player.isDead()) {
-                    // 执行传送
-                    player.teleport(safeLocation);
-                    
-                    // 播放传送到达效果
-                    teleportEffects.playArrivalEffect(player);
-                    
-                    // 添加短暂无敌BUFF
-                    addInvincibilityBuff(player);
-                    
-                    // 更新玩家数据
-                    updatePlayerData(player, free);
-                    
-                    // 显示成功消息
-                    String successMessage = plugin.getConfigManager().getMessage("teleported");
-                    
-                    // 如果不是免费传送，显示本次花费
-                    if (!free) {
-                        double currentCost = plugin.getConfigManager().getTeleportCost(player);
-                        if (currentCost > 0) {
-                            String formattedCost = economySystemManager.formatMoney(currentCost);
-                            successMessage += ChatColor.GOLD + " 本次花费: " + formattedCost;
-                        }
-                    }
-                    
-                    player.sendMessage(plugin.getConfigManager().getMessage("prefix") + successMessage);
-                    
-                    plugin.getLogger().info(player.getName() + " 随机传送到 " + 
-                        safeLocation.getBlockX() + ", " + safeLocation.getBlockY() + ", " + 
-                        safeLocation.getBlockZ());
-                    
-                } else {
-                    // 传送失败
-                    player.sendMessage(plugin.getConfigManager().getMessage("prefix") + 
-                        ChatColor.RED + "无法找到安全传送位置，请稍后重试");
-                    plugin.getLogger().warning(player.getName() + " 随机传送失败：无法找到安全位置");
-                }
-            });
-        });
-    }
-    
-    /**
-     * 寻找安全的随机位置
-     */
-    private Location findSafeRandomLocation(Player player) {
-        World world = player.getWorld();
-        Location playerLocation = player.getLocation();
-        
-        // 第一阶段：标准重试机制
-        for (int attempt = 0; attempt < plugin.getConfigManager().getMaxTries(); attempt++) {
-            Location safeLocation = generateAndCheckLocation(player, playerLocation, world, false);
-            if (safeLocation != null) {
-                return safeLocation;
-            }
-        }
-        
-        // 第二阶段：降低标准重试（减少范围）
-        for (int attempt = 0; attempt < 5; attempt++) {
-            Location safeLocation = generateAndCheckLocation(player, playerLocation, world, true);
-            if (safeLocation != null) {
-                return safeLocation;
-            }
-        }
-        
-        // 第三阶段：极低标准重试（非常小的范围）
-        return findAnySafeLocation(player);
-    }
-    
-    /**
-     * 生成并检查位置
-     */
-    private Location generateAndCheckLocation(Player player, Location playerLocation, World world, boolean reducedRange) {
-        int range = reducedRange ? plugin.getConfigManager().getTeleportRange() / 2 : plugin.getConfigManager().getTeleportRange();
-        
-        // 生成随机坐标
-        int x = playerLocation.getBlockX() + random.nextInt(range * 2) - range;
-        int z = playerLocation.getBlockZ() + random.nextInt(range * 2) - range;
-        
-        // 获取最高固体方块位置
-        int y = world.getHighestBlockYAt(x, z);
-        
-        // 检查Y轴限制
-        if (y < plugin.getConfigManager().getMinY() || y > plugin.getConfigManager().getMaxY()) {
-            return null;
-        }
-        
-        // 检查周围区块是否已加载
-        if (!isChunkLoaded(world, x, z)) {
-            return null;
+    private void executeTeleport(Player player, TeleportRequest request, boolean escrowed) {
+        UUID uuid = player.getUniqueId();
+        boolean free = request.isFree();
+        if (escrowed && !isReservationHeld(uuid)) {
+            // 倒计时期间预留超时（已由结算任务退还）
+            movementGuard.unwatch(player);
+            reservations.remove(uuid);
+            failExpiredReservation(player, request);
+            return;
         }
-        
-        Location testLocation = new Location(world, x + 0.5, y + 1, z + 0.5);
-        
-        // 检查安全位置
-        if (isSafeLocation(testLocation)) {
-            return testLocation;
+        if (!requests.advance(request, State.COUNTDOWN, State.SEARCHING)) {
+            movementGuard.unwatch(player);
+            return; // 倒计时期间已取消
         }
         
-        return null;
-    }
-    
-    /**
-     * 检查区块是否已加载
-     */
-    private boolean isChunkLoaded(World world, int x, int z) {
-        return world.isChunkLoaded(x >> 4, z >> 4);
+        // 搜索安全位置（可取消的 future 链），结果在主线程处理
+        locationSearch.search(player, request).thenAccept(safeLocation -> {
+            // 进入 TELEPORTING 后不再可取消，本次传送触发的 PlayerTeleportEvent 不会把它当作取消
+            if (!requests.advance(request, State.SEARCHING, State.TELEPORTING)) {
+                return; // 搜索期间已取消：丢弃结果，不接触玩家（费用预留已由取消流程处理）
+            }
+            movementGuard.unwatch(player);
+            
+            Reservation reservation = reservations.remove(uuid);
+            if (escrowed && (reservation == null || !reservation.isHeld())) {
+                failExpiredReservation(player, request); // 搜索期间预留超时
+                return;
+            }
+            
+            if (safeLocation != null && player.isOnline() && !player.isDead() && player.teleport(safeLocation)) {
+                // 传送成功，确认扣费
+                if (reservation != null && !escrowManager.commit(reservation)) {
+                    plugin.getLogger().warning(player.getName() + " 的费用预留已在传送前被释放，本次传送未扣费");
+                }
+                
+                // 播放传送到达效果
+                teleportEffects.playArrivalEffect(player);
+                
+                // 添加传送后保护
+                protectionManager.protect(player);
+                
+                // 更新玩家数据
+                updatePlayerData(player, free);
+                
+                // 显示成功消息
+                String successMessage = plugin.getConfigManager().getMessage("teleported");
+                
+                // 如果不是免费传送，显示本次花费
+                if (!free && reservation != null) {
+                    String formattedCost = economySystemManager.formatMoney(reservation.getAmount(), reservation.getCurrency());
+                    successMessage += ChatColor.GOLD + " 本次花费: " + formattedCost;
+                }
+                
+                player.sendMessage(plugin.getConfigManager().getMessage("prefix") + successMessage);
+                
+                plugin.getLogger().info(player.getName() + " 随机传送到 " + 
+                    safeLocation.getBlockX() + ", " + safeLocation.getBlockY() + ", " + 
+                    safeLocation.getBlockZ());
+                requests.advance(request, State.TELEPORTING, State.DONE);
+                
+            } else {
+                // 传送失败，释放预留退还费用
+                if (reservation != null) {
+                    escrowManager.release(reservation, "未找到安全传送位置");
+                }
+                player.sendMessage(plugin.getConfigManager().getMessage("prefix") + 
+                    ChatColor.RED + "无法找到安全传送位置，请稍后重试");
+                plugin.getLogger().warning(player.getName() + " 随机传送失败：无法找到安全位置");
+                requests.advance(request, State.TELEPORTING, State.FAILED);
+            }
+        });
     }
     
     /**
-     * 寻找任何安全位置（降低标准）
+     * 检查玩家是否可以传送
      */
-    private Location findAnySafeLocation(Player player) {
-        int maxTries = plugin.getConfigManager().getMaxTries() * 2;
-        World world = player.getWorld();
-        Location playerLocation = player.getLocation();
-        
-        for (int attempt = 0; attempt < maxTries; attempt++) {
-            int x = playerLocation.getBlockX() + random.nextInt(2000) - 1000;
-            int z = playerLocation.getBlockZ() + random.nextInt(2000) - 1000;
-            
-            int y = world.getHighestBlockYAt(x, z);
-            Location testLocation = new Location(world, x + 0.5, y, z + 0.5);
-            
-            // 只检查基本安全要求
-            if (isBasicSafeLocation(testLocation)) {
-                return testLocation;
-            }
-        }
-        
-        return null;
+    public boolean canTeleport(Player player) {
+        return !plugin.getPlayerDataManager().isInCooldown(player.getUniqueId());
     }
     
     /**
-     * 检查位置是否安全
+     * 异步预留传送费用
+     * 费用在经济线程中转入托管；返回的 Future 在主线程完成
      */
-    private boolean isSafeLocation(Location location) {
-        if (!plugin.getConfigManager().shouldFindSafeLocation()) {
-            return true;
-        }
-        
-        Block block = location.getBlock();
-        Block below = block.getRelative(BlockFace.DOWN);
-        Block above = block.getRelative(BlockFace.UP);
-        Block above2 = block.getRelative(BlockFace.UP, 2);
-        
-        // 检查下方是否为固体方块
-        if (!below.getType().isSolid()) {
-            return false;
-        }
-        
-        // 检查当前方块是否为空气
-        if (!isAir(block.getType())) {
-            return false;
+    private CompletableFuture<Boolean> reserveTeleportCost(Player player) {
+        if (!plugin.getConfigManager().isEconomyEnabled()) {
+            return CompletableFuture.completedFuture(true); // 经济系统未启用，允许传送
         }
-        
-        // 检查上方1格是否为空气
-        if (!isAir(above.getType())) {
-            return false;
+
+        TeleportCost cost = plugin.getConfigManager().getTeleportCharge(player);
+        if (cost.isFree()) {
+            return CompletableFuture.completedFuture(true); // 费用为0，允许传送
         }
-        
-        // 检查上方2格是否为空气（确保玩家可以站立）
-        if (!isAir(above2.getType())) {
-            return false;
+
+        if (economySystemManager == null || escrowManager == null) {
+            player.sendMessage(ChatColor.RED + "经济系统未正确配置，无法进行传送。");
+            return CompletableFuture.completedFuture(false);
         }
-        
-        // 避免水中传送
-        if (plugin.getConfigManager().shouldAvoidWater() && isWaterNearby(location, 2)) {
-            return false;
+        if (!economySystemManager.isEnabled()) {
+            return CompletableFuture.completedFuture(true); // 没有可用的经济插件，允许传送
         }
+
+        UUID uuid = player.getUniqueId();
         
-        // 避免岩浆传送
-        if (plugin.getConfigManager().shouldAvoidLava() && isLavaNearby(location, 2)) {
-            return false;
+        if (cost.getCurrency() != null && !economySystemManager.hasCurrency(cost.getCurrency())) {
+            player.sendMessage(ChatColor.RED + "没有可用的经济插件提供货币 " + cost.getCurrency() + "，无法传送。");
+            return CompletableFuture.completedFuture(false);
         }
         
-        // 检查周围危险方块
-        if (hasDangerousBlocksNearby(location, 2)) {
-            return false;
+        // 缓存余额明显不足时直接拒绝，省去一次经济插件往返（缓存只保存默认货币余额）
+        Double cachedBalance = cost.getCurrency() == null ? economySystemManager.getCachedBalance(uuid) : null;
+        if (cachedBalance != null && cachedBalance < cost.getAmount()) {
+            player.sendMessage(ChatColor.RED + "你需要 " + economySystemManager.formatCost(cost) + " 才能传送，但你余额不足。");
+            return CompletableFuture.completedFuture(false);
         }
         
-        return true;
-    }
-    
-    /**
-     * 检查是否为空气方块
-     */
-    private boolean isAir(Material material) {
-        return material == Material.AIR || material == Material.CAVE_AIR || material == Material.VOID_AIR;
+        CompletableFuture<Boolean> reserved = new CompletableFuture<>();
+        escrowManager.reserve(player, cost.getAmount(), cost.getCurrency(), "随机传送费用").whenComplete((reservation, error) -> 
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                reserved.complete(handleReservation(player, cost, error == null ? reservation : null));
+            }));
+        return reserved;
     }
     
     /**
-     * 检查附近是否有水域
+     * 在主线程处理预留结果
      */
-    private boolean isWaterNearby(Location location, int radius) {
-        World world = location.getWorld();
-        int x = location.getBlockX();
-        int y = location.getBlockY();
-        int z = location.getBlockZ();
-        
-        for (int dx = -radius; dx <= radius; dx++) {
-            for (int dy = -radius; dy <= radius; dy++) {
-                for (int dz = -radius; dz <= radius; dz++) {
-                    Block block = world.getBlockAt(x + dx, y + dy, z + dz);
-                    if (isWater(block.getType())) {
-                        return true;
-                    }
-                }
+    private boolean handleReservation(Player player, TeleportCost cost, Reservation reservation) {
+        if (reservation != null && reservation.isHeld()) {
+            if (!player.isOnline()) {
+                // 预留期间玩家已离线，直接释放
+                escrowManager.release(reservation, "预留期间玩家离线", true);
+                return false;
             }
+            reservations.put(player.getUniqueId(), reservation);
+            return true;
         }
-        return false;
-    }
-    
-    /**
-     * 检查附近是否有岩浆
-     */
-    private boolean isLavaNearby(Location location, int radius) {
-        World world = location.getWorld();
-        int x = location.getBlockX();
-        int y = location.getBlockY();
-        int z = location.getBlockZ();
         
-        for (int dx = -radius; dx <= radius; dx++) {
-            for (int dy = -radius; dy <= radius; dy++) {
-                for (int dz = -radius; dz <= radius; dz++) {
-                    Block block = world.getBlockAt(x + dx, y + dy, z + dz);
-                    if (block.getType() == Material.LAVA) {
-                        return true;
-                    }
-                }
-            }
+        if (reservation != null && reservation.getWithdrawResult() == TransactionResult.SKIPPED) {
+            // 经济系统不可用且扣款策略为 fail-open：本次免费放行，不产生预留
+            player.sendMessage(ChatColor.YELLOW + "经济系统暂时不可用，本次传送不收费。");
+            return true;
         }
-        return false;
-    }
-    
-    /**
-     * 检查附近是否有危险方块
-     */
-    private boolean hasDangerousBlocksNearby(Location location, int radius) {
-        World world = location.getWorld();
-        int x = location.getBlockX();
-        int y = location.getBlockY();
-        int z = location.getBlockZ();
-        
-        // 危险方块列表
-        Material[] dangerousBlocks = {
-            Material.FIRE,
-            Material.SOUL_FIRE,
-            Material.OBSIDIAN,
-            Material.CACTUS,
-            Material.SWEET_BERRY_BUSH,
-            Material.WITHER_ROSE,
-            Material.CAMPFIRE,
-            Material.SOUL_CAMPFIRE,
-            Material.END_CRYSTAL
-        };
         
-        for (int dx = -radius; dx <= radius; dx++) {
-            for (int dy = -radius; dy <= radius; dy++) {
-                for (int dz = -radius; dz <= radius; dz++) {
-                    Block block = world.getBlockAt(x + dx, y + dy, z + dz);
-                    for (Material dangerous : dangerousBlocks) {
-                        if (block.getType() == dangerous) {
-                            return true;
-                        }
-                    }
-                }
-            }
+        if (reservation != null && reservation.getWithdrawResult() == TransactionResult.INSUFFICIENT_FUNDS) {
+            player.sendMessage(ChatColor.RED + "你需要 " + economySystemManager.formatCost(cost) + " 才能传送，但你余额不足。");
+        } else if (reservation != null && reservation.getWithdrawResult() == TransactionResult.UNKNOWN) {
+            player.sendMessage(ChatColor.RED + "经济系统响应超时，无法确认是否已扣费，本次传送已取消。如已扣费请联系管理员。");
+        } else {
+            player.sendMessage(ChatColor.RED + "扣费失败，无法传送。");
         }
         return false;
     }
     
     /**
-     * 检查是否为水
-     */
-    private boolean isWater(Material material) {
-        return material == Material.WATER;
-    }
-    
-    /**
-     * 检查基本安全要求
+     * 玩家的费用预留是否仍然有效
      */
-    private boolean isBasicSafeLocation(Location location) {
-        Block block = location.getBlock();
-        Block below = block.getRelative(BlockFace.DOWN);
-        
-        return below.getType().isSolid() && 
-               (block.getType() == Material.AIR || block.getType() == Material.CAVE_AIR);
-    }
-    
-    /**
-     * 检查是否为水域
-     */
-    private boolean isWaterArea(Location location) {
-        Block block = location.getBlock();
-        Block below = block.getRelative(BlockFace.DOWN);
-        
-        return block.isLiquid() || below.isLiquid();
-    }
-    
-    /**
-     * 检查是否为岩浆区域
-     */
-    private boolean isLavaArea(Location location) {
-        Block block = location.getBlock();
-        Block below = block.getRelative(BlockFace.DOWN);
-        
-        return block.getType() == Material.LAVA || below.getType() == Material.LAVA;
-    }
-    
-    /**
-     * 检查玩家是否可以传送
-     */
-    public boolean canTeleport(Player player) {
-        return !plugin.getPlayerDataManager().isInCooldown(player.getUniqueId());
-    }
-    
-    private boolean checkAndDeductEconomy(Player player) {
-        if (!plugin.getConfigManager().isEconomyEnabled()) {
-            return true; // 经济系统未启用，允许传送
-        }
-
-        double cost = plugin.getConfigManager().getTeleportCost(player);
-        if (cost <= 0) {
-            return true; // 费用为0，允许传送
-        }
-
-        EconomySystemManager economyManager = plugin.getEconomySystemManager();
-        if (economyManager == null) {
-            player.sendMessage(ChatColor.RED + "经济系统未正确配置，无法进行传送。");
-            return false;
-        }
-
-        if (!economyManager.hasEnoughMoney(player, cost)) {
-            String formattedCost = economyManager.formatMoney(cost);
-            player.sendMessage(ChatColor.RED + "你需要 " + formattedCost + " 才能传送，但你余额不足。");
-            return false;
-        }
-
-        if (!economyManager.withdrawMoney(player, cost)) {
-            player.sendMessage(ChatColor.RED + "扣费失败，无法传送。");
-            return false;
-        }
-
-        return true;
+    private boolean isReservationHeld(UUID uuid) {
+        Reservation reservation = reservations.get(uuid);
+        return reservation != null && reservation.isHeld();
     }
     
     /**
@@ -470,45 +327,60 @@ public class TeleportManager {
      * @param shouldRefund 是否应该退款（玩家移动或执行取消操作时为true）
      */
     public void cancelTeleport(Player player, boolean shouldRefund) {
+        if (!cancelTeleport(player, shouldRefund, false)) {
+            return; // 没有可取消的传送（如正在执行本次传送）
+        }
+        
+        player.sendMessage(plugin.getConfigManager().getMessage("prefix") + 
+            plugin.getConfigManager().getMessage("teleport-cancelled"));
+    }
+    
+    /**
+     * 玩家退出时取消传送，费用按 defer-offline 配置在其下次进入服务器时退还
+     */
+    public void cancelTeleportOnQuit(Player player) {
+        cancelTeleport(player, true, true);
+    }
+    
+    private boolean cancelTeleport(Player player, boolean shouldRefund, boolean playerLeft) {
         UUID uuid = player.getUniqueId();
         
-        if (teleportTasks.containsKey(uuid)) {
-            teleportTasks.get(uuid).cancel();
-            teleportTasks.remove(uuid);
+        // 取消请求，正在搜索的线程会随之停止
+        if (!requests.cancel(uuid)) {
+            return false;
         }
         
-        // 取消效果系统中的效果
+        // 停止倒计时并取消效果系统中的效果
         teleportEffects.cancelEffects(player);
-        
-        // 退款逻辑 - 只在玩家移动或执行其他取消操作时退款
-        if (shouldRefund && plugin.getConfigManager().isEconomyEnabled()) {
-            EconomySystemManager economySystemManager = plugin.getEconomySystemManager();
-            if (economySystemManager != null && economySystemManager.isEnabled()) {
-                double cost = plugin.getConfigManager().getTeleportCost(player);
-                if (cost > 0 && economySystemManager.depositMoney(player, cost)) {
-                    String formattedRefund = economySystemManager.formatMoney(cost);
-                    player.sendMessage(ChatColor.GREEN + "已退还传送费用: " + formattedRefund);
-                } else if (cost > 0) {
-                    String formattedCost = economySystemManager.formatMoney(cost);
-                    player.sendMessage(ChatColor.YELLOW + "退款失败，请联系管理员。费用: " + formattedCost);
-                }
+        movementGuard.unwatch(player);
+        
+        // 费用预留：允许退款时释放（由结算线程退还），否则按配置视为已消费
+        Reservation reservation = reservations.remove(uuid);
+        if (reservation != null) {
+            if (shouldRefund) {
+                escrowManager.release(reservation, playerLeft ? "玩家退出退款" : "传送取消退款", playerLeft);
+            } else {
+                escrowManager.commit(reservation);
             }
         }
-        
-        player.sendMessage(plugin.getConfigManager().getMessage("prefix") + 
-            plugin.getConfigManager().getMessage("teleport-cancelled"));
+        return true;
     }
     
     /**
      * 取消所有传送任务
      */
     public void cancelAllTeleports() {
-        for (BukkitTask task : teleportTasks.values()) {
-            if (!task.isCancelled()) {
-                task.cancel();
-            }
+        requests.cancelAll();
+        plugin.getCountdownScheduler().shutdown();
+        teleportEffects.shutdown();
+        protectionManager.shutdown();
+        movementGuard.clear();
+        
+        // 释放所有未完成传送的费用预留
+        for (Reservation reservation : reservations.values()) {
+            escrowManager.release(reservation, "服务器关闭释放预留");
         }
-        teleportTasks.clear();
+        reservations.clear();
     }
     
     /**
@@ -534,61 +406,44 @@ public class TeleportManager {
     }
     
     /**
-     * 获取玩家传送任务
+     * 检查玩家是否有正在进行的传送
      */
-    public BukkitTask getTeleportTask(UUID uuid) {
-        return teleportTasks.get(uuid);
+    public boolean hasActiveTeleport(UUID uuid) {
+        return requests.isActive(uuid);
     }
     
     /**
-     * 检查玩家是否有正在进行的传送
+     * 获取进行中的传送数量（费用预留、倒计时、搜索和传送中的）
      */
-    public boolean hasActiveTeleport(UUID uuid) {
-        return teleportTasks.containsKey(uuid);
+    public int getActiveTeleportCount() {
+        return requests.getActiveCount();
     }
     
     /**
-     * 添加短暂无敌BUFF
+     * 获取传送请求登记表
      */
-    private void addInvincibilityBuff(Player player) {
-        int buffDuration = 5; // 5秒无敌时间
-        
-        // 添加抗性提升效果（等级1，持续5秒）
-        PotionEffect resistance = new PotionEffect(
-            PotionEffectType.DAMAGE_RESISTANCE,
-            buffDuration * 20, // 转换为tick
-            1, // 等级1（75%伤害减免）
-            false, // 不显示粒子
-            false, // 不显示图标
-            true // 隐藏效果
-        );
-        
-        player.addPotionEffect(resistance);
-        
-        // 记录日志
-        plugin.getLogger().info("为玩家 " + player.getName() + " 添加了 " + buffDuration + " 秒无敌BUFF");
-        
-        // 安排移除效果的任务（确保效果不会过早消失）
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (player.isOnline()) {
-                    player.removePotionEffect(PotionEffectType.DAMAGE_RESISTANCE);
-                    plugin.getLogger().info("玩家 " + player.getName() + " 的无敌BUFF已移除");
-                }
-            }
-        }.runTaskLater(plugin, buffDuration * 20L);
+    public TeleportRequestRegistry getRequestRegistry() {
+        return requests;
     }
     
     /**
-     * 取消所有传送任务并清理玩家BUFF
+     * 获取传送后保护管理器
      */
-    public void cancelAllTeleportsAndCleanup() {
-        cancelAllTeleports();
-        
-        // 清理所有在线玩家的无敌BUFF
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            player.removePotionEffect(PotionEffectType.DAMAGE_RESISTANCE);
-        }
+    public ProtectionManager getProtectionManager() {
+        return protectionManager;
+    }
+    
+    /**
+     * 获取等待传送期间的移动检测
+     */
+    public MovementGuard getMovementGuard() {
+        return movementGuard;
+    }
+    
+    /**
+     * 获取安全位置搜索
+     */
+    public LocationSearch getLocationSearch() {
+        return locationSearch;
     }
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+package org.awaioi.randomtp.teleport;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 传送请求登记表（线程安全）
+ * 每位玩家同时最多有一个进行中的传送请求，请求按 QUOTED → CHARGED → COUNTDOWN → SEARCHING → TELEPORTING
+ * 推进，最终进入 DONE、FAILED 或 CANCELLED。状态转换都用 CAS 完成，主线程和异步搜索线程可以同时操作；
+ * 取消只在 TELEPORTING 之前有效，搜索线程通过 isCancelled 及时停止。请求结束后立即从登记表移除
+ */
+public class TeleportRequestRegistry {
+    
+    private final Map<UUID, TeleportRequest> requests = new ConcurrentHashMap<>();
+    
+    // 已结束请求的累计数量，按最终状态索引
+    private final AtomicLong[] finished = new AtomicLong[State.values().length];
+    
+    public TeleportRequestRegistry() {
+        for (int i = 0; i < finished.length; i++) {
+            finished[i] = new AtomicLong();
+        }
+    }
+    
+    /**
+     * 为玩家登记新的传送请求
+     * @return 玩家已有进行中的请求时返回 null
+     */
+    public TeleportRequest begin(UUID playerId, boolean free) {
+        TeleportRequest request = new TeleportRequest(playerId, free);
+        return requests.putIfAbsent(playerId, request) == null ? request : null;
+    }
+    
+    /**
+     * 推进请求状态（CAS）
+     * @return 请求当前不处于 from 状态（如已被取消）时返回 false
+     */
+    public boolean advance(TeleportRequest request, State from, State to) {
+        if (!request.state.compareAndSet(from, to)) {
+            return false;
+        }
+        if (to.isTerminal()) {
+            finish(request, to);
+        }
+        return true;
+    }
+    
+    /**
+     * 以失败结束请求（任意未结束的状态）
+     * @return 请求已经结束时返回 false
+     */
+    public boolean fail(TeleportRequest request) {
+        while (true) {
+            State current = request.state.get();
+            if (current.isTerminal()) {
+                return false;
+            }
+            if (advance(request, current, State.FAILED)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * 取消玩家的传送请求
+     * @return 没有请求或请求已进入 TELEPORTING（无法再取消）时返回 false
+     */
+    public boolean cancel(UUID playerId) {
+        TeleportRequest request = requests.get(playerId);
+        if (request == null) {
+            return false;
+        }
+        while (true) {
+            State current = request.state.get();
+            if (!current.isCancellable()) {
+                return false;
+            }
+            if (advance(request, current, State.CANCELLED)) {
+                request.runCancelHook();
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * 取消所有可取消的请求（插件关闭时）
+     */
+    public void cancelAll() {
+        for (UUID playerId : requests.keySet()) {
+            cancel(playerId);
+        }
+    }
+    
+    public TeleportRequest get(UUID playerId) {
+        return requests.get(playerId);
+    }
+    
+    public boolean isActive(UUID playerId) {
+        return requests.containsKey(playerId);
+    }
+    
+    public int getActiveCount() {
+        return requests.size();
+    }
+    
+    /**
+     * 获取进行中请求的各状态数量
+     */
+    public Map<State, Integer> getStateCounts() {
+        Map<State, Integer> counts = new EnumMap<>(State.class);
+        for (TeleportRequest request : requests.values()) {
+            counts.merge(request.getState(), 1, Integer::sum);
+        }
+        return counts;
+    }
+    
+    /**
+     * 获取已结束请求的累计数量
+     */
+    public long getFinishedCount(State state) {
+        return finished[state.ordinal()].get();
+    }
+    
+    /**
+     * 格式化各状态统计
+     */
+    public String getSummary() {
+        StringBuilder builder = new StringBuilder();
+        Map<State, Integer> counts = getStateCounts();
+        for (State state : State.values()) {
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            long count = state.isTerminal() ? getFinishedCount(state) : counts.getOrDefault(state, 0);
+            builder.append(state.name()).append(' ').append(count);
+        }
+        return builder.toString();
+    }
+    
+    private void finish(TeleportRequest request, State state) {
+        requests.remove(request.playerId, request);
+        finished[state.ordinal()].incrementAndGet();
+    }
+    
+    /**
+     * 传送请求状态
+     */
+    public enum State {
+        QUOTED,       // 已登记，正在预留费用
+        CHARGED,      // 费用已预留（或无需付费）
+        COUNTDOWN,    // 倒计时中
+        SEARCHING,    // 异步搜索安全位置
+        TELEPORTING,  // 主线程执行传送
+        DONE,         // 传送成功
+        FAILED,       // 扣费失败、未找到位置或预留超时
+        CANCELLED;    // 玩家移动、退出等原因取消
+        
+        public boolean isTerminal() {
+            return this == DONE || this == FAILED || this == CANCELLED;
+        }
+        
+        public boolean isCancellable() {
+            return ordinal() < TELEPORTING.ordinal();
+        }
+    }
+    
+    /**
+     * 一个传送请求
+     */
+    public static final class TeleportRequest {
+        private final UUID playerId;
+        private final boolean free;
+        private final long createdAt;
+        private final AtomicReference<State> state = new AtomicReference<>(State.QUOTED);
+        private volatile Runnable cancelHook;
+        
+        private TeleportRequest(UUID playerId, boolean free) {
+            this.playerId = playerId;
+            this.free = free;
+            this.createdAt = System.currentTimeMillis();
+        }
+        
+        public boolean isCancelled() {
+            return state.get() == State.CANCELLED;
+        }
+        
+        /**
+         * 设置取消时执行的回调（如中止进行中的搜索），请求已被取消时立即执行
+         */
+        public void setCancelHook(Runnable hook) {
+            cancelHook = hook;
+            if (isCancelled()) {
+                runCancelHook();
+            }
+        }
+        
+        private void runCancelHook() {
+            Runnable hook = cancelHook;
+            cancelHook = null;
+            if (hook != null) {
+                hook.run();
+            }
+        }
+        
+        public UUID getPlayerId() { return playerId; }
+        public boolean isFree() { return free; }
+        public long getCreatedAt() { return createdAt; }
+        public State getState() { return state.get(); }
+    }
+}
\ No newline at end of file